@@ -5,7 +5,10 @@ import com.configtool.model.Template;
 import com.configtool.service.TemplateService;
 import com.configtool.service.TemplateAutoGenerator;
 import com.configtool.service.NacosApiService;
+import com.configtool.service.TemplateStatusWatcher;
+import com.configtool.util.JsonUtil;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.concurrent.Worker;
 import javafx.scene.Scene;
 import javafx.scene.web.WebEngine;
@@ -19,6 +22,7 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +54,10 @@ public class App extends Application {
             webEngine.setJavaScriptEnabled(true);
             logger.info("JavaScript enabled for WebEngine");
             
+            // 目标文件变化时通知页面刷新状态
+            TemplateStatusWatcher.getInstance().addListener((templateId, changedItems) ->
+                    Platform.runLater(() -> notifyTemplateStatusChanged(webEngine, templateId, changedItems)));
+            
             // 设置页面加载完成后的回调
             webEngine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
                 logger.info("WebEngine state changed from {} to {}", oldState, newState);
@@ -103,6 +111,7 @@ public class App extends Application {
             // 设置关闭事件
             primaryStage.setOnCloseRequest(e -> {
                 logger.info("User requested application shutdown");
+                appController.shutdown();
                 System.exit(0);
             });
             
@@ -135,6 +144,18 @@ public class App extends Application {
         }
     }
 
+    /**
+     * 调用页面的状态变化回调
+     */
+    private void notifyTemplateStatusChanged(WebEngine webEngine, String templateId, List<String> changedItems) {
+        try {
+            webEngine.executeScript("if (typeof onTemplateStatusChanged === 'function') { onTemplateStatusChanged("
+                    + JsonUtil.toJson(templateId) + ", " + JsonUtil.toJson(changedItems) + "); }");
+        } catch (Exception e) {
+            logger.warn("Failed to notify template status change", e);
+        }
+    }
+
     /**
      * 从资源文件加载HTML内容
      */
@@ -174,6 +195,9 @@ public class App extends Application {
         System.setProperty("file.encoding", "UTF-8");
         System.setProperty("sun.jnu.encoding", "UTF-8");
         
+        // 恢复上次被中断的写入
+        recoverInterruptedWrites();
+        
         // 处理启动参数
         if (args.length > 0) {
             String type = args[0].toLowerCase();
@@ -211,6 +235,17 @@ public class App extends Application {
         }
     }
     
+    /**
+     * 启动时清理上次运行遗留的临时文件
+     */
+    private static void recoverInterruptedWrites() {
+        try {
+            new TemplateService().recoverInterruptedWrites();
+        } catch (Exception e) {
+            logger.error("恢复中断的写入失败", e);
+        }
+    }
+    
     /**
      * 自动生成操作（方案2）
      * 每次启动时自动清理模板目录并生成半成品模板
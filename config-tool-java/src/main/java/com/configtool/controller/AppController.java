@@ -3,15 +3,24 @@ package com.configtool.controller;
 import com.configtool.config.EnvironmentConfig;
 import com.configtool.model.*;
 import com.configtool.service.ConfigService;
+import com.configtool.service.FileContentCache;
+import com.configtool.service.PathResolver;
 import com.configtool.service.FileProcessor;
 import com.configtool.service.NacosApiService;
+import com.configtool.service.NacosConfigCache;
+import com.configtool.service.NacosSyncQueue;
+import com.configtool.service.TemplateRepository;
 import com.configtool.service.TemplateService;
+import com.configtool.service.StatusCheckExecutor;
+import com.configtool.service.TemplateStatusWatcher;
 import com.configtool.service.TemplateAutoGenerator;
+import com.configtool.service.DatabaseConnectionPool;
 import com.configtool.service.DatabaseTestService;
 import com.configtool.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +32,9 @@ import java.util.Map;
 public class AppController {
     private static final Logger logger = LoggerFactory.getLogger(AppController.class);
     
+    /** 退出时等待Nacos同步完成的最长时间 */
+    private static final long NACOS_SYNC_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    
     private final TemplateService templateService;
     private final FileProcessor fileProcessor;
     private final ConfigService configService;
@@ -112,6 +124,27 @@ public class AppController {
         }
     }
 
+    /**
+     * 获取模板状态增量
+     * 只返回目标文件内容自 sinceVersion 以来发生变化的配置项；sinceVersion 为空或已失效时返回完整状态
+     */
+    public String getTemplateStatusDelta(String templateId, String sinceVersion) {
+        try {
+            if (templateId == null || templateId.trim().isEmpty()) {
+                ApiResponse<Object> response = ApiResponse.error("模板ID不能为空");
+                return JsonUtil.toJson(response);
+            }
+            
+            TemplateStatusDelta delta = configService.getTemplateStatusDelta(templateId.trim(), sinceVersion);
+            ApiResponse<TemplateStatusDelta> response = ApiResponse.success(delta);
+            return JsonUtil.toJson(response);
+        } catch (Exception e) {
+            logger.error("获取模板状态增量失败: {}", templateId, e);
+            ApiResponse<Object> response = ApiResponse.error("获取模板状态增量失败: " + e.getMessage());
+            return JsonUtil.toJson(response);
+        }
+    }
+
     /**
      * 保存模板
      */
@@ -283,6 +316,11 @@ public class AppController {
             // 刷新环境变量配置
             EnvironmentConfig.refreshEnvVars();
             
+            // 环境变量和目录可能已变化，清空路径解析缓存
+            PathResolver.getInstance().invalidate();
+            TemplateService.clearCompiledTemplates();
+            TemplateStatusWatcher.getInstance().clear();
+            
             logger.info("配置数据刷新成功");
             ApiResponse<String> response = ApiResponse.success("配置数据已刷新");
             return JsonUtil.toJson(response);
@@ -294,6 +332,41 @@ public class AppController {
         }
     }
     
+    /**
+     * 应用退出前释放后台资源
+     * 停止文件监视和状态检查线程，并等待Nacos同步队列中已到期的任务完成；关闭数据库测试连接
+     */
+    public void shutdown() {
+        logger.info("释放后台资源");
+        TemplateStatusWatcher.getInstance().shutdown();
+        StatusCheckExecutor.getInstance().shutdown();
+        NacosSyncQueue.getInstance().shutdown(NACOS_SYNC_SHUTDOWN_TIMEOUT_MILLIS);
+        NacosConfigCache.shutdownAll();
+        DatabaseConnectionPool.getInstance().shutdown();
+    }
+    
+    /**
+     * 获取缓存统计信息
+     */
+    public String getCacheStatistics() {
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("fileCache", FileContentCache.getInstance().getStatistics());
+            stats.put("pathCache", PathResolver.getInstance().getStatistics());
+            stats.put("statusWatcher", TemplateStatusWatcher.getInstance().getStatistics());
+            stats.put("statusCheck", StatusCheckExecutor.getInstance().getStatistics());
+            stats.put("templateRepository", TemplateRepository.getInstance().getStatistics());
+            stats.put("databasePool", DatabaseConnectionPool.getInstance().getStatistics());
+            
+            ApiResponse<Map<String, Object>> response = ApiResponse.success(stats);
+            return JsonUtil.toJson(response);
+        } catch (Exception e) {
+            logger.error("获取缓存统计信息失败", e);
+            ApiResponse<Object> response = ApiResponse.error("获取缓存统计信息失败: " + e.getMessage());
+            return JsonUtil.toJson(response);
+        }
+    }
+    
     /**
      * 更新skeleton文件
      * 用于联动时同步更新skeleton文件的配置项值
@@ -385,6 +458,11 @@ public class AppController {
             status.put("available", nacosApiService.isNacosAvailable());
             status.put("url", nacosApiService.getNacosUrl());
             status.put("namespace", nacosApiService.getNamespace());
+            status.put("health", nacosApiService.getHealthStatus());
+            status.put("transport", nacosApiService.getTransportStatistics());
+            status.put("configCache", nacosApiService.getConfigCacheStatus());
+            status.put("auth", nacosApiService.getAuthStatus());
+            status.put("syncQueue", NacosSyncQueue.getInstance().getStatus());
             
             // 测试获取配置
             if (nacosApiService.isEnabled() && nacosApiService.isNacosAvailable()) {
@@ -431,7 +509,7 @@ public class AppController {
             }
             
             // 测试更新kmvue配置
-            boolean result = nacosApiService.updateDatabaseConfig(
+            NacosApiService.PublishOutcome outcome = nacosApiService.updateDatabaseConfig(
                 "kmvue-commonConfig.yml", 
                 "DEFAULT_GROUP", 
                 "jdbc:mysql://127.0.0.1:3306/kmview?useUnicode=true&characterEncoding=utf-8&generateSimpleParameterMetadata=true&zeroDateTimeBehavior=convertToNull&serverTimezone=GMT%2B8",
@@ -441,8 +519,10 @@ public class AppController {
             );
             
             Map<String, Object> testResult = new HashMap<>();
-            testResult.put("updateSuccess", result);
-            testResult.put("message", result ? "测试更新成功" : "测试更新失败");
+            testResult.put("updateSuccess", outcome.isSuccess());
+            testResult.put("outcome", outcome.name());
+            testResult.put("message", outcome == NacosApiService.PublishOutcome.UNCHANGED ? "配置未变化，已跳过发布"
+                    : outcome.isSuccess() ? "测试更新成功" : "测试更新失败");
             
             ApiResponse<Map<String, Object>> response = ApiResponse.success(testResult);
             return JsonUtil.toJson(response);
@@ -487,6 +567,49 @@ public class AppController {
         }
     }
     
+    /**
+     * 并发探测多个数据库地址（主备地址或多个端口），返回第一个可用地址和各地址的耗时
+     */
+    public String probeDatabaseEndpoints(String requestJson) {
+        try {
+            if (requestJson == null || requestJson.trim().isEmpty()) {
+                ApiResponse<Object> response = ApiResponse.error("请求数据不能为空");
+                return JsonUtil.toJson(response);
+            }
+            
+            ProbeDatabaseRequest request = JsonUtil.fromJson(requestJson, ProbeDatabaseRequest.class);
+            Map<String, String> databaseConfig = request.getValues() != null
+                    ? extractDatabaseConfig(request.getValues()) : new HashMap<>();
+            
+            if (databaseConfig.isEmpty()) {
+                ApiResponse<Object> response = ApiResponse.error("没有找到数据库配置信息");
+                return JsonUtil.toJson(response);
+            }
+            
+            // 未指定候选地址时，数据库服务器地址可以用逗号分隔多个
+            List<String> endpoints = new ArrayList<>();
+            if (request.getEndpoints() != null && !request.getEndpoints().isEmpty()) {
+                endpoints.addAll(request.getEndpoints());
+            } else if (databaseConfig.get("数据库服务器地址") != null) {
+                for (String address : databaseConfig.get("数据库服务器地址").split("[,;，]")) {
+                    if (!address.trim().isEmpty()) {
+                        endpoints.add(address.trim());
+                    }
+                }
+            }
+            
+            DatabaseTestService.ProbeResult result = databaseTestService.probeEndpoints(databaseConfig, endpoints);
+            
+            ApiResponse<DatabaseTestService.ProbeResult> response = ApiResponse.success(result);
+            return JsonUtil.toJson(response);
+            
+        } catch (Exception e) {
+            logger.error("探测数据库地址失败", e);
+            ApiResponse<Object> response = ApiResponse.error("探测数据库地址失败: " + e.getMessage());
+            return JsonUtil.toJson(response);
+        }
+    }
+    
     /**
      * 提取数据库配置
      */
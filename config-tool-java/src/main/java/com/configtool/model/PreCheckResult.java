@@ -14,6 +14,8 @@ public class PreCheckResult {
     private int invalidCount;
     private List<PreCheckIssue> issues;
     private String summary;
+    /** 预检查耗时（毫秒） */
+    private long checkTimeMillis;
 
     public PreCheckResult() {
         this.issues = new ArrayList<>();
@@ -73,6 +75,14 @@ public class PreCheckResult {
         this.summary = summary;
     }
 
+    public long getCheckTimeMillis() {
+        return checkTimeMillis;
+    }
+
+    public void setCheckTimeMillis(long checkTimeMillis) {
+        this.checkTimeMillis = checkTimeMillis;
+    }
+
     // 便利方法
     public void addIssue(PreCheckIssue issue) {
         if (this.issues == null) {
@@ -108,6 +118,7 @@ public class PreCheckResult {
                 ", validCount=" + validCount +
                 ", invalidCount=" + invalidCount +
                 ", summary='" + summary + '\'' +
+                ", checkTimeMillis=" + checkTimeMillis +
                 '}';
     }
 } 
\ No newline at end of file
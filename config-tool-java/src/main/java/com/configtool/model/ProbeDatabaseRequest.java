@@ -0,0 +1,44 @@
+package com.configtool.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多地址数据库探测请求模型
+ */
+public class ProbeDatabaseRequest {
+    private Map<String, String> values; // 配置项名称 -> 值（数据库类型、端口、名称、用户名、密码）
+    private List<String> endpoints; // 候选地址 host[:port]，为空时使用数据库服务器地址（可用逗号分隔多个）
+
+    // 构造函数
+    public ProbeDatabaseRequest() {}
+
+    public ProbeDatabaseRequest(Map<String, String> values, List<String> endpoints) {
+        this.values = values;
+        this.endpoints = endpoints;
+    }
+
+    // Getter和Setter方法
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public void setValues(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    @Override
+    public String toString() {
+        return "ProbeDatabaseRequest{" +
+                "endpoints=" + endpoints +
+                '}';
+    }
+}
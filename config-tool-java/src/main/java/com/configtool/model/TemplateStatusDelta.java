@@ -0,0 +1,145 @@
+package com.configtool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模板状态增量
+ * 只包含目标文件自上一个版本以来发生变化的配置项；无法增量比较时返回完整状态
+ */
+public class TemplateStatusDelta {
+    /** 当前版本标识，下次请求时传回 */
+    private String version;
+
+    /** 是否为完整状态（首次请求、版本无效或模板本身已修改） */
+    private boolean full;
+
+    /** 完整状态，仅 full 为 true 时有值 */
+    private TemplateWithStatus templateWithStatus;
+
+    /** 发生变化的配置项，仅 full 为 false 时有值 */
+    private List<ItemDelta> changedItems = new ArrayList<>();
+
+    public TemplateStatusDelta() {
+    }
+
+    public static TemplateStatusDelta full(String version, TemplateWithStatus templateWithStatus) {
+        TemplateStatusDelta delta = new TemplateStatusDelta();
+        delta.version = version;
+        delta.full = true;
+        delta.templateWithStatus = templateWithStatus;
+        return delta;
+    }
+
+    public static TemplateStatusDelta changes(String version, List<ItemDelta> changedItems) {
+        TemplateStatusDelta delta = new TemplateStatusDelta();
+        delta.version = version;
+        delta.full = false;
+        delta.changedItems = changedItems;
+        return delta;
+    }
+
+    // Getters and setters
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public TemplateWithStatus getTemplateWithStatus() {
+        return templateWithStatus;
+    }
+
+    public void setTemplateWithStatus(TemplateWithStatus templateWithStatus) {
+        this.templateWithStatus = templateWithStatus;
+    }
+
+    public List<ItemDelta> getChangedItems() {
+        return changedItems;
+    }
+
+    public void setChangedItems(List<ItemDelta> changedItems) {
+        this.changedItems = changedItems;
+    }
+
+    /**
+     * 单个配置项的最新状态
+     */
+    public static class ItemDelta {
+        /** 配置项在模板中的下标 */
+        private int index;
+
+        /** 配置项名称 */
+        private String name;
+
+        /** 配置项当前值（与 ConfigItem.currentValue 一致） */
+        private String currentValue;
+
+        /** 配置项状态（与 ConfigItem.status 一致） */
+        private String itemStatus;
+
+        /** 配置项详细状态 */
+        private TemplateWithStatus.ConfigItemStatus status;
+
+        public ItemDelta() {
+        }
+
+        public ItemDelta(int index, ConfigItem item, TemplateWithStatus.ConfigItemStatus status) {
+            this.index = index;
+            this.name = item.getName();
+            this.currentValue = item.getCurrentValue();
+            this.itemStatus = item.getStatus();
+            this.status = status;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getCurrentValue() {
+            return currentValue;
+        }
+
+        public void setCurrentValue(String currentValue) {
+            this.currentValue = currentValue;
+        }
+
+        public String getItemStatus() {
+            return itemStatus;
+        }
+
+        public void setItemStatus(String itemStatus) {
+            this.itemStatus = itemStatus;
+        }
+
+        public TemplateWithStatus.ConfigItemStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(TemplateWithStatus.ConfigItemStatus status) {
+            this.status = status;
+        }
+    }
+}
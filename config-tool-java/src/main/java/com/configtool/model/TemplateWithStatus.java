@@ -42,7 +42,7 @@ public class TemplateWithStatus {
      * 配置项状态信息
      */
     public static class ConfigItemStatus {
-        /** 状态类型：OK(正常), WARNING(警告), ERROR(错误) */
+        /** 状态类型：OK(正常), WARNING(警告), ERROR(错误), TIMEOUT(检查超时) */
         private String status;
         
         /** 状态描述 */
@@ -84,6 +84,12 @@ public class TemplateWithStatus {
             return status;
         }
 
+        public static ConfigItemStatus timeout(String message, String currentValue) {
+            ConfigItemStatus status = new ConfigItemStatus("TIMEOUT", message);
+            status.currentValue = currentValue;
+            return status;
+        }
+
         public static ConfigItemStatus error(String message) {
             ConfigItemStatus status = new ConfigItemStatus("ERROR", message);
             status.fileExists = false;
@@ -160,7 +166,7 @@ public class TemplateWithStatus {
         /** 后缀 */
         private String suffix;
         
-        /** 状态：SUCCESS/ERROR */
+        /** 状态：SUCCESS/ERROR/TIMEOUT */
         private String status;
         
         /** 状态消息 */
@@ -168,6 +174,9 @@ public class TemplateWithStatus {
         
         /** 当前值 */
         private String currentValue;
+        
+        /** 检查时读取到的文件版本（用于状态增量，不返回给前端） */
+        private transient String fileVersion;
 
         public TargetStatus() {
         }
@@ -248,5 +257,13 @@ public class TemplateWithStatus {
         public void setCurrentValue(String currentValue) {
             this.currentValue = currentValue;
         }
+
+        public String getFileVersion() {
+            return fileVersion;
+        }
+
+        public void setFileVersion(String fileVersion) {
+            this.fileVersion = fileVersion;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,290 @@
+package com.configtool.service;
+
+import com.configtool.model.ConfigItem;
+import com.configtool.model.FileTarget;
+import com.configtool.model.Template;
+import com.configtool.util.JsonUtil;
+import com.configtool.util.PrefixMatcher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的模板
+ * 每个模板版本只构建一次的只读执行计划：配置项名称索引、解析后的目标文件路径、
+ * 按文件分组的目标点、每个文件的多前缀匹配器以及目标点的值处理方式。
+ * 状态检查、预检查和应用配置都基于它执行，不再逐个目标点查找配置项和解析路径
+ *
+ * 其中的 Template、ConfigItem 和 FileTarget 为共享对象，不能修改；需要填充当前值时使用 copyTemplate()
+ */
+public final class CompiledTemplate {
+
+    /**
+     * 目标点写入前对新值的特殊处理（由目标点ID决定）
+     */
+    public enum ValueHandling {
+        /** 原样写入 */
+        NONE,
+        /** DFM加密后写入（目标点ID为 passed） */
+        ENCRYPT,
+        /** 反斜杠转换为正斜杠后写入（目标点ID为 convertPath） */
+        CONVERT_PATH;
+
+        public static ValueHandling of(FileTarget target) {
+            if ("passed".equals(target.getId())) {
+                return ENCRYPT;
+            }
+            if ("convertPath".equals(target.getId())) {
+                return CONVERT_PATH;
+            }
+            return NONE;
+        }
+    }
+
+    private final Template template;
+    private final long templateLastModified;
+    private final long templateSize;
+
+    /** 配置项名称 -> 第一个同名配置项的下标 */
+    private final Map<String, Integer> itemIndexes;
+    /** 每个配置项的目标点（与配置项顺序一致） */
+    private final List<List<CompiledTarget>> itemTargets;
+    /** 清理后的文件路径 -> 该文件中的目标点 */
+    private final Map<String, FileGroup> fileGroups;
+
+    private CompiledTemplate(Template template, long templateLastModified, long templateSize,
+                             Map<String, Integer> itemIndexes, List<List<CompiledTarget>> itemTargets,
+                             Map<String, FileGroup> fileGroups) {
+        this.template = template;
+        this.templateLastModified = templateLastModified;
+        this.templateSize = templateSize;
+        this.itemIndexes = itemIndexes;
+        this.itemTargets = itemTargets;
+        this.fileGroups = fileGroups;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template     模板（编译后不能再修改）
+     * @param templateFile 模板文件，用于判断编译结果对应的模板版本
+     */
+    static CompiledTemplate compile(Template template, File templateFile, PathResolver pathResolver) {
+        return compile(template, templateFile.lastModified(), templateFile.length(), pathResolver);
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template     模板（编译后不能再修改）
+     * @param lastModified 模板内容对应的文件修改时间
+     * @param size         模板内容对应的文件大小
+     */
+    static CompiledTemplate compile(Template template, long lastModified, long size, PathResolver pathResolver) {
+        Map<String, Integer> itemIndexes = new HashMap<>();
+        List<List<CompiledTarget>> itemTargets = new ArrayList<>();
+        Map<String, List<CompiledTarget>> targetsByFile = new LinkedHashMap<>();
+
+        List<ConfigItem> items = template.getItems() != null ? template.getItems() : Collections.emptyList();
+        for (int itemIndex = 0; itemIndex < items.size(); itemIndex++) {
+            ConfigItem item = items.get(itemIndex);
+            itemIndexes.putIfAbsent(item.getName(), itemIndex);
+
+            List<CompiledTarget> targets = new ArrayList<>();
+            if (item.getTargets() != null) {
+                for (FileTarget target : item.getTargets()) {
+                    String filePath = null;
+                    String pathError = null;
+                    try {
+                        filePath = pathResolver.cleanFilePath(target.getFilePath());
+                    } catch (Exception e) {
+                        pathError = e.getMessage();
+                    }
+                    CompiledTarget compiled = new CompiledTarget(itemIndex, item.getName(), target, filePath, pathError);
+                    targets.add(compiled);
+                    if (filePath != null) {
+                        targetsByFile.computeIfAbsent(filePath, k -> new ArrayList<>()).add(compiled);
+                    }
+                }
+            }
+            itemTargets.add(Collections.unmodifiableList(targets));
+        }
+
+        Map<String, FileGroup> fileGroups = new LinkedHashMap<>();
+        for (Map.Entry<String, List<CompiledTarget>> entry : targetsByFile.entrySet()) {
+            fileGroups.put(entry.getKey(), new FileGroup(entry.getKey(), entry.getValue()));
+        }
+
+        return new CompiledTemplate(template, lastModified, size, Collections.unmodifiableMap(itemIndexes),
+                Collections.unmodifiableList(itemTargets), Collections.unmodifiableMap(fileGroups));
+    }
+
+    public String getId() {
+        return template.getId();
+    }
+
+    public String getName() {
+        return template.getName();
+    }
+
+    /**
+     * 复制一份可修改的模板（用于填充当前值并返回给调用方）
+     */
+    public Template copyTemplate() {
+        return JsonUtil.getGson().fromJson(JsonUtil.getGson().toJson(template), Template.class);
+    }
+
+    /**
+     * 配置项数量
+     */
+    public int getItemCount() {
+        return itemTargets.size();
+    }
+
+    /**
+     * 按名称查找配置项下标（同名配置项取第一个），不存在时返回 -1
+     */
+    public int indexOf(String itemName) {
+        Integer index = itemIndexes.get(itemName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 指定配置项的目标点
+     */
+    public List<CompiledTarget> getTargets(int itemIndex) {
+        return itemTargets.get(itemIndex);
+    }
+
+    /**
+     * 目标点所在文件的分组，路径无法解析时返回 null
+     */
+    public FileGroup getFileGroup(CompiledTarget target) {
+        return target.filePath != null ? fileGroups.get(target.filePath) : null;
+    }
+
+    /**
+     * 所有目标文件（按首次出现顺序）
+     */
+    public Collection<FileGroup> getFileGroups() {
+        return fileGroups.values();
+    }
+
+    /**
+     * 编译时的模板文件版本（修改时间和大小）
+     */
+    public String getTemplateVersion() {
+        return templateLastModified + "-" + templateSize;
+    }
+
+    /**
+     * 模板文件是否仍是编译时的版本
+     */
+    boolean isCurrent(File templateFile) {
+        return templateFile.lastModified() == templateLastModified && templateFile.length() == templateSize;
+    }
+
+    /**
+     * 编译后的目标点
+     */
+    public static final class CompiledTarget {
+        private final int itemIndex;
+        private final String itemName;
+        private final FileTarget target;
+        private final String filePath;
+        private final String pathError;
+        private final ValueHandling valueHandling;
+        /** 在所属文件前缀匹配器中的模式编号 */
+        private int prefixIndex = -1;
+
+        CompiledTarget(int itemIndex, String itemName, FileTarget target, String filePath, String pathError) {
+            this.itemIndex = itemIndex;
+            this.itemName = itemName;
+            this.target = target;
+            this.filePath = filePath;
+            this.pathError = pathError;
+            this.valueHandling = ValueHandling.of(target);
+        }
+
+        public int getItemIndex() {
+            return itemIndex;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        public FileTarget getTarget() {
+            return target;
+        }
+
+        /**
+         * 清理后的文件路径，路径无法解析时为 null
+         */
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * 路径解析失败的原因
+         */
+        public String getPathError() {
+            return pathError;
+        }
+
+        public ValueHandling getValueHandling() {
+            return valueHandling;
+        }
+    }
+
+    /**
+     * 同一文件中的目标点
+     */
+    public static final class FileGroup {
+        private final String filePath;
+        private final List<CompiledTarget> targets;
+        private final PrefixMatcher prefixMatcher;
+
+        FileGroup(String filePath, List<CompiledTarget> targets) {
+            this.filePath = filePath;
+            this.targets = Collections.unmodifiableList(targets);
+            List<String> prefixes = new ArrayList<>(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                targets.get(i).prefixIndex = i;
+                prefixes.add(targets.get(i).target.getPrefix());
+            }
+            this.prefixMatcher = new PrefixMatcher(prefixes);
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public List<CompiledTarget> getTargets() {
+            return targets;
+        }
+
+        /**
+         * 扫描一行文本，返回其中出现的前缀（按目标点在本文件中的模式编号）
+         * 同一行上的多个目标点只需扫描一次
+         */
+        public BitSet matchPrefixes(String line) {
+            return prefixMatcher.match(line);
+        }
+
+        /**
+         * 目标点的前缀是否在 matchPrefixes 的结果中（没有前缀视为存在）
+         */
+        public static boolean hasPrefix(BitSet found, CompiledTarget target) {
+            String prefix = target.target.getPrefix();
+            return prefix == null || prefix.isEmpty() || found.get(target.prefixIndex);
+        }
+    }
+}
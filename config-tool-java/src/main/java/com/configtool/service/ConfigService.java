@@ -5,7 +5,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 配置应用服务
@@ -16,7 +25,9 @@ public class ConfigService {
     
     private final TemplateService templateService;
     private final FileProcessor fileProcessor;
+    
     private final NacosApiService nacosApiService;
+    private final TemplateStatusWatcher statusWatcher = TemplateStatusWatcher.getInstance();
     private final String appType; // 添加应用类型字段
 
     public ConfigService() {
@@ -32,129 +43,455 @@ public class ConfigService {
 
     /**
      * 检查模板中所有配置项的当前状态
+     * 已有状态快照时直接返回，快照由 TemplateStatusWatcher 随目标文件变化增量刷新
      */
     public TemplateWithStatus checkTemplateStatus(String templateId) {
         if (templateId == null || templateId.isEmpty()) {
             throw new RuntimeException("模板ID不能为空");
         }
         
-        // 获取模板
-        Template template = templateService.getTemplateById(templateId);
-        if (template == null) {
+        TemplateWithStatus snapshot = statusWatcher.getSnapshot(templateId);
+        if (snapshot != null) {
+            logger.debug("使用模板状态快照: {}", templateId);
+            return snapshot;
+        }
+        
+        // 获取编译后的模板
+        CompiledTemplate compiled = templateService.getCompiledTemplate(templateId);
+        if (compiled == null) {
             throw new RuntimeException("模板不存在: " + templateId);
         }
+        Template template = compiled.copyTemplate();
         
         logger.info("开始检查模板状态: {}", template.getName());
         
+        // 先开始监视目标目录，再读取文件，检查期间发生的变化不会遗漏
+        long sequence = statusWatcher.prepare(template);
+        
         Map<String, TemplateWithStatus.ConfigItemStatus> itemStatuses = new HashMap<>();
         
         // 检查每个配置项
-        if (template.getItems() != null) {
-            for (ConfigItem item : template.getItems()) {
-                TemplateWithStatus.ConfigItemStatus status = checkConfigItemStatus(item);
-                itemStatuses.put(item.getName(), status);
-            }
+        List<Integer> itemIndexes = new ArrayList<>();
+        for (int i = 0; i < compiled.getItemCount(); i++) {
+            itemIndexes.add(i);
+        }
+        List<TemplateWithStatus.ConfigItemStatus> statuses = checkConfigItems(compiled, template, itemIndexes);
+        for (int i = 0; i < statuses.size(); i++) {
+            itemStatuses.put(template.getItems().get(i).getName(), statuses.get(i));
         }
         
         logger.info("模板状态检查完成: {}, 配置项数: {}", template.getName(), itemStatuses.size());
         
-        return new TemplateWithStatus(template, itemStatuses);
+        return statusWatcher.publish(templateId, templateService.getTemplateFile(templateId),
+                new TemplateWithStatus(template, itemStatuses), sequence,
+                (snapshotTemplate, indexes) -> checkConfigItems(compiled, snapshotTemplate, indexes));
+    }
+
+    /**
+     * 获取模板状态增量
+     * 以每个目标文件的（修改时间, 大小, 内容校验值）作为文件版本，只重新检查并返回目标文件内容发生变化的配置项
+     *
+     * @param sinceVersion 上次返回的版本标识；为空、格式无效或模板已修改时返回完整状态
+     */
+    public TemplateStatusDelta getTemplateStatusDelta(String templateId, String sinceVersion) {
+        if (templateId == null || templateId.isEmpty()) {
+            throw new RuntimeException("模板ID不能为空");
+        }
+        
+        CompiledTemplate compiled = templateService.getCompiledTemplate(templateId);
+        if (compiled == null) {
+            throw new RuntimeException("模板不存在: " + templateId);
+        }
+        
+        List<CompiledTemplate.FileGroup> files = new ArrayList<>(compiled.getFileGroups());
+        String[] since = parseStatusVersion(sinceVersion, compiled, files.size());
+        if (since == null) {
+            // 状态可能来自快照（文件变化后要经过事件合并才刷新），文件版本取自快照中各目标点实际读取的版本
+            TemplateWithStatus status = checkTemplateStatus(templateId);
+            return TemplateStatusDelta.full(buildStatusVersion(compiled, statusFileVersions(compiled, files, status)), status);
+        }
+        
+        // 先记录文件版本，再读取状态：读取期间发生的变化会在下一次增量中返回
+        String[] versions = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            versions[i] = fileVersion(files.get(i));
+        }
+        
+        // 找出内容发生变化的文件及其中的配置项
+        Set<CompiledTemplate.FileGroup> changedFiles = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < files.size(); i++) {
+            if (!isSameFileContent(since[i], versions[i])) {
+                changedFiles.add(files.get(i));
+            }
+        }
+        List<Integer> itemIndexes = new ArrayList<>();
+        for (int i = 0; i < compiled.getItemCount(); i++) {
+            for (CompiledTemplate.CompiledTarget target : compiled.getTargets(i)) {
+                if (changedFiles.contains(compiled.getFileGroup(target))) {
+                    itemIndexes.add(i);
+                    break;
+                }
+            }
+        }
+        
+        List<TemplateStatusDelta.ItemDelta> changedItems = new ArrayList<>();
+        if (!itemIndexes.isEmpty()) {
+            Template template = compiled.copyTemplate();
+            List<TemplateWithStatus.ConfigItemStatus> statuses = checkConfigItems(compiled, template, itemIndexes);
+            List<Integer> timedOutItems = new ArrayList<>();
+            for (int i = 0; i < itemIndexes.size(); i++) {
+                int itemIndex = itemIndexes.get(i);
+                changedItems.add(new TemplateStatusDelta.ItemDelta(itemIndex, template.getItems().get(itemIndex), statuses.get(i)));
+                if ("TIMEOUT".equals(statuses.get(i).getStatus())) {
+                    timedOutItems.add(itemIndex);
+                }
+            }
+            markUnknownVersions(compiled, files, versions, timedOutItems);
+        }
+        
+        logger.debug("模板状态增量: {}, 变化文件 {} 个, 变化配置项 {} 个", compiled.getName(),
+                changedFiles.size(), changedItems.size());
+        return TemplateStatusDelta.changes(buildStatusVersion(compiled, versions), changedItems);
+    }
+
+    /**
+     * 目标文件版本：修改时间-大小-内容校验值，文件不存在或无法读取时为固定标记
+     */
+    private String fileVersion(CompiledTemplate.FileGroup group) {
+        File file = new File(group.getFilePath());
+        if (!file.exists()) {
+            return "missing";
+        }
+        try {
+            return fileVersion(fileProcessor.readFile(file));
+        } catch (Exception e) {
+            return "error";
+        }
+    }
+
+    private static String fileVersion(FileContentCache.CachedFile cachedFile) throws IOException {
+        return cachedFile.getLastModified() + "-" + cachedFile.getSize() + "-"
+                + Long.toHexString(cachedFile.getContentHash());
+    }
+
+    /**
+     * 从模板状态中取出各目标文件在检查时读取到的版本
+     * 没有记录（如检查超时）或同一文件的目标点读取到不同版本时记为未知，下次请求时重新检查
+     */
+    private static String[] statusFileVersions(CompiledTemplate compiled, List<CompiledTemplate.FileGroup> files,
+                                               TemplateWithStatus status) {
+        String[] versions = new String[files.size()];
+        for (int i = 0; i < compiled.getItemCount(); i++) {
+            TemplateWithStatus.ConfigItemStatus itemStatus =
+                    status.getItemStatuses().get(status.getTemplate().getItems().get(i).getName());
+            List<CompiledTemplate.CompiledTarget> targets = compiled.getTargets(i);
+            List<TemplateWithStatus.TargetStatus> targetStatuses = itemStatus != null ? itemStatus.getTargetStatuses() : null;
+            for (int t = 0; t < targets.size(); t++) {
+                int fileIndex = files.indexOf(compiled.getFileGroup(targets.get(t)));
+                if (fileIndex < 0) {
+                    continue;
+                }
+                // 同名配置项只保留最后一个的状态，目标点对不上时不使用
+                TemplateWithStatus.TargetStatus targetStatus = targetStatuses != null && targetStatuses.size() == targets.size()
+                        ? targetStatuses.get(t) : null;
+                String version = targetStatus != null
+                        && Objects.equals(targetStatus.getTargetId(), targets.get(t).getTarget().getId())
+                        ? targetStatus.getFileVersion() : null;
+                if (version == null || versions[fileIndex] != null && !versions[fileIndex].equals(version)) {
+                    version = "unknown";
+                }
+                if (!"unknown".equals(versions[fileIndex])) {
+                    versions[fileIndex] = version;
+                }
+            }
+        }
+        for (int i = 0; i < versions.length; i++) {
+            if (versions[i] == null) {
+                versions[i] = "unknown";
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * 文件内容是否相同：只比较大小和校验值，仅修改时间变化（如内容相同的重新保存）不视为变化
+     */
+    private static boolean isSameFileContent(String oldVersion, String newVersion) {
+        String[] oldParts = oldVersion.split("-");
+        String[] newParts = newVersion.split("-");
+        if (oldParts.length == 3 && newParts.length == 3) {
+            return oldParts[1].equals(newParts[1]) && oldParts[2].equals(newParts[2]);
+        }
+        return oldVersion.equals(newVersion);
     }
 
     /**
-     * 检查单个配置项的状态
+     * 检查超时的配置项所在文件的版本记为未知，下次请求时重新检查
      */
-    private TemplateWithStatus.ConfigItemStatus checkConfigItemStatus(ConfigItem configItem) {
-        if (configItem.getTargets() == null || configItem.getTargets().isEmpty()) {
-            return TemplateWithStatus.ConfigItemStatus.error("没有配置目标文件");
+    private static void markUnknownVersions(CompiledTemplate compiled, List<CompiledTemplate.FileGroup> files,
+                                            String[] versions, List<Integer> itemIndexes) {
+        for (int itemIndex : itemIndexes) {
+            for (CompiledTemplate.CompiledTarget target : compiled.getTargets(itemIndex)) {
+                int fileIndex = files.indexOf(compiled.getFileGroup(target));
+                if (fileIndex >= 0) {
+                    versions[fileIndex] = "unknown";
+                }
+            }
+        }
+    }
+
+    private static String buildStatusVersion(CompiledTemplate compiled, String[] versions) {
+        StringBuilder version = new StringBuilder(compiled.getTemplateVersion());
+        for (String fileVersion : versions) {
+            version.append('|').append(fileVersion);
+        }
+        return version.toString();
+    }
+
+    /**
+     * 解析版本标识，与当前模板版本不一致或格式无效时返回 null
+     */
+    private static String[] parseStatusVersion(String version, CompiledTemplate compiled, int fileCount) {
+        if (version == null || version.isEmpty()) {
+            return null;
+        }
+        String[] parts = version.split("\\|", -1);
+        if (parts.length != fileCount + 1 || !parts[0].equals(compiled.getTemplateVersion())) {
+            return null;
+        }
+        return Arrays.copyOfRange(parts, 1, parts.length);
+    }
+
+    /**
+     * 检查模板中的一组配置项：填充这些配置项的当前值，并返回对应的状态（与传入顺序一致）
+     * 目标点按文件分组并行读取，每个文件只读取一次；超过检查期限的目标点标记为 TIMEOUT，不阻塞其余结果
+     *
+     * @param compiled    编译后的模板
+     * @param template    与编译结果对应、需要填充当前值的模板
+     * @param itemIndexes 需要检查的配置项下标
+     */
+    private List<TemplateWithStatus.ConfigItemStatus> checkConfigItems(CompiledTemplate compiled, Template template,
+                                                                       List<Integer> itemIndexes) {
+        StatusCheckExecutor executor = StatusCheckExecutor.getInstance();
+        long deadline = System.currentTimeMillis() + executor.getTimeoutMillis();
+        
+        // 按文件分组
+        Map<CompiledTemplate.CompiledTarget, TargetCheck> checks = new IdentityHashMap<>();
+        Map<CompiledTemplate.FileGroup, List<CompiledTemplate.CompiledTarget>> targetsByFile = new LinkedHashMap<>();
+        for (int itemIndex : itemIndexes) {
+            for (CompiledTemplate.CompiledTarget target : compiled.getTargets(itemIndex)) {
+                CompiledTemplate.FileGroup group = compiled.getFileGroup(target);
+                if (group != null) {
+                    targetsByFile.computeIfAbsent(group, k -> new ArrayList<>()).add(target);
+                } else {
+                    checks.put(target, TargetCheck.failed(target.getTarget(), "处理文件路径失败: " + target.getPathError()));
+                }
+            }
         }
         
-        // 检查所有目标点
-        java.util.List<String> successValues = new java.util.ArrayList<>();
-        java.util.List<String> errorMessages = new java.util.ArrayList<>();
-        java.util.List<TemplateWithStatus.TargetStatus> targetStatuses = new java.util.ArrayList<>();
+        // 每个文件一个任务
+        Map<CompiledTemplate.FileGroup, Future<Map<CompiledTemplate.CompiledTarget, TargetCheck>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<CompiledTemplate.FileGroup, List<CompiledTemplate.CompiledTarget>> entry : targetsByFile.entrySet()) {
+            CompiledTemplate.FileGroup group = entry.getKey();
+            List<CompiledTemplate.CompiledTarget> targets = entry.getValue();
+            try {
+                // 同一文件的上一次检查仍在进行时，本次检查排在其后，仍按本次的期限等待
+                futures.put(group, executor.submit(group.getFilePath(), () -> checkFileTargets(group, targets)));
+            } catch (RejectedExecutionException e) {
+                putTimeouts(checks, targets, "检查任务过多，未能检查: " + group.getFilePath());
+            }
+        }
         
-        for (FileTarget target : configItem.getTargets()) {
-            String targetStatus = "ERROR";
-            String targetMessage = "";
-            String targetCurrentValue = "";
+        // 在期限内等待结果
+        for (Map.Entry<CompiledTemplate.FileGroup, Future<Map<CompiledTemplate.CompiledTarget, TargetCheck>>> entry : futures.entrySet()) {
+            String filePath = entry.getKey().getFilePath();
+            List<CompiledTemplate.CompiledTarget> targets = targetsByFile.get(entry.getKey());
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                checks.putAll(entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                // 尚未开始的检查不再执行
+                entry.getValue().cancel(false);
+                executor.recordTimeout(filePath);
+                putTimeouts(checks, targets, String.format("读取超时(%dms): %s", executor.getTimeoutMillis(), filePath));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(false);
+                putTimeouts(checks, targets, "检查被中断: " + filePath);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    putTimeouts(checks, targets, "检查任务过多，未能检查: " + filePath);
+                    continue;
+                }
+                for (CompiledTemplate.CompiledTarget target : targets) {
+                    checks.put(target, TargetCheck.failed(target.getTarget(), "读取文件失败: " + e.getCause().getMessage()));
+                }
+            }
+        }
+        
+        // 按配置项汇总
+        List<TemplateWithStatus.ConfigItemStatus> statuses = new ArrayList<>(itemIndexes.size());
+        for (int itemIndex : itemIndexes) {
+            ConfigItem item = template.getItems().get(itemIndex);
+            List<CompiledTemplate.CompiledTarget> targets = compiled.getTargets(itemIndex);
+            if (targets.isEmpty()) {
+                templateService.applyCurrentValues(item, Collections.emptyList());
+                statuses.add(TemplateWithStatus.ConfigItemStatus.error("没有配置目标文件"));
+                continue;
+            }
             
+            List<String> values = new ArrayList<>();
+            List<TemplateWithStatus.TargetStatus> targetStatuses = new ArrayList<>();
+            for (CompiledTemplate.CompiledTarget target : targets) {
+                TargetCheck check = checks.get(target);
+                values.add(check.value);
+                targetStatuses.add(check.status);
+            }
+            templateService.applyCurrentValues(item, values);
+            statuses.add(summarizeTargetStatuses(targetStatuses));
+        }
+        return statuses;
+    }
+
+    private void putTimeouts(Map<CompiledTemplate.CompiledTarget, TargetCheck> checks,
+                             List<CompiledTemplate.CompiledTarget> targets, String message) {
+        for (CompiledTemplate.CompiledTarget target : targets) {
+            checks.put(target, TargetCheck.timeout(target.getTarget(), message));
+        }
+    }
+
+    /**
+     * 检查同一文件中的目标点（在检查线程中执行）
+     * 文件只检查和读取一次，同一行上的目标点只扫描一次前缀
+     */
+    private Map<CompiledTemplate.CompiledTarget, TargetCheck> checkFileTargets(CompiledTemplate.FileGroup group,
+                                                                               List<CompiledTemplate.CompiledTarget> targets) {
+        Map<CompiledTemplate.CompiledTarget, TargetCheck> results = new IdentityHashMap<>();
+        String filePath = group.getFilePath();
+        File file = new File(filePath);
+        
+        // 检查文件是否存在
+        if (!file.exists()) {
+            for (CompiledTemplate.CompiledTarget target : targets) {
+                results.put(target, TargetCheck.failed(target.getTarget(), "文件不存在", "文件不存在: " + filePath));
+            }
+            return withFileVersion(results, "missing");
+        }
+        
+        // 检查文件是否可读
+        if (!file.canRead()) {
+            for (CompiledTemplate.CompiledTarget target : targets) {
+                results.put(target, TargetCheck.failed(target.getTarget(), "文件无法读取: " + filePath));
+            }
+            return withFileVersion(results, "error");
+        }
+        
+        FileContentCache.CachedFile cachedFile;
+        try {
+            cachedFile = fileProcessor.readFile(file);
+        } catch (Exception e) {
+            for (CompiledTemplate.CompiledTarget target : targets) {
+                results.put(target, TargetCheck.failed(target.getTarget(), "读取文件失败: " + e.getMessage()));
+            }
+            return withFileVersion(results, "error");
+        }
+        
+        Map<Integer, BitSet> prefixesByLine = new HashMap<>();
+        for (CompiledTemplate.CompiledTarget compiledTarget : targets) {
+            FileTarget target = compiledTarget.getTarget();
             try {
-                String filePath = fileProcessor.cleanFilePath(target.getFilePath());
-                File file = new File(filePath);
+                // 检查行号是否有效
+                int lineCount = cachedFile.getLineCount();
+                if (target.getLineNumber() < 1 || target.getLineNumber() > lineCount) {
+                    results.put(compiledTarget, TargetCheck.failed(target, "行号无效",
+                            String.format("行号无效: %d (文件共 %d 行)", target.getLineNumber(), lineCount)));
+                    continue;
+                }
                 
-                // 检查文件是否存在
-                if (!file.exists()) {
-                    targetMessage = "文件不存在: " + filePath;
-                    errorMessages.add(targetMessage);
-                } else if (!file.canRead()) {
-                    // 检查文件是否可读
-                    targetMessage = "文件无法读取: " + filePath;
-                    errorMessages.add(targetMessage);
-                } else {
-                    // 读取文件并检查行号
-                    try {
-                        java.nio.charset.Charset encoding = fileProcessor.detectFileEncoding(file);
-                        java.util.List<String> lines = org.apache.commons.io.FileUtils.readLines(file, encoding);
-                        
-                        // 检查行号是否有效
-                        if (target.getLineNumber() < 1 || target.getLineNumber() > lines.size()) {
-                            targetMessage = String.format("行号无效: %d (文件共 %d 行)", target.getLineNumber(), lines.size());
-                            errorMessages.add(targetMessage);
-                        } else {
-                            // 获取指定行的内容
-                            String line = lines.get(target.getLineNumber() - 1);
-                            String prefix = target.getPrefix();
-                            String suffix = target.getSuffix();
-                            
-                            // 检查前缀是否存在
-                            if (prefix != null && !prefix.isEmpty() && !line.contains(prefix)) {
-                                targetMessage = String.format("第 %d 行未找到前缀: %s", target.getLineNumber(), prefix);
-                                errorMessages.add(targetMessage);
-                            } else {
-                                // 提取当前值 - 成功
-                                targetCurrentValue = extractCurrentValue(line, prefix, suffix);
-                                successValues.add(targetCurrentValue);
-                                targetStatus = "SUCCESS";
-                                targetMessage = "读取成功";
-                            }
-                        }
-                        
-                    } catch (Exception e) {
-                        targetMessage = "读取文件失败: " + e.getMessage();
-                        errorMessages.add(targetMessage);
-                    }
+                // 检查前缀是否存在
+                String line = cachedFile.getLine(target.getLineNumber());
+                BitSet found = prefixesByLine.computeIfAbsent(target.getLineNumber(), k -> group.matchPrefixes(line));
+                if (!CompiledTemplate.FileGroup.hasPrefix(found, compiledTarget)) {
+                    results.put(compiledTarget, TargetCheck.failed(target, "前缀未找到",
+                            String.format("第 %d 行未找到前缀: %s", target.getLineNumber(), target.getPrefix())));
+                    continue;
                 }
                 
+                // 提取当前值 - 成功
+                String value = fileProcessor.extractCurrentValue(cachedFile, target);
+                String currentValue = extractCurrentValue(line, target.getPrefix(), target.getSuffix());
+                results.put(compiledTarget, new TargetCheck(value,
+                        newTargetStatus(target, "SUCCESS", "读取成功", currentValue)));
             } catch (Exception e) {
-                targetMessage = "处理文件路径失败: " + e.getMessage();
-                errorMessages.add(targetMessage);
+                results.put(compiledTarget, TargetCheck.failed(target, "读取文件失败: " + e.getMessage()));
             }
-            
-            // 创建目标点状态
-            TemplateWithStatus.TargetStatus ts = new TemplateWithStatus.TargetStatus(
-                target.getId(),
-                target.getFilePath(),
-                target.getLineNumber(),
-                target.getPrefix(),
-                target.getSuffix(),
-                targetStatus,
-                targetMessage,
-                targetCurrentValue
-            );
-            targetStatuses.add(ts);
-        }
-        
-        // 判断整体状态 - 简化为只有SUCCESS和ERROR两种状态
+        }
+        String version;
+        try {
+            version = fileVersion(cachedFile);
+        } catch (IOException e) {
+            version = "error";
+        }
+        return withFileVersion(results, version);
+    }
+
+    /**
+     * 记录检查时读取到的文件版本，状态增量以此作为返回状态对应的版本
+     */
+    private static Map<CompiledTemplate.CompiledTarget, TargetCheck> withFileVersion(
+            Map<CompiledTemplate.CompiledTarget, TargetCheck> results, String version) {
+        for (TargetCheck check : results.values()) {
+            check.status.setFileVersion(version);
+        }
+        return results;
+    }
+
+    private static TemplateWithStatus.TargetStatus newTargetStatus(FileTarget target, String status,
+                                                                   String message, String currentValue) {
+        return new TemplateWithStatus.TargetStatus(
+            target.getId(),
+            target.getFilePath(),
+            target.getLineNumber(),
+            target.getPrefix(),
+            target.getSuffix(),
+            status,
+            message,
+            currentValue
+        );
+    }
+
+    /**
+     * 根据目标点状态汇总配置项状态
+     */
+    private TemplateWithStatus.ConfigItemStatus summarizeTargetStatuses(List<TemplateWithStatus.TargetStatus> targetStatuses) {
+        List<String> successValues = new ArrayList<>();
+        List<String> errorMessages = new ArrayList<>();
+        List<String> timeoutMessages = new ArrayList<>();
+        for (TemplateWithStatus.TargetStatus ts : targetStatuses) {
+            if ("SUCCESS".equals(ts.getStatus())) {
+                successValues.add(ts.getCurrentValue());
+            } else if ("TIMEOUT".equals(ts.getStatus())) {
+                timeoutMessages.add(ts.getMessage());
+            } else {
+                errorMessages.add(ts.getMessage());
+            }
+        }
+        
+        // 判断整体状态 - 所有目标点成功为SUCCESS，有失败为ERROR，只有超时为TIMEOUT
         TemplateWithStatus.ConfigItemStatus status;
-        if (errorMessages.isEmpty()) {
+        if (errorMessages.isEmpty() && timeoutMessages.isEmpty()) {
             // 所有目标点都成功
             String firstValue = successValues.get(0);
             // 不管值是否一致，只要所有目标点都成功就是SUCCESS
             status = TemplateWithStatus.ConfigItemStatus.ok(firstValue);
+        } else if (errorMessages.isEmpty()) {
+            // 没有失败，但有目标点未能在期限内完成检查
+            String currentValue = successValues.isEmpty() ? "" : successValues.get(0);
+            status = TemplateWithStatus.ConfigItemStatus.timeout(
+                    "部分目标点检查超时: " + String.join("; ", timeoutMessages), currentValue);
         } else {
             // 有任何一个目标点失败就是ERROR
-            String currentValue = successValues.isEmpty() ? "" : successValues.get(0);
+            errorMessages.addAll(timeoutMessages);
             String errorDetail = String.join("; ", errorMessages);
             status = TemplateWithStatus.ConfigItemStatus.error("部分目标点失败: " + errorDetail);
         }
@@ -206,44 +543,98 @@ public class ConfigService {
             throw new RuntimeException("没有需要更改的配置项");
         }
         
-        // 获取模板
-        Template template = templateService.getTemplateById(templateId);
-        if (template == null) {
+        // 获取编译后的模板
+        CompiledTemplate compiled = templateService.getCompiledTemplate(templateId);
+        if (compiled == null) {
             throw new RuntimeException("模板不存在: " + templateId);
         }
         
-        logger.info("开始预检查配置应用，模板: {}, 配置项数: {}", template.getName(), values.size());
+        logger.info("开始预检查配置应用，模板: {}, 配置项数: {}", compiled.getName(), values.size());
         
+        long startTime = System.currentTimeMillis();
         PreCheckResult result = new PreCheckResult();
         
-        // 遍历需要更改的配置项
+        // 收集需要检查的目标点，并按文件分组
+        List<CompiledTemplate.CompiledTarget> targets = new ArrayList<>();
+        List<PreCheckIssue> pathIssues = new ArrayList<>();
+        Map<CompiledTemplate.FileGroup, List<Integer>> targetsByFile = new LinkedHashMap<>();
         for (Map.Entry<String, String> entry : values.entrySet()) {
             String itemName = entry.getKey();
-            String newValue = entry.getValue();
             
             // 在模板中查找对应的配置项
-            ConfigItem configItem = findConfigItemByName(template, itemName);
-            if (configItem == null) {
+            int itemIndex = compiled.indexOf(itemName);
+            if (itemIndex < 0) {
                 logger.warn("配置项不存在: {}", itemName);
                 continue;
             }
             
-            // 检查所有目标点
-            if (configItem.getTargets() != null) {
-                for (FileTarget target : configItem.getTargets()) {
-                    PreCheckIssue issue = checkFileTarget(itemName, target);
-                    if (issue != null) {
-                        result.addIssue(issue);
-                    } else {
-                        result.addValidTarget();
-                    }
+            for (CompiledTemplate.CompiledTarget target : compiled.getTargets(itemIndex)) {
+                int index = targets.size();
+                targets.add(target);
+                CompiledTemplate.FileGroup group = compiled.getFileGroup(target);
+                if (group != null) {
+                    targetsByFile.computeIfAbsent(group, k -> new ArrayList<>()).add(index);
+                    pathIssues.add(null);
+                } else {
+                    pathIssues.add(PreCheckIssue.fileNotReadable(itemName, target.getTarget().getFilePath(),
+                            target.getPathError()));
                 }
             }
         }
         
+        // 每个文件只读取一次，不同文件并行检查
+        PreCheckIssue[] issues = pathIssues.toArray(new PreCheckIssue[0]);
+        List<Runnable> inlineChecks = new ArrayList<>();
+        Map<Future<?>, Runnable> futures = new LinkedHashMap<>();
+        for (Map.Entry<CompiledTemplate.FileGroup, List<Integer>> entry : targetsByFile.entrySet()) {
+            CompiledTemplate.FileGroup group = entry.getKey();
+            String filePath = group.getFilePath();
+            List<Integer> indexes = entry.getValue();
+            Runnable check = () -> preCheckFile(group, indexes, targets, issues);
+            try {
+                // 同一文件的状态检查仍在进行时排在其后执行
+                futures.put(StatusCheckExecutor.getInstance().submit(filePath, () -> {
+                    check.run();
+                    return null;
+                }), check);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满时在当前线程检查
+                logger.debug("检查任务过多，在当前线程预检查: {}", filePath);
+                inlineChecks.add(check);
+            }
+        }
+        for (Runnable check : inlineChecks) {
+            check.run();
+        }
+        for (Map.Entry<Future<?>, Runnable> entry : futures.entrySet()) {
+            try {
+                entry.getKey().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("预检查被中断");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    entry.getValue().run();
+                    continue;
+                }
+                throw new RuntimeException("预检查失败: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        
+        // 按原有顺序汇总
+        for (PreCheckIssue issue : issues) {
+            if (issue != null) {
+                result.addIssue(issue);
+            } else {
+                result.addValidTarget();
+            }
+        }
+        
         result.setTotalTargets(result.getValidCount() + result.getInvalidCount());
-        logger.info("预检查完成：总计 {} 个目标，{} 个有效，{} 个有问题", 
-                result.getTotalTargets(), result.getValidCount(), result.getInvalidCount());
+        result.setCheckTimeMillis(System.currentTimeMillis() - startTime);
+        logger.info("预检查完成：总计 {} 个目标（{} 个文件），{} 个有效，{} 个有问题，耗时 {}ms", 
+                result.getTotalTargets(), targetsByFile.size(), result.getValidCount(), result.getInvalidCount(),
+                result.getCheckTimeMillis());
         
         return result;
     }
@@ -263,48 +654,76 @@ public class ConfigService {
             throw new RuntimeException("没有需要更改的配置项");
         }
         
-        // 获取模板
-        Template template = templateService.getTemplateById(templateId);
-        if (template == null) {
+        // 获取编译后的模板
+        CompiledTemplate compiled = templateService.getCompiledTemplate(templateId);
+        if (compiled == null) {
             throw new RuntimeException("模板不存在: " + templateId);
         }
         
-        logger.info("开始应用配置更改，模板: {}, 配置项数: {}", template.getName(), values.size());
+        logger.info("开始应用配置更改，模板: {}, 配置项数: {}", compiled.getName(), values.size());
         
         ApplyResult result = new ApplyResult();
         
-        // 遍历需要更改的配置项
+        // 收集所有需要应用的更改，并按文件分组
+        List<PendingApply> pendingApplies = new ArrayList<>();
+        Map<String, List<FileProcessor.PendingChange>> changesByFile = new LinkedHashMap<>();
+        // 文件键 -> 分组使用的路径：大小写或 . 和 .. 不同但指向同一文件的目标点归入同一组
+        Map<String, String> pathsByKey = new HashMap<>();
         for (Map.Entry<String, String> entry : values.entrySet()) {
             String itemName = entry.getKey();
             String newValue = entry.getValue();
             
             // 在模板中查找对应的配置项
-            ConfigItem configItem = findConfigItemByName(template, itemName);
-            if (configItem == null) {
+            int itemIndex = compiled.indexOf(itemName);
+            if (itemIndex < 0) {
                 logger.warn("配置项不存在: {}", itemName);
                 continue;
             }
             
             // 应用到所有目标点
-            if (configItem.getTargets() != null) {
-                for (FileTarget target : configItem.getTargets()) {
-                    try {
-                        fileProcessor.applyChange(target, newValue);
-                        TargetResult targetResult = TargetResult.success(itemName, target.getFilePath(), 
-                                target.getLineNumber(), newValue);
-                        result.addResult(targetResult);
-                        logger.debug("成功更新配置项 {} 到文件 {} 第 {} 行", 
-                                itemName, target.getFilePath(), target.getLineNumber());
-                    } catch (Exception e) {
-                        TargetResult targetResult = TargetResult.failure(itemName, target.getFilePath(), 
-                                target.getLineNumber(), newValue, e.getMessage());
-                        result.addResult(targetResult);
-                        logger.error("更新配置项失败: {} -> {}", itemName, target.getFilePath(), e);
-                    }
+            for (CompiledTemplate.CompiledTarget target : compiled.getTargets(itemIndex)) {
+                FileProcessor.PendingChange change = new FileProcessor.PendingChange(target, newValue);
+                pendingApplies.add(new PendingApply(itemName, change));
+                if (target.getFilePath() != null) {
+                    String filePath = pathsByKey.computeIfAbsent(FileProcessor.fileKey(target.getFilePath()),
+                            k -> target.getFilePath());
+                    changesByFile.computeIfAbsent(filePath, k -> new ArrayList<>()).add(change);
+                } else {
+                    change.fail(target.getPathError());
                 }
             }
         }
         
+        // 每个文件只读写一次，所有文件统一提交
+        fileProcessor.applyChanges(changesByFile);
+        
+        // 立即刷新受影响的状态快照，不必等待文件事件
+        List<File> changedFiles = new ArrayList<>();
+        for (String cleanedPath : changesByFile.keySet()) {
+            changedFiles.add(new File(cleanedPath));
+        }
+        statusWatcher.filesChanged(changedFiles);
+        
+        // 按原有顺序汇总每个目标点的结果
+        for (PendingApply pending : pendingApplies) {
+            String itemName = pending.itemName;
+            FileTarget target = pending.change.getTarget();
+            String newValue = pending.change.getNewValue();
+            if (pending.change.isSuccess()) {
+                TargetResult targetResult = TargetResult.success(itemName, target.getFilePath(), 
+                        target.getLineNumber(), newValue);
+                result.addResult(targetResult);
+                logger.debug("成功更新配置项 {} 到文件 {} 第 {} 行", 
+                        itemName, target.getFilePath(), target.getLineNumber());
+            } else {
+                TargetResult targetResult = TargetResult.failure(itemName, target.getFilePath(), 
+                        target.getLineNumber(), newValue, pending.change.getErrorMessage());
+                result.addResult(targetResult);
+                logger.error("更新配置项失败: {} -> {}: {}", itemName, target.getFilePath(), 
+                        pending.change.getErrorMessage());
+            }
+        }
+        
         result.setTotalTargets(result.getSuccessCount() + result.getFailureCount());
         logger.info("配置更改应用完成：总计 {} 个目标，{} 个成功，{} 个失败", 
                 result.getTotalTargets(), result.getSuccessCount(), result.getFailureCount());
@@ -318,66 +737,66 @@ public class ConfigService {
     }
 
     /**
-     * 检查文件目标点是否有效
+     * 预检查同一文件中的目标点：文件只检查和读取一次，逐个校验行号和前缀
+     * 结果写入 issues 中对应位置，检查通过的目标点为 null
      */
-    private PreCheckIssue checkFileTarget(String configItemName, FileTarget target) {
-        try {
-            String filePath = fileProcessor.cleanFilePath(target.getFilePath());
-            File file = new File(filePath);
-            
-            // 检查文件是否存在
-            if (!file.exists()) {
-                return PreCheckIssue.fileNotFound(configItemName, filePath);
+    private void preCheckFile(CompiledTemplate.FileGroup group, List<Integer> indexes,
+                              List<CompiledTemplate.CompiledTarget> targets, PreCheckIssue[] issues) {
+        String filePath = group.getFilePath();
+        File file = new File(filePath);
+        
+        // 检查文件是否存在
+        if (!file.exists()) {
+            for (int index : indexes) {
+                issues[index] = PreCheckIssue.fileNotFound(targets.get(index).getItemName(), filePath);
             }
-            
-            // 检查文件是否可读
-            if (!file.canRead()) {
-                return PreCheckIssue.fileNotReadable(configItemName, filePath, "没有读取权限");
+            return;
+        }
+        
+        // 检查文件是否可读
+        if (!file.canRead()) {
+            for (int index : indexes) {
+                issues[index] = PreCheckIssue.fileNotReadable(targets.get(index).getItemName(), filePath, "没有读取权限");
+            }
+            return;
+        }
+        
+        FileContentCache.CachedFile cachedFile;
+        try {
+            cachedFile = fileProcessor.readFile(file);
+        } catch (Exception e) {
+            for (int index : indexes) {
+                issues[index] = PreCheckIssue.fileNotReadable(targets.get(index).getItemName(), filePath, e.getMessage());
             }
+            return;
+        }
+        
+        // 检查行号和前缀，同一行上的目标点只扫描一次前缀
+        Map<Integer, BitSet> prefixesByLine = new HashMap<>();
+        for (int index : indexes) {
+            String configItemName = targets.get(index).getItemName();
+            FileTarget target = targets.get(index).getTarget();
             
-            // 检查行号和前缀
             try {
-                java.nio.charset.Charset encoding = fileProcessor.detectFileEncoding(file);
-                java.util.List<String> lines = org.apache.commons.io.FileUtils.readLines(file, encoding);
-                
                 // 检查行号是否有效
-                if (target.getLineNumber() < 1 || target.getLineNumber() > lines.size()) {
-                    return PreCheckIssue.invalidLineNumber(configItemName, filePath, target.getLineNumber());
-                    }
+                if (target.getLineNumber() < 1 || target.getLineNumber() > cachedFile.getLineCount()) {
+                    issues[index] = PreCheckIssue.invalidLineNumber(configItemName, filePath, target.getLineNumber());
+                    continue;
+                }
                 
                 // 检查前缀是否存在
-                String line = lines.get(target.getLineNumber() - 1);
-                String prefix = target.getPrefix();
-                if (prefix != null && !prefix.isEmpty() && !line.contains(prefix)) {
-                    return PreCheckIssue.prefixNotFound(configItemName, filePath, target.getLineNumber(), prefix);
+                String line = cachedFile.getLine(target.getLineNumber());
+                BitSet found = prefixesByLine.computeIfAbsent(target.getLineNumber(), k -> group.matchPrefixes(line));
+                if (!CompiledTemplate.FileGroup.hasPrefix(found, targets.get(index))) {
+                    issues[index] = PreCheckIssue.prefixNotFound(configItemName, filePath, target.getLineNumber(),
+                            target.getPrefix());
                 }
-                
-                // 检查通过
-                return null;
-                
             } catch (Exception e) {
-                return PreCheckIssue.fileNotReadable(configItemName, filePath, e.getMessage());
+                issues[index] = PreCheckIssue.fileNotReadable(configItemName, filePath, e.getMessage());
             }
-            
-        } catch (Exception e) {
-            return PreCheckIssue.fileNotReadable(configItemName, target.getFilePath(), e.getMessage());
         }
     }
 
-    /**
-     * 根据名称查找配置项
-     */
-    private ConfigItem findConfigItemByName(Template template, String itemName) {
-        if (template.getItems() == null) {
-            return null;
-        }
-        
-        return template.getItems().stream()
-                .filter(item -> itemName.equals(item.getName()))
-                .findFirst()
-                .orElse(null);
-    }
-    
     /**
      * 同步数据库配置到Nacos
      */
@@ -400,23 +819,18 @@ public class ConfigService {
             
             logger.info("检测到数据库配置变化: {}", databaseChanges.keySet());
             
-            // 检查Nacos服务是否可用
-            if (!nacosApiService.isNacosAvailable()) {
-                logger.warn("Nacos服务不可用，跳过配置同步");
-                return;
-            }
-            
-            // 根据项目类型决定同步目标，而不是数据库类型
-            logger.info("当前项目类型: {}", appType);
+            // Nacos可用性检查、读取和发布都在后台同步队列中进行，不阻塞配置应用
+            // 根据项目类型决定同步目标（nacos.{项目}.targets），而不是数据库类型
+            logger.info("当前项目类型: {}, 同步目标: {}", appType, nacosApiService.getSyncTargets(appType));
             if ("kmvue".equals(appType)) {
-                // KMVue项目 - 同步到kmvue-commonConfig.yml
+                // KMVue项目 - 默认同步到kmvue-commonConfig.yml
                 syncToKmvueConfig(databaseChanges, result);
             } else {
-                // DFM项目 - 同步到dfmcloud-commonConfig.yml
+                // DFM项目 - 默认同步到dfmcloud-commonConfig.yml
                 syncToDfmcloudConfig(databaseChanges, result);
             }
             
-            logger.info("数据库配置同步到Nacos完成");
+            logger.info("数据库配置Nacos同步已完成或已提交后台");
             
         } catch (Exception e) {
             logger.error("同步数据库配置到Nacos失败", e);
@@ -444,13 +858,51 @@ public class ConfigService {
         return databaseChanges;
     }
     
+    /**
+     * 把数据库配置提交到后台队列，发布到当前项目的所有同步目标
+     * 不等待发布结果：已完成的目标（如提交即失败）直接记录结果，其余记录为已提交，
+     * 发布结果和耗时通过同步队列状态（syncQueue）查看
+     */
+    private void syncToTargets(String label, String url, String username, String password,
+                               String driverClassName, ApplyResult result) {
+        List<NacosSyncTarget> targets = nacosApiService.getSyncTargets(appType);
+        Map<NacosSyncTarget, CompletableFuture<NacosSyncQueue.SyncResult>> submitted = new LinkedHashMap<>();
+        for (NacosSyncTarget target : targets) {
+            // 本地快照显示配置已是目标内容时不再发布
+            if (Boolean.TRUE.equals(nacosApiService.isDatabaseConfigUnchanged(
+                    target, url, username, password, driverClassName))) {
+                logger.info("{}配置未变化，跳过Nacos发布: {}", label, target);
+                result.addNacosResult(String.format("%s配置 %s: 未变化，已跳过发布", label, target));
+                continue;
+            }
+            submitted.put(target, NacosSyncQueue.getInstance().submitDatabaseConfig(
+                target, url, username, password, driverClassName));
+        }
+        
+        for (Map.Entry<NacosSyncTarget, CompletableFuture<NacosSyncQueue.SyncResult>> entry : submitted.entrySet()) {
+            NacosSyncQueue.SyncResult syncResult = null;
+            try {
+                // 不阻塞应用配置，仍在同步或等待重试时返回 null
+                syncResult = entry.getValue().getNow(null);
+            } catch (CompletionException | CancellationException e) {
+                logger.error("Nacos同步任务失败: {}", entry.getKey(), e);
+            }
+            if (syncResult == null) {
+                result.addNacosResult(String.format("%s配置 %s: 已提交后台同步", label, entry.getKey()));
+            } else {
+                result.addNacosResult(String.format("%s配置 %s: %s（%d ms）", label, entry.getKey(),
+                    syncResult.getMessage(), syncResult.getLatencyMillis()));
+            }
+        }
+    }
+    
     /**
      * 同步到KMVue项目配置
      */
     private void syncToKmvueConfig(Map<String, String> databaseChanges, ApplyResult result) {
         try {
             logger.info("开始同步KMVue配置到Nacos");
-            logger.info("数据库配置变化: {}", databaseChanges);
+            logger.info("数据库配置变化: {}", databaseChanges.keySet());
             
             // 根据数据库类型构造相应的数据库配置
             String dbType = databaseChanges.get("数据库类型");
@@ -473,23 +925,7 @@ public class ConfigService {
             logger.info("构造的数据库配置 - URL: {}, Username: {}, Password: [隐藏], Driver: {}", 
                 url, username, driverClassName);
             
-            // 同步到Nacos
-            boolean success = nacosApiService.updateDatabaseConfig(
-                "kmvue-commonConfig.yml", 
-                "DEFAULT_GROUP", 
-                url, 
-                username, 
-                password, 
-                driverClassName
-            );
-            
-            if (success) {
-                logger.info("KMVue数据库配置同步到Nacos成功");
-                result.addNacosResult("KMVue配置同步成功");
-            } else {
-                logger.warn("KMVue数据库配置同步到Nacos失败");
-                result.addNacosResult("KMVue配置同步失败");
-            }
+            syncToTargets("KMVue", url, username, password, driverClassName, result);
             
         } catch (Exception e) {
             logger.error("同步KMVue配置到Nacos失败", e);
@@ -503,7 +939,7 @@ public class ConfigService {
     private void syncToDfmcloudConfig(Map<String, String> databaseChanges, ApplyResult result) {
         try {
             logger.info("开始同步DFMCloud配置到Nacos");
-            logger.info("数据库配置变化: {}", databaseChanges);
+            logger.info("数据库配置变化: {}", databaseChanges.keySet());
             
             // 根据数据库类型构造相应的数据库配置
             String dbType = databaseChanges.get("数据库类型");
@@ -526,23 +962,7 @@ public class ConfigService {
             logger.info("构造的数据库配置 - URL: {}, Username: {}, Password: [隐藏], Driver: {}", 
                 url, username, driverClassName);
             
-            // 同步到Nacos
-            boolean success = nacosApiService.updateDatabaseConfig(
-                "dfmcloud-commonConfig.yml", 
-                "DEFAULT_GROUP", 
-                url, 
-                username, 
-                password, 
-                driverClassName
-            );
-            
-            if (success) {
-                logger.info("DFMCloud数据库配置同步到Nacos成功");
-                result.addNacosResult("DFMCloud配置同步成功");
-            } else {
-                logger.warn("DFMCloud数据库配置同步到Nacos失败");
-                result.addNacosResult("DFMCloud配置同步失败");
-            }
+            syncToTargets("DFMCloud", url, username, password, driverClassName, result);
             
         } catch (Exception e) {
             logger.error("同步DFMCloud配置到Nacos失败", e);
@@ -591,4 +1011,43 @@ public class ConfigService {
         return String.format("jdbc:sqlserver://%s:%s;DatabaseName=%s", 
             address, port, databaseName);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 待应用更改及其所属配置项
+     */
+    private static class PendingApply {
+        private final String itemName;
+        private final FileProcessor.PendingChange change;
+        
+        PendingApply(String itemName, FileProcessor.PendingChange change) {
+            this.itemName = itemName;
+            this.change = change;
+        }
+    }
+
+    /**
+     * 单个目标点的检查结果
+     */
+    private static class TargetCheck {
+        /** 配置项显示用的当前值（或错误信息） */
+        final String value;
+        final TemplateWithStatus.TargetStatus status;
+
+        TargetCheck(String value, TemplateWithStatus.TargetStatus status) {
+            this.value = value;
+            this.status = status;
+        }
+
+        static TargetCheck failed(FileTarget target, String message) {
+            return failed(target, "读取失败", message);
+        }
+
+        static TargetCheck failed(FileTarget target, String value, String message) {
+            return new TargetCheck(value, newTargetStatus(target, "ERROR", message, ""));
+        }
+
+        static TargetCheck timeout(FileTarget target, String message) {
+            return new TargetCheck("读取超时", newTargetStatus(target, "TIMEOUT", message, ""));
+        }
+    }
+}
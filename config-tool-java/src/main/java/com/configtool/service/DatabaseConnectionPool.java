@@ -0,0 +1,288 @@
+package com.configtool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库测试连接的预热池
+ * 按 (url, 用户名, 密码) 的哈希保存已验证的空闲连接，反复测试同一组设置时跳过TCP连接和登录握手。
+ * 空闲超过 idleTimeout 或创建超过 TTL 的连接由后台线程关闭；应用退出时关闭全部连接
+ *
+ * 可通过系统属性调整：
+ * configtool.dbPool.idleTimeoutMillis 空闲连接保留时间（毫秒）
+ * configtool.dbPool.ttlMillis         连接最长使用时间（毫秒）
+ * configtool.dbPool.maxIdle           空闲连接总数上限
+ */
+public class DatabaseConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseConnectionPool.class);
+
+    /** 每组设置最多保留的空闲连接数（测试按顺序执行，一个即可） */
+    private static final int MAX_IDLE_PER_KEY = 1;
+
+    private static final long EVICT_INTERVAL_MILLIS = 15000;
+
+    private static final DatabaseConnectionPool INSTANCE = new DatabaseConnectionPool(
+            Long.getLong("configtool.dbPool.idleTimeoutMillis", 60000L),
+            Long.getLong("configtool.dbPool.ttlMillis", 300000L),
+            Integer.getInteger("configtool.dbPool.maxIdle", 4));
+
+    private final long idleTimeoutMillis;
+    private final long ttlMillis;
+    private final int maxIdle;
+
+    /** 设置哈希 -> 空闲连接；按最近归还的顺序排列，超出总数上限时关闭最久未用的 */
+    private final LinkedHashMap<String, Deque<PooledConnection>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+    private boolean closed;
+    private ScheduledExecutorService evictor;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    DatabaseConnectionPool(long idleTimeoutMillis, long ttlMillis, int maxIdle) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.ttlMillis = ttlMillis;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * 获取进程内共享的连接池实例
+     */
+    public static DatabaseConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 计算连接设置的键（不保存明文密码）
+     */
+    public static String key(String url, String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(url).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(username).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 取出一个未过期的空闲连接，调用方负责验证
+     *
+     * @return 空闲连接；没有时返回 null
+     */
+    public PooledConnection borrow(String key) {
+        List<Connection> expired = new ArrayList<>();
+        PooledConnection borrowed = null;
+        synchronized (this) {
+            Deque<PooledConnection> connections = idle.get(key);
+            long now = System.currentTimeMillis();
+            while (connections != null && !connections.isEmpty() && borrowed == null) {
+                PooledConnection pooled = connections.pollFirst();
+                idleCount--;
+                if (isExpired(pooled, now)) {
+                    expired.add(pooled.connection);
+                } else {
+                    borrowed = pooled;
+                }
+            }
+            if (connections != null && connections.isEmpty()) {
+                idle.remove(key);
+            }
+        }
+        evict(expired);
+        (borrowed != null ? hitCount : missCount).incrementAndGet();
+        return borrowed;
+    }
+
+    /**
+     * 归还已验证可用的连接；连接池已关闭或已满时直接关闭
+     *
+     * @param createdAt 连接的创建时间，用于TTL判断
+     */
+    public void release(String key, Connection connection, long createdAt) {
+        List<Connection> overflow = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                overflow.add(connection);
+            } else {
+                Deque<PooledConnection> connections = idle.computeIfAbsent(key, k -> new ArrayDeque<>());
+                connections.addFirst(new PooledConnection(connection, createdAt));
+                idleCount++;
+                while (connections.size() > MAX_IDLE_PER_KEY) {
+                    overflow.add(connections.pollLast().connection);
+                    idleCount--;
+                }
+                // 总数超限时关闭最久未用的一组
+                Iterator<Map.Entry<String, Deque<PooledConnection>>> iterator = idle.entrySet().iterator();
+                while (idleCount > maxIdle && iterator.hasNext()) {
+                    Map.Entry<String, Deque<PooledConnection>> entry = iterator.next();
+                    if (entry.getKey().equals(key)) {
+                        continue;
+                    }
+                    for (PooledConnection pooled : entry.getValue()) {
+                        overflow.add(pooled.connection);
+                        idleCount--;
+                    }
+                    iterator.remove();
+                }
+                startEvictor();
+            }
+        }
+        evict(overflow);
+    }
+
+    /**
+     * 关闭空闲超时或超过TTL的连接
+     */
+    void evictExpired() {
+        List<Connection> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Deque<PooledConnection>> groups = idle.values().iterator();
+            while (groups.hasNext()) {
+                Deque<PooledConnection> connections = groups.next();
+                Iterator<PooledConnection> iterator = connections.iterator();
+                while (iterator.hasNext()) {
+                    PooledConnection pooled = iterator.next();
+                    if (isExpired(pooled, now)) {
+                        expired.add(pooled.connection);
+                        iterator.remove();
+                        idleCount--;
+                    }
+                }
+                if (connections.isEmpty()) {
+                    groups.remove();
+                }
+            }
+        }
+        if (!expired.isEmpty()) {
+            logger.debug("关闭过期的数据库测试连接: {} 个", expired.size());
+            evict(expired);
+        }
+    }
+
+    /**
+     * 应用退出时关闭全部空闲连接
+     */
+    public void shutdown() {
+        List<Connection> connections = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Deque<PooledConnection> group : idle.values()) {
+                for (PooledConnection pooled : group) {
+                    connections.add(pooled.connection);
+                }
+            }
+            idle.clear();
+            idleCount = 0;
+            if (evictor != null) {
+                evictor.shutdownNow();
+            }
+        }
+        if (!connections.isEmpty()) {
+            logger.info("关闭数据库测试连接: {} 个", connections.size());
+        }
+        for (Connection connection : connections) {
+            close(connection);
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("idleConnections", idleCount);
+        stats.put("hitCount", hitCount.get());
+        stats.put("missCount", missCount.get());
+        stats.put("evictedCount", evictedCount.get());
+        stats.put("idleTimeoutMillis", idleTimeoutMillis);
+        stats.put("ttlMillis", ttlMillis);
+        return stats;
+    }
+
+    /**
+     * 第一次归还连接时启动回收线程（调用方持有锁）
+     */
+    private void startEvictor() {
+        if (evictor != null) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.min(EVICT_INTERVAL_MILLIS, idleTimeoutMillis);
+        evictor.scheduleWithFixedDelay(this::evictExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return now - pooled.idleSince >= idleTimeoutMillis || now - pooled.createdAt >= ttlMillis;
+    }
+
+    private void evict(List<Connection> connections) {
+        for (Connection connection : connections) {
+            evictedCount.incrementAndGet();
+            close(connection);
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("关闭数据库测试连接时出错", e);
+        }
+    }
+
+    /**
+     * 空闲连接
+     */
+    public static class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private final long idleSince;
+
+        PooledConnection(Connection connection, long createdAt) {
+            this.connection = connection;
+            this.createdAt = createdAt;
+            this.idleSince = System.currentTimeMillis();
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -3,18 +3,63 @@ package com.configtool.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 数据库连接测试服务
+ * 连接超时通过各驱动自己的连接属性设置（MySQL connectTimeout、SQL Server loginTimeout），
+ * 不修改 DriverManager 的全局登录超时，多个地址可以并发探测
+ *
+ * 可通过系统属性调整：
+ * configtool.dbProbe.connectTimeoutMillis 建立连接的超时（毫秒）
+ * configtool.dbProbe.validTimeoutSeconds  连接有效性检查的超时（秒）
+ * configtool.dbProbe.queryRounds          测试连接时验证查询（SELECT 1）的执行次数，0 表示不执行
  */
 public class DatabaseTestService {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseTestService.class);
     
+    private static final String SQLSERVER_DRIVER = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+    private static final String MYSQL_DRIVER = "com.mysql.cj.jdbc.Driver";
+    
+    private static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger("configtool.dbProbe.connectTimeoutMillis", 5000);
+    private static final int VALID_TIMEOUT_SECONDS = Integer.getInteger("configtool.dbProbe.validTimeoutSeconds", 5);
+    private static final int QUERY_ROUNDS = Integer.getInteger("configtool.dbProbe.queryRounds", 5);
+    
+    private static final String VALIDATION_QUERY = "SELECT 1";
+    
+    private static final AtomicInteger PROBE_THREAD_NUMBER = new AtomicInteger();
+    
+    /** 探测线程（守护线程，空闲后回收）；驱动不响应中断时由各自的连接超时结束 */
+    private static final ExecutorService PROBE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "db-probe-" + PROBE_THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final DatabaseConnectionPool connectionPool = DatabaseConnectionPool.getInstance();
+    
     /**
      * 测试数据库连接
      */
@@ -37,57 +82,347 @@ public class DatabaseTestService {
             if ("0".equals(dbType)) {
                 // SQL Server
                 url = buildSqlServerUrl(address, port, databaseName);
-                driverClassName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+                driverClassName = SQLSERVER_DRIVER;
             } else if ("9".equals(dbType)) {
                 // MySQL
                 url = buildMysqlUrl(address, port, databaseName);
-                driverClassName = "com.mysql.cj.jdbc.Driver";
+                driverClassName = MYSQL_DRIVER;
             } else {
                 return DatabaseTestResult.failure("未知的数据库类型: " + dbType);
             }
             
             logger.info("测试连接 - URL: {}, Driver: {}, Username: {}", url, driverClassName, username);
             
+            ConnectionTimings timings = new ConnectionTimings();
+            long start = System.nanoTime();
+            
             // 加载驱动
             try {
                 Class.forName(driverClassName);
+                timings.driverLoadMillis = elapsedMillis(start);
             } catch (ClassNotFoundException e) {
-                return DatabaseTestResult.failure("数据库驱动未找到: " + driverClassName);
+                timings.driverLoadMillis = elapsedMillis(start);
+                timings.failedPhase = ConnectionTimings.PHASE_DRIVER;
+                return DatabaseTestResult.failure("数据库驱动未找到: " + driverClassName, timings);
             }
             
-            // 测试连接
-            Connection connection = null;
-            try {
-                // 设置连接超时
-                DriverManager.setLoginTimeout(5);
-                
-                connection = DriverManager.getConnection(url, username, password);
-                
-                // 测试连接是否有效
-                if (connection != null && connection.isValid(5)) {
-                    logger.info("数据库连接测试成功");
-                    return DatabaseTestResult.success("数据库连接成功");
+            // 测试连接：连接超时作为驱动属性传入，不修改全局登录超时；设置未变时复用预热池中的连接
+            String host = address == null || address.trim().isEmpty() ? "localhost" : address.trim();
+            String error = connectAndMeasure(host, effectivePort(dbType, port), url,
+                    connectionProperties(dbType, username, password), QUERY_ROUNDS, timings,
+                    DatabaseConnectionPool.key(url, username, password));
+            timings.totalMillis = elapsedMillis(start);
+            
+            if (error == null) {
+                logger.info("数据库连接测试成功: {}", timings);
+                return DatabaseTestResult.success("数据库连接成功", timings);
+            }
+            logger.warn("数据库连接测试失败: {}, {}", error, timings);
+            return DatabaseTestResult.failure(error, timings);
+            
+        } catch (Exception e) {
+            logger.error("数据库连接测试异常", e);
+            return DatabaseTestResult.failure("数据库连接测试异常: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 并发探测多个候选地址
+     * 第一个连接成功的地址即为结果，其余未完成的探测被取消；返回每个地址的耗时和结果
+     *
+     * @param databaseConfig 数据库配置（数据库类型、名称、用户名、密码）
+     * @param endpoints      候选地址，格式为 host[:port]，未指定端口时使用配置中的数据库端口
+     */
+    public ProbeResult probeEndpoints(Map<String, String> databaseConfig, List<String> endpoints) {
+        String dbType = databaseConfig.get("数据库类型");
+        String defaultPort = databaseConfig.get("数据库端口");
+        String databaseName = databaseConfig.get("数据库名称");
+        String username = databaseConfig.get("数据库用户名");
+        String password = databaseConfig.get("数据库密码");
+        
+        String driverClassName;
+        if ("0".equals(dbType)) {
+            driverClassName = SQLSERVER_DRIVER;
+        } else if ("9".equals(dbType)) {
+            driverClassName = MYSQL_DRIVER;
+        } else {
+            return ProbeResult.failure("未知的数据库类型: " + dbType, Collections.emptyList(), 0);
+        }
+        if (endpoints == null || endpoints.isEmpty()) {
+            return ProbeResult.failure("没有可探测的数据库地址", Collections.emptyList(), 0);
+        }
+        try {
+            Class.forName(driverClassName);
+        } catch (ClassNotFoundException e) {
+            return ProbeResult.failure("数据库驱动未找到: " + driverClassName, Collections.emptyList(), 0);
+        }
+        
+        Properties properties = connectionProperties(dbType, username, password);
+        long start = System.currentTimeMillis();
+        long deadline = start + CONNECT_TIMEOUT_MILLIS + VALID_TIMEOUT_SECONDS * 1000L + 1000;
+        
+        CompletionService<EndpointResult> completionService = new ExecutorCompletionService<>(PROBE_EXECUTOR);
+        List<Future<EndpointResult>> futures = new ArrayList<>();
+        EndpointResult[] results = new EndpointResult[endpoints.size()];
+        String[] urls = new String[endpoints.size()];
+        for (int i = 0; i < endpoints.size(); i++) {
+            String endpoint = endpoints.get(i).trim();
+            String host = endpoint;
+            String port = effectivePort(dbType, defaultPort);
+            int colon = endpoint.lastIndexOf(':');
+            if (colon > 0 && endpoint.indexOf(':') == colon) {
+                host = endpoint.substring(0, colon);
+                port = endpoint.substring(colon + 1);
+            }
+            urls[i] = "0".equals(dbType)
+                    ? buildSqlServerUrl(host, port, databaseName)
+                    : buildMysqlUrl(host, port, databaseName);
+            int index = i;
+            String probeHost = host;
+            String probePort = port;
+            futures.add(completionService.submit(() -> probe(index, endpoint, probeHost, probePort, urls[index], properties)));
+        }
+        logger.info("开始探测数据库地址: {}", endpoints);
+        
+        EndpointResult winner = null;
+        try {
+            for (int remaining = futures.size(); remaining > 0 && winner == null; remaining--) {
+                long waitMillis = deadline - System.currentTimeMillis();
+                Future<EndpointResult> future = waitMillis > 0 ? completionService.poll(waitMillis, TimeUnit.MILLISECONDS) : null;
+                if (future == null) {
+                    break;
+                }
+                EndpointResult result = future.get();
+                results[result.index] = result;
+                if (result.success) {
+                    winner = result;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // probe 不抛出异常，这里只是兜底
+            logger.warn("数据库地址探测异常", e);
+        }
+        
+        long elapsed = System.currentTimeMillis() - start;
+        List<EndpointResult> table = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                futures.get(i).cancel(true);
+                results[i] = new EndpointResult(i, endpoints.get(i).trim(), urls[i], false, false, elapsed,
+                        winner != null ? "已有可用地址，已取消" : "超过等待时间", null);
+            }
+            table.add(results[i]);
+        }
+        
+        if (winner != null) {
+            logger.info("数据库地址探测成功: {}（{} ms）", winner.endpoint, winner.latencyMillis);
+            return new ProbeResult(true, "数据库连接成功: " + winner.endpoint, winner.endpoint, winner.url, elapsed, table);
+        }
+        logger.warn("所有数据库地址均无法连接: {}", endpoints);
+        return ProbeResult.failure("所有数据库地址均无法连接", table, elapsed);
+    }
+    
+    /**
+     * 探测单个地址（在探测线程中执行，不抛出异常）；竞速探测不执行验证查询
+     */
+    private EndpointResult probe(int index, String endpoint, String host, String port, String url, Properties properties) {
+        ConnectionTimings timings = new ConnectionTimings();
+        long start = System.nanoTime();
+        String error = connectAndMeasure(host, port, url, properties, 0, timings, null);
+        timings.totalMillis = elapsedMillis(start);
+        if (error != null) {
+            logger.debug("数据库地址探测失败: {}, {}", endpoint, error);
+        }
+        return new EndpointResult(index, endpoint, url, error == null, true, Math.round(timings.totalMillis),
+                error == null ? "连接成功" : error, timings);
+    }
+    
+    /**
+     * 建立连接并记录各阶段耗时：JDBC登录握手（含TCP连接）、isValid、验证查询
+     *
+     * @param queryRounds 验证查询的执行次数，0 表示不执行
+     * @param poolKey     预热池的键；不为 null 时优先复用空闲连接，成功后连接归还到池中
+     * @return 失败原因；成功时返回 null（失败的阶段记录在 timings.failedPhase 中）
+     */
+    private String connectAndMeasure(String host, String port, String url, Properties properties,
+                                     int queryRounds, ConnectionTimings timings, String poolKey) {
+        Connection connection = null;
+        long createdAt = System.currentTimeMillis();
+        String phase = ConnectionTimings.PHASE_IS_VALID;
+        long phaseStart = System.nanoTime();
+        boolean keep = false;
+        try {
+            // 复用预热池中的连接：验证通过即跳过TCP连接和登录握手
+            DatabaseConnectionPool.PooledConnection pooled = poolKey != null ? connectionPool.borrow(poolKey) : null;
+            if (pooled != null) {
+                phaseStart = System.nanoTime();
+                if (isValidQuietly(pooled.getConnection())) {
+                    connection = pooled.getConnection();
+                    createdAt = pooled.getCreatedAt();
+                    timings.isValidMillis = elapsedMillis(phaseStart);
+                    timings.pooled = true;
                 } else {
-                    return DatabaseTestResult.failure("数据库连接无效");
+                    closeQuietly(pooled.getConnection());
                 }
+            }
+            
+            if (connection == null) {
+                // 不预先建立裸TCP连接：MySQL 会把没有完成握手的连接计入 max_connect_errors，
+                // 多次测试后可能封禁本机地址；TCP连接耗时包含在登录耗时中
+                phase = ConnectionTimings.PHASE_LOGIN;
+                phaseStart = System.nanoTime();
+                createdAt = System.currentTimeMillis();
+                connection = DriverManager.getConnection(url, properties);
+                timings.loginMillis = elapsedMillis(phaseStart);
                 
-            } catch (SQLException e) {
-                logger.error("数据库连接测试失败", e);
-                return DatabaseTestResult.failure("数据库连接失败: " + e.getMessage());
-            } finally {
-                if (connection != null) {
-                    try {
-                        connection.close();
-                    } catch (SQLException e) {
-                        logger.warn("关闭数据库连接时出错", e);
-                    }
+                phase = ConnectionTimings.PHASE_IS_VALID;
+                phaseStart = System.nanoTime();
+                boolean valid = connection != null && connection.isValid(VALID_TIMEOUT_SECONDS);
+                timings.isValidMillis = elapsedMillis(phaseStart);
+                if (!valid) {
+                    timings.failedPhase = phase;
+                    return "数据库连接无效";
                 }
             }
             
-        } catch (Exception e) {
-            logger.error("数据库连接测试异常", e);
-            return DatabaseTestResult.failure("数据库连接测试异常: " + e.getMessage());
+            if (queryRounds > 0) {
+                phase = ConnectionTimings.PHASE_QUERY;
+                double[] samples = new double[queryRounds];
+                try (Statement statement = connection.createStatement()) {
+                    statement.setQueryTimeout(VALID_TIMEOUT_SECONDS);
+                    for (int i = 0; i < queryRounds; i++) {
+                        phaseStart = System.nanoTime();
+                        try (ResultSet resultSet = statement.executeQuery(VALIDATION_QUERY)) {
+                            while (resultSet.next()) {
+                                // 读完结果集，计入完整的往返时间
+                            }
+                        }
+                        samples[i] = elapsedMillis(phaseStart);
+                    }
+                }
+                timings.setQuerySamples(samples);
+            }
+            keep = poolKey != null;
+            return null;
+        } catch (SQLException e) {
+            setPhaseMillis(timings, phase, elapsedMillis(phaseStart));
+            timings.failedPhase = phase;
+            logger.debug("数据库连接失败，阶段: {}", phase, e);
+            if (ConnectionTimings.PHASE_LOGIN.equals(phase) && isCommunicationFailure(e)) {
+                String unreachable = checkReachable(host, port, timings);
+                if (unreachable != null) {
+                    return unreachable;
+                }
+            }
+            return (ConnectionTimings.PHASE_QUERY.equals(phase) ? "验证查询失败: " : "数据库连接失败: ") + e.getMessage();
+        } catch (RuntimeException e) {
+            setPhaseMillis(timings, phase, elapsedMillis(phaseStart));
+            timings.failedPhase = phase;
+            return "数据库连接测试异常: " + e.getMessage();
+        } finally {
+            if (connection != null) {
+                if (keep) {
+                    connectionPool.release(poolKey, connection, createdAt);
+                } else {
+                    closeQuietly(connection);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 驱动是否报告了通信失败（SQLState 08xx），而不是认证等数据库返回的错误
+     */
+    private static boolean isCommunicationFailure(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+    
+    /**
+     * 驱动报告通信失败后单独建立一次TCP连接，区分网络不可达和数据库握手失败
+     * 端口可达时这次连接同样会被 MySQL 计入 max_connect_errors，因此只在登录已经失败时执行
+     *
+     * @return 网络不可达时返回失败原因（失败阶段改为 tcp）；端口可达时返回 null
+     */
+    private static String checkReachable(String host, String port, ConnectionTimings timings) {
+        // SQL Server 命名实例的端口由 Browser 服务决定，无法单独检查
+        if (host.indexOf('\\') >= 0) {
+            return null;
+        }
+        long tcpStart = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, Integer.parseInt(port.trim())), CONNECT_TIMEOUT_MILLIS);
+            timings.tcpConnectMillis = elapsedMillis(tcpStart);
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            timings.tcpConnectMillis = elapsedMillis(tcpStart);
+            timings.failedPhase = ConnectionTimings.PHASE_TCP;
+            return "网络连接失败: " + host + ":" + port + "（" + e.getMessage() + "）";
+        }
+    }
+    
+    private static boolean isValidQuietly(Connection connection) {
+        try {
+            return connection.isValid(VALID_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("关闭数据库连接时出错", e);
+        }
+    }
+    
+    private static void setPhaseMillis(ConnectionTimings timings, String phase, double millis) {
+        if (ConnectionTimings.PHASE_LOGIN.equals(phase)) {
+            timings.loginMillis = millis;
+        } else if (ConnectionTimings.PHASE_IS_VALID.equals(phase)) {
+            timings.isValidMillis = millis;
+        }
+    }
+    
+    /**
+     * 从 startNanos 到现在的毫秒数（保留两位小数）
+     */
+    private static double elapsedMillis(long startNanos) {
+        return Math.round((System.nanoTime() - startNanos) / 10000.0) / 100.0;
+    }
+    
+    /**
+     * 未填写端口时使用数据库的默认端口
+     */
+    private static String effectivePort(String dbType, String port) {
+        if (port != null && !port.trim().isEmpty()) {
+            return port.trim();
+        }
+        return "0".equals(dbType) ? "1433" : "3306";
+    }
+    
+    /**
+     * 连接属性：用户名、密码和驱动各自的超时设置
+     */
+    private Properties connectionProperties(String dbType, String username, String password) {
+        Properties properties = new Properties();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        if ("0".equals(dbType)) {
+            // SQL Server 的 loginTimeout 以秒为单位
+            properties.setProperty("loginTimeout", String.valueOf(Math.max(1, (CONNECT_TIMEOUT_MILLIS + 999) / 1000)));
+        } else {
+            properties.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_MILLIS));
         }
+        // 服务端接受连接后不响应时，读超时保证探测能结束
+        properties.setProperty("socketTimeout", String.valueOf(CONNECT_TIMEOUT_MILLIS + VALID_TIMEOUT_SECONDS * 1000));
+        return properties;
     }
     
     /**
@@ -133,19 +468,29 @@ public class DatabaseTestService {
         private boolean success;
         private String message;
         private long testTime;
+        private ConnectionTimings timings;
         
-        private DatabaseTestResult(boolean success, String message) {
+        private DatabaseTestResult(boolean success, String message, ConnectionTimings timings) {
             this.success = success;
             this.message = message;
             this.testTime = System.currentTimeMillis();
+            this.timings = timings;
         }
         
         public static DatabaseTestResult success(String message) {
-            return new DatabaseTestResult(true, message);
+            return new DatabaseTestResult(true, message, null);
+        }
+        
+        public static DatabaseTestResult success(String message, ConnectionTimings timings) {
+            return new DatabaseTestResult(true, message, timings);
         }
         
         public static DatabaseTestResult failure(String message) {
-            return new DatabaseTestResult(false, message);
+            return new DatabaseTestResult(false, message, null);
+        }
+        
+        public static DatabaseTestResult failure(String message, ConnectionTimings timings) {
+            return new DatabaseTestResult(false, message, timings);
         }
         
         // Getters
@@ -160,5 +505,228 @@ public class DatabaseTestService {
         public long getTestTime() {
             return testTime;
         }
+        
+        public ConnectionTimings getTimings() {
+            return timings;
+        }
+    }
+    
+    /**
+     * 连接各阶段耗时（毫秒，未执行的阶段为 null）
+     * loginMillis 是驱动建立连接的完整耗时（驱动内部的TCP连接 + 登录握手）；
+     * tcpConnectMillis 只在驱动报告通信失败、额外检查端口是否可达时记录
+     */
+    public static class ConnectionTimings {
+        static final String PHASE_DRIVER = "driver";
+        static final String PHASE_TCP = "tcp";
+        static final String PHASE_LOGIN = "login";
+        static final String PHASE_IS_VALID = "isValid";
+        static final String PHASE_QUERY = "query";
+        
+        private Double driverLoadMillis;
+        private Double tcpConnectMillis;
+        private Double loginMillis;
+        private Double isValidMillis;
+        private int queryRounds;
+        private Double queryMinMillis;
+        private Double queryAvgMillis;
+        private Double queryP95Millis;
+        private Double totalMillis;
+        /** 是否复用了预热池中的连接（复用时没有TCP连接和登录阶段） */
+        private boolean pooled;
+        /** 失败的阶段：driver、tcp、login、isValid、query；成功时为 null */
+        private String failedPhase;
+        
+        /**
+         * 记录验证查询每一轮的耗时，计算最小值、平均值和P95
+         */
+        void setQuerySamples(double[] samples) {
+            double[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (double sample : sorted) {
+                sum += sample;
+            }
+            queryRounds = sorted.length;
+            queryMinMillis = sorted[0];
+            queryAvgMillis = Math.round(sum / sorted.length * 100) / 100.0;
+            queryP95Millis = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        }
+        
+        // Getters
+        public Double getDriverLoadMillis() {
+            return driverLoadMillis;
+        }
+        
+        public Double getTcpConnectMillis() {
+            return tcpConnectMillis;
+        }
+        
+        public Double getLoginMillis() {
+            return loginMillis;
+        }
+        
+        public Double getIsValidMillis() {
+            return isValidMillis;
+        }
+        
+        public int getQueryRounds() {
+            return queryRounds;
+        }
+        
+        public Double getQueryMinMillis() {
+            return queryMinMillis;
+        }
+        
+        public Double getQueryAvgMillis() {
+            return queryAvgMillis;
+        }
+        
+        public Double getQueryP95Millis() {
+            return queryP95Millis;
+        }
+        
+        public Double getTotalMillis() {
+            return totalMillis;
+        }
+        
+        public boolean isPooled() {
+            return pooled;
+        }
+        
+        public String getFailedPhase() {
+            return failedPhase;
+        }
+        
+        /**
+         * 只输出执行过的阶段
+         */
+        @Override
+        public String toString() {
+            StringJoiner text = new StringJoiner(", ");
+            appendMillis(text, "驱动加载", driverLoadMillis);
+            appendMillis(text, "TCP连接", tcpConnectMillis);
+            appendMillis(text, "登录", loginMillis);
+            appendMillis(text, "isValid", isValidMillis);
+            if (queryRounds > 0) {
+                text.add("验证查询" + queryRounds + "次 avg=" + queryAvgMillis + "ms p95=" + queryP95Millis + "ms");
+            }
+            appendMillis(text, "总计", totalMillis);
+            return text + (pooled ? "（复用连接）" : "") + (failedPhase != null ? ", 失败阶段=" + failedPhase : "");
+        }
+        
+        private static void appendMillis(StringJoiner text, String name, Double millis) {
+            if (millis != null) {
+                text.add(name + "=" + millis + "ms");
+            }
+        }
+    }
+    
+    /**
+     * 多地址探测结果
+     */
+    public static class ProbeResult {
+        private boolean success;
+        private String message;
+        /** 第一个连接成功的地址 */
+        private String endpoint;
+        private String url;
+        private long totalMillis;
+        private List<EndpointResult> endpoints;
+        
+        private ProbeResult(boolean success, String message, String endpoint, String url,
+                            long totalMillis, List<EndpointResult> endpoints) {
+            this.success = success;
+            this.message = message;
+            this.endpoint = endpoint;
+            this.url = url;
+            this.totalMillis = totalMillis;
+            this.endpoints = endpoints;
+        }
+        
+        static ProbeResult failure(String message, List<EndpointResult> endpoints, long totalMillis) {
+            return new ProbeResult(false, message, null, null, totalMillis, endpoints);
+        }
+        
+        // Getters
+        public boolean isSuccess() {
+            return success;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public String getEndpoint() {
+            return endpoint;
+        }
+        
+        public String getUrl() {
+            return url;
+        }
+        
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+        
+        public List<EndpointResult> getEndpoints() {
+            return endpoints;
+        }
+    }
+    
+    /**
+     * 单个地址的探测结果
+     */
+    public static class EndpointResult {
+        private transient int index;
+        private String endpoint;
+        private String url;
+        private boolean success;
+        /** 探测是否已结束（false 表示被取消或超过等待时间） */
+        private boolean finished;
+        private long latencyMillis;
+        private String message;
+        private ConnectionTimings timings;
+        
+        EndpointResult(int index, String endpoint, String url, boolean success, boolean finished,
+                       long latencyMillis, String message, ConnectionTimings timings) {
+            this.index = index;
+            this.endpoint = endpoint;
+            this.url = url;
+            this.success = success;
+            this.finished = finished;
+            this.latencyMillis = latencyMillis;
+            this.message = message;
+            this.timings = timings;
+        }
+        
+        // Getters
+        public String getEndpoint() {
+            return endpoint;
+        }
+        
+        public String getUrl() {
+            return url;
+        }
+        
+        public boolean isSuccess() {
+            return success;
+        }
+        
+        public boolean isFinished() {
+            return finished;
+        }
+        
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public ConnectionTimings getTimings() {
+            return timings;
+        }
     }
-} 
\ No newline at end of file
+}
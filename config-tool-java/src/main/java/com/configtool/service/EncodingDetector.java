@@ -0,0 +1,369 @@
+package com.configtool.service;
+
+import org.mozilla.universalchardet.UniversalDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 文件编码检测器
+ * 分三步检测，只读取必要的字节：
+ * 1. 检查BOM，以及文件头尾采样是否为纯ASCII；
+ * 2. 对采样做严格的UTF-8解码校验；文件比采样大时，采样通过只说明头尾是UTF-8，
+ *    中间的中文注释和值可能是GBK，因此还要扫描一遍中间部分：只逐字节判断是否有非ASCII字节，
+ *    不做解码，没有则直接按UTF-8处理；有则从第一个非ASCII字节开始做严格UTF-8解码校验；
+ * 3. 前两步无法确定时，才使用 UniversalDetector 流式检测，同样从第一个非ASCII字节开始读取
+ * 代价：大文件采样通过时，中间部分仍要读一遍（只做字节比较），以免把中间含GBK的文件误判为UTF-8
+ * 含NUL字节的采样（无BOM的UTF-16等）不按ASCII/UTF-8处理
+ */
+public class EncodingDetector {
+    private static final Logger logger = LoggerFactory.getLogger(EncodingDetector.class);
+
+    /** 文件头、尾各采样的字节数 */
+    static final int SAMPLE_SIZE = 8 * 1024;
+
+    /** UniversalDetector 最多读取的字节数 */
+    static final int MAX_DETECTOR_BYTES = 1024 * 1024;
+
+    private static final int DETECTOR_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 检测文件编码
+     */
+    public Charset detect(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            byte[] head = read(channel, 0, (int) Math.min(size, SAMPLE_SIZE));
+
+            // 1. BOM
+            Charset bomCharset = detectBom(head);
+            if (bomCharset != null) {
+                logger.debug("BOM检测到{}编码: {}", bomCharset.name(), file.getPath());
+                return bomCharset;
+            }
+
+            // 文件超过采样大小时，额外采样文件末尾
+            byte[] tail = new byte[0];
+            long tailStart = Math.max(head.length, size - SAMPLE_SIZE);
+            if (size > head.length) {
+                tail = read(channel, tailStart, (int) (size - tailStart));
+            }
+
+            // 无BOM的UTF-16：ASCII字符的高字节为NUL，按NUL出现在奇数位还是偶数位判断字节序
+            Charset utf16 = detectUtf16WithoutBom(head);
+            if (utf16 != null) {
+                logger.debug("NUL字节分布判断为{}编码: {}", utf16.name(), file.getPath());
+                return utf16;
+            }
+
+            boolean sampledWholeFile = head.length + tail.length >= size;
+            // UniversalDetector 开始读取的位置（ASCII部分对检测没有帮助）
+            long detectorStart = 0;
+            boolean utf8Rejected = false;
+
+            // 1. 纯ASCII（UTF-8兼容ASCII，按UTF-8处理，写入中文时不会丢失字符）
+            // 2. 严格UTF-8校验，采样边界处被截断的多字节字符不视为错误
+            boolean headTruncated = size > head.length;
+            boolean sampleAscii = isAscii(head) && isAscii(tail);
+            if (sampleAscii || (!containsNul(head) && !containsNul(tail)
+                    && isValidUtf8(head, 0, headTruncated) && isValidUtf8(tail, skipContinuationBytes(tail), false))) {
+                if (sampledWholeFile) {
+                    logger.debug("{}，使用UTF-8编码: {}", sampleAscii ? "内容为纯ASCII" : "严格解码校验确认UTF-8", file.getPath());
+                    return StandardCharsets.UTF_8;
+                }
+                // 采样未覆盖文件中间，先只找中间部分的非ASCII字节
+                long firstNonAscii = findNonAscii(channel, head.length, tailStart);
+                if (firstNonAscii < 0) {
+                    logger.debug("采样通过且中间部分为纯ASCII，使用UTF-8编码: {}", file.getPath());
+                    return StandardCharsets.UTF_8;
+                }
+                // 非ASCII字节紧接在头部采样之后时，可能是头部末尾被截断字符的后续字节
+                long utf8Start = firstNonAscii == head.length ? head.length - incompleteTailLength(head) : firstNonAscii;
+                if (isValidUtf8File(channel, utf8Start)) {
+                    logger.debug("从位置{}起严格解码校验确认UTF-8编码: {}", utf8Start, file.getPath());
+                    return StandardCharsets.UTF_8;
+                }
+                detectorStart = firstNonAscii;
+                utf8Rejected = true;
+            }
+
+            // 3. UniversalDetector；已确认不是UTF-8时从第一个非ASCII字节开始读取（可能在读取上限之后）
+            Charset detected = runUniversalDetector(channel, file, detectorStart, MAX_DETECTOR_BYTES);
+            if (detected != null && !(utf8Rejected && StandardCharsets.UTF_8.equals(detected))) {
+                return detected;
+            }
+        } catch (IOException e) {
+            logger.warn("编码检测失败，使用UTF-8: {}", file.getPath(), e);
+            return StandardCharsets.UTF_8;
+        }
+
+        return fallbackCharset(file);
+    }
+
+    /**
+     * 根据BOM判断编码，没有BOM时返回 null
+     */
+    static Charset detectBom(byte[] bytes) {
+        if (bytes.length >= 4) {
+            if (bytes[0] == 0 && bytes[1] == 0 && bytes[2] == (byte) 0xFE && bytes[3] == (byte) 0xFF) {
+                return Charset.forName("UTF-32BE");
+            }
+            if (bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE && bytes[2] == 0 && bytes[3] == 0) {
+                return Charset.forName("UTF-32LE");
+            }
+        }
+        if (bytes.length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (bytes.length >= 2) {
+            if (bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF) {
+                return StandardCharsets.UTF_16BE;
+            }
+            if (bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE) {
+                return StandardCharsets.UTF_16LE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否为纯ASCII（不含NUL）
+     */
+    private static boolean isAscii(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 根据NUL字节的位置判断无BOM的UTF-16，无法判断时返回 null
+     */
+    static Charset detectUtf16WithoutBom(byte[] bytes) {
+        int pairs = bytes.length / 2;
+        if (pairs == 0) {
+            return null;
+        }
+        int evenNul = 0;
+        int oddNul = 0;
+        for (int i = 0; i + 1 < bytes.length; i += 2) {
+            if (bytes[i] == 0) {
+                evenNul++;
+            }
+            if (bytes[i + 1] == 0) {
+                oddNul++;
+            }
+        }
+        if (oddNul * 10 >= pairs * 4 && evenNul * 20 < pairs) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (evenNul * 10 >= pairs * 4 && oddNul * 20 < pairs) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    private static boolean containsNul(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找 [start, end) 范围内第一个非ASCII字节（含NUL）的位置，没有时返回 -1
+     * 只做字节比较，不解码
+     */
+    static long findNonAscii(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(DETECTOR_BUFFER_SIZE * 8);
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] <= 0) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    /**
+     * 采样末尾被截断的多字节字符已读取的字节数，末尾字符完整时返回 0
+     */
+    static int incompleteTailLength(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0 && i >= bytes.length - 3; i--) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) == 0x80) {
+                continue;
+            }
+            int expected = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return bytes.length - i < expected ? bytes.length - i : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * 从指定位置到文件末尾流式做严格UTF-8解码校验（含NUL视为不是UTF-8文本）
+     */
+    static boolean isValidUtf8File(FileChannel channel, long start) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.allocate(DETECTOR_BUFFER_SIZE * 8);
+        CharBuffer out = CharBuffer.allocate(DETECTOR_BUFFER_SIZE * 8);
+        long position = start;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            int read = channel.read(in, position);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                for (int i = in.position() - read; i < in.position(); i++) {
+                    if (in.get(i) == 0) {
+                        return false;
+                    }
+                }
+                position += read;
+            }
+            in.flip();
+            while (true) {
+                CoderResult result = decoder.decode(in, out, endOfInput);
+                if (result.isError()) {
+                    return false;
+                }
+                out.clear();
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            // 保留被缓冲区边界截断的多字节字符
+            in.compact();
+        }
+        return !decoder.flush(out).isError();
+    }
+
+    /**
+     * 严格UTF-8解码校验
+     *
+     * @param offset    开始校验的位置
+     * @param truncated 采样是否在文件中间截断（末尾不完整的多字节字符不视为错误）
+     */
+    static boolean isValidUtf8(byte[] bytes, int offset, boolean truncated) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        CharBuffer out = CharBuffer.allocate(DETECTOR_BUFFER_SIZE);
+        while (true) {
+            CoderResult result = decoder.decode(in, out, !truncated);
+            if (result.isError()) {
+                return false;
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            out.clear();
+        }
+        if (truncated) {
+            // 剩余字节只可能是被截断的多字节字符开头
+            return in.remaining() < 4;
+        }
+        out.clear();
+        return !decoder.flush(out).isError();
+    }
+
+    /**
+     * 尾部采样可能从多字节字符中间开始，跳过开头的UTF-8后续字节（最多3个）
+     */
+    private static int skipContinuationBytes(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length && offset < 3 && (bytes[offset] & 0xC0) == 0x80) {
+            offset++;
+        }
+        return offset;
+    }
+
+    /**
+     * 使用 UniversalDetector 从指定位置流式检测，检测完成或达到读取上限即停止
+     */
+    private Charset runUniversalDetector(FileChannel channel, File file, long start, long maxBytes) throws IOException {
+        UniversalDetector detector = new UniversalDetector(null);
+        ByteBuffer buffer = ByteBuffer.allocate(DETECTOR_BUFFER_SIZE);
+        long position = start;
+        int read;
+        while (position - start < maxBytes && !detector.isDone()
+                && (read = channel.read(buffer, position)) > 0) {
+            detector.handleData(buffer.array(), 0, read);
+            position += read;
+            buffer.clear();
+        }
+        detector.dataEnd();
+        String detectedEncoding = detector.getDetectedCharset();
+        detector.reset();
+
+        if (detectedEncoding == null) {
+            return null;
+        }
+        try {
+            Charset charset = Charset.forName(detectedEncoding);
+            logger.debug("专业检测到编码 {} (从位置{}读取 {} 字节): {}", detectedEncoding, start, position - start, file.getPath());
+            return charset;
+        } catch (Exception e) {
+            logger.warn("不支持的编码 {}，进行fallback检测: {}", detectedEncoding, file.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * 无法检测时的默认编码：中文Windows系统使用GBK，其他系统使用系统默认编码
+     */
+    private Charset fallbackCharset(File file) {
+        String osName = System.getProperty("os.name").toLowerCase();
+        if (osName.contains("windows")) {
+            try {
+                Charset gbk = Charset.forName("GBK");
+                logger.debug("Windows系统默认使用GBK编码: {}", file.getPath());
+                return gbk;
+            } catch (Exception ignored) {}
+        }
+
+        Charset defaultCharset = Charset.defaultCharset();
+        logger.debug("使用系统默认编码 {}: {}", defaultCharset.name(), file.getPath());
+        return defaultCharset;
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) {
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+        }
+        return buffer.array();
+    }
+}
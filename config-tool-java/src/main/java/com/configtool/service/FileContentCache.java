@@ -0,0 +1,252 @@
+package com.configtool.service;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * 文件内容缓存
+ * 进程内共享，缓存检测到的编码、行偏移索引和已解码的文件行，
+ * 通过文件标识、修改时间和大小校验缓存是否仍然有效
+ */
+public class FileContentCache {
+    private static final Logger logger = LoggerFactory.getLogger(FileContentCache.class);
+
+    /** 默认最多缓存的文件数 */
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private static final FileContentCache INSTANCE = new FileContentCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final Map<String, CachedFile> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    FileContentCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // accessOrder=true，实现LRU淘汰
+        this.entries = new LinkedHashMap<String, CachedFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedFile> eldest) {
+                boolean evict = size() > FileContentCache.this.maxEntries;
+                if (evict) {
+                    evictionCount.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * 获取进程内共享的缓存实例
+     */
+    public static FileContentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 读取文件内容，命中且仍有效时直接返回缓存
+     *
+     * @param file            文件
+     * @param charsetDetector 未命中时使用的编码检测方法
+     */
+    public CachedFile get(File file, Function<File, Charset> charsetDetector) throws IOException {
+        String key = file.getAbsolutePath();
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        Object fileKey = attrs.fileKey();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        long size = attrs.size();
+
+        synchronized (entries) {
+            CachedFile cached = entries.get(key);
+            if (cached != null && cached.matches(fileKey, lastModified, size)) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+        }
+
+        missCount.incrementAndGet();
+        Charset charset = charsetDetector.apply(file);
+        CachedFile loaded = new CachedFile(file, key, fileKey, lastModified, size, charset);
+
+        synchronized (entries) {
+            entries.put(key, loaded);
+        }
+        logger.debug("缓存文件信息: {} (编码: {})", key, charset.name());
+        return loaded;
+    }
+
+    /**
+     * 使指定文件的缓存失效（写入文件后调用）
+     */
+    public void invalidate(File file) {
+        synchronized (entries) {
+            entries.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hitCount", hits);
+        stats.put("missCount", misses);
+        stats.put("evictionCount", evictionCount.get());
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    /**
+     * 已缓存的文件内容
+     * 行索引和完整行列表均按需加载：单行访问走行索引，只有需要整文件时才解码所有行
+     */
+    public static class CachedFile {
+        private final File file;
+        private final String path;
+        private final Object fileKey;
+        private final long lastModified;
+        private final long size;
+        private final Charset charset;
+        private LineIndex lineIndex;
+        private List<String> lines;
+        private Long contentHash;
+
+        CachedFile(File file, String path, Object fileKey, long lastModified, long size, Charset charset) {
+            this.file = file;
+            this.path = path;
+            this.fileKey = fileKey;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.charset = charset;
+        }
+
+        boolean matches(Object otherFileKey, long otherLastModified, long otherSize) {
+            if (fileKey != null && !fileKey.equals(otherFileKey)) {
+                return false;
+            }
+            return lastModified == otherLastModified && size == otherSize;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Charset getCharset() {
+            return charset;
+        }
+
+        /**
+         * 文件内容的CRC32校验值，每个文件版本只计算一次
+         */
+        public synchronized long getContentHash() throws IOException {
+            if (contentHash == null) {
+                CRC32 crc = new CRC32();
+                ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    while (channel.read(buffer) > 0) {
+                        buffer.flip();
+                        crc.update(buffer.array(), 0, buffer.limit());
+                        buffer.clear();
+                    }
+                }
+                contentHash = crc.getValue();
+            }
+            return contentHash;
+        }
+
+        /**
+         * 文件所有行（只读）
+         */
+        public synchronized List<String> getLines() throws IOException {
+            if (lines == null) {
+                lines = Collections.unmodifiableList(FileUtils.readLines(file, charset));
+            }
+            return lines;
+        }
+
+        /**
+         * 行索引，编码不支持按字节索引时返回 null
+         */
+        public synchronized LineIndex getLineIndex() throws IOException {
+            if (lineIndex == null && LineIndex.supports(charset)) {
+                lineIndex = LineIndex.build(file, charset);
+            }
+            return lineIndex;
+        }
+
+        /**
+         * 文件总行数
+         */
+        public int getLineCount() throws IOException {
+            synchronized (this) {
+                if (lines != null) {
+                    return lines.size();
+                }
+            }
+            LineIndex index = getLineIndex();
+            return index != null ? index.getLineCount() : getLines().size();
+        }
+
+        /**
+         * 读取指定行（从1开始），优先通过行索引只解码该行
+         */
+        public String getLine(int lineNumber) throws IOException {
+            synchronized (this) {
+                if (lines != null) {
+                    return lines.get(lineNumber - 1);
+                }
+            }
+            LineIndex index = getLineIndex();
+            return index != null ? index.readLine(lineNumber) : getLines().get(lineNumber - 1);
+        }
+    }
+}
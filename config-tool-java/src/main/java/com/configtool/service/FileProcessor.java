@@ -2,20 +2,28 @@ package com.configtool.service;
 
 import com.configtool.model.FileTarget;
 import com.configtool.model.MatchResult;
+import com.configtool.util.AtomicFileWriter;
+import com.configtool.util.PrefixMatcher;
 import com.configtool.utils.DFMEncryption;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import org.mozilla.universalchardet.UniversalDetector;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * 文件处理器
@@ -24,205 +32,77 @@ import org.mozilla.universalchardet.UniversalDetector;
 public class FileProcessor {
     private static final Logger logger = LoggerFactory.getLogger(FileProcessor.class);
 
+    /** Windows 文件名不区分大小写 */
+    private static final boolean CASE_INSENSITIVE_PATHS =
+            System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private final FileContentCache fileCache = FileContentCache.getInstance();
+    private final FileSpliceWriter spliceWriter = new FileSpliceWriter();
+    private final EncodingDetector encodingDetector = new EncodingDetector();
+    private final PathResolver pathResolver = PathResolver.getInstance();
+
+    /**
+     * 读取文件内容（经过共享缓存，文件未变化时不会重复读取和检测编码）
+     */
+    public FileContentCache.CachedFile readFile(File file) throws IOException {
+        return fileCache.get(file, encodingDetector::detect);
+    }
+
     /**
-     * 使用专业库检测文件编码
+     * 检测文件编码（结果随文件版本缓存，文件未变化时不会重复检测）
      */
     public Charset detectFileEncoding(File file) {
         try {
-            // 使用 UniversalDetector 进行精确编码检测
-            UniversalDetector detector = new UniversalDetector(null);
-            
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int nread;
-                while ((nread = fis.read(buffer)) > 0 && !detector.isDone()) {
-                    detector.handleData(buffer, 0, nread);
-                }
-            }
-            
-            detector.dataEnd();
-            String detectedEncoding = detector.getDetectedCharset();
-            detector.reset();
-            
-            if (detectedEncoding != null) {
-                try {
-                    Charset charset = Charset.forName(detectedEncoding);
-                    logger.info("专业检测到编码 {}: {}", detectedEncoding, file.getPath());
-                    return charset;
-                } catch (Exception e) {
-                    logger.warn("不支持的编码 {}，进行fallback检测: {}", detectedEncoding, file.getPath());
-                }
-            }
-            
-            // fallback到基础检测方法
-            return fallbackDetectEncoding(file);
-            
+            return readFile(file).getCharset();
         } catch (IOException e) {
-            logger.warn("专业编码检测失败，使用fallback: {}", file.getPath(), e);
-            return fallbackDetectEncoding(file);
+            logger.warn("读取文件信息失败，直接检测编码: {}", file.getPath(), e);
+            return encodingDetector.detect(file);
         }
     }
-    
+
     /**
-     * fallback编码检测方法
+     * 判断两个路径是否为同一文件的键：绝对路径并去掉 . 和 ..，Windows 下转为小写
+     * 按文件分组写入时必须使用此键，否则同一文件会被分成多组，后写入的临时文件覆盖先前的修改
      */
-    private Charset fallbackDetectEncoding(File file) {
+    public static String fileKey(String path) {
+        String key;
         try {
-            byte[] bytes = FileUtils.readFileToByteArray(file);
-            
-            // 检测BOM
-            if (bytes.length >= 3) {
-                // UTF-8 BOM: EF BB BF
-                if (bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
-                    logger.info("BOM检测到UTF-8编码: {}", file.getPath());
-                    return StandardCharsets.UTF_8;
-                }
-            }
-            
-            if (bytes.length >= 2) {
-                // UTF-16 BE BOM: FE FF
-                if (bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF) {
-                    logger.info("BOM检测到UTF-16BE编码: {}", file.getPath());
-                    return StandardCharsets.UTF_16BE;
-                }
-                // UTF-16 LE BOM: FF FE
-                if (bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE) {
-                    logger.info("BOM检测到UTF-16LE编码: {}", file.getPath());
-                    return StandardCharsets.UTF_16LE;
-                }
-            }
-            
-            // 尝试UTF-8解码
-            try {
-                String content = new String(bytes, StandardCharsets.UTF_8);
-                if (!content.contains("\uFFFD")) {
-                    logger.info("启发式检测到UTF-8编码: {}", file.getPath());
-                    return StandardCharsets.UTF_8;
-                }
-            } catch (Exception ignored) {}
-            
-            // 中文Windows系统尝试GBK
-            String osName = System.getProperty("os.name").toLowerCase();
-            if (osName.contains("windows")) {
-                try {
-                    Charset gbk = Charset.forName("GBK");
-                    logger.info("Windows系统默认使用GBK编码: {}", file.getPath());
-                    return gbk;
-                } catch (Exception ignored) {}
-            }
-            
-            // 最终使用系统默认编码
-            Charset defaultCharset = Charset.defaultCharset();
-            logger.info("使用系统默认编码 {}: {}", defaultCharset.name(), file.getPath());
-            return defaultCharset;
-            
-        } catch (IOException e) {
-            logger.warn("fallback编码检测失败，使用UTF-8: {}", file.getPath(), e);
-            return StandardCharsets.UTF_8;
+            key = Paths.get(path).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            key = new File(path).getAbsolutePath();
         }
+        return CASE_INSENSITIVE_PATHS ? key.toLowerCase(Locale.ROOT) : key;
     }
 
     /**
      * 清理文件路径，移除不可见字符，并将相对路径转换为绝对路径
      */
     public String cleanFilePath(String path) {
-        if (path == null || path.isEmpty()) {
-            return "";
-        }
-        
-        // 移除不可见的Unicode字符
-        String cleaned = path.replaceAll("[\\u200B-\\u200D\\uFEFF\\u202A-\\u202E]", "");
-        
-        // 去除首尾空白
-        cleaned = cleaned.trim();
-        
-        // 标准化路径分隔符 (Windows)
-        cleaned = cleaned.replace("/", "\\");
-        
-        // 检查是否为相对路径，如果是则转换为绝对路径
-        if (!isAbsolutePath(cleaned)) {
-            cleaned = convertToAbsolutePath(cleaned);
-        }
-        
-        return cleaned;
-    }
-    
-    /**
-     * 判断是否为绝对路径
-     */
-    private boolean isAbsolutePath(String path) {
-        if (path == null || path.isEmpty()) {
-            return false;
-        }
-        
-        // Windows绝对路径判断：以盘符开头(如C:)或网络路径(\\)
-        return path.matches("^[a-zA-Z]:[/\\\\].*") || path.startsWith("\\\\");
+        return pathResolver.cleanFilePath(path);
     }
-    
-    /**
-     * 将相对路径转换为绝对路径
-     * 基准目录为config-tool-java项目的上级目录
-     */
-    private String convertToAbsolutePath(String relativePath) {
-        try {
-            // 获取基准目录：config-tool-java项目的上级目录
-            String baseDir = getBaseDirectory();
-            
-            // 组合基准目录和相对路径
-            File absoluteFile = new File(baseDir, relativePath);
-            String absolutePath = absoluteFile.getCanonicalPath();
-            
-            logger.info("相对路径转换: {} -> {}", relativePath, absolutePath);
-            return absolutePath;
-            
-        } catch (IOException e) {
-            logger.error("转换相对路径失败: {}", relativePath, e);
-            // 如果转换失败，返回原始路径
-            return relativePath;
-        }
-    }
-    
+
     /**
-     * 获取基准目录：config-tool-java项目的上级目录
+     * 在文件中查找匹配项
      */
-    private String getBaseDirectory() {
-        try {
-            // 方法1：尝试通过jar文件位置获取
-            String jarPath = getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
-            File jarFile = new File(jarPath);
-            
-            // 如果是jar文件，获取其父目录的父目录
-            if (jarFile.isFile() && jarFile.getName().endsWith(".jar")) {
-                File jarDir = jarFile.getParentFile(); // jar文件所在目录
-                if (jarDir != null && jarDir.getParentFile() != null) {
-                    return jarDir.getParentFile().getCanonicalPath(); // jar文件目录的上级目录
-                }
-            }
-            
-            // 方法2：通过当前工作目录获取
-            String workDir = System.getProperty("user.dir");
-            File workDirFile = new File(workDir);
-            
-            // 如果当前工作目录名为config-tool-java，返回其上级目录
-            if (workDirFile.getName().equals("config-tool-java") && workDirFile.getParentFile() != null) {
-                return workDirFile.getParentFile().getCanonicalPath();
-            }
-            
-            // 否则返回当前工作目录
-            return workDir;
-            
-        } catch (Exception e) {
-            logger.error("获取基准目录失败", e);
-            // fallback：返回当前工作目录
-            return System.getProperty("user.dir");
-        }
+    public List<MatchResult> findMatches(String filePath, String prefix, String suffix) {
+        FileTarget pattern = new FileTarget(null, filePath, 0, prefix, suffix);
+        return findMatches(filePath, Collections.singletonList(pattern)).get(pattern);
     }
 
     /**
-     * 在文件中查找匹配项
+     * 在同一文件中批量查找多个目标点的匹配项
+     * 所有前缀构建为一个多模式匹配器，文件只读取一次、逐行扫描一遍
+     *
+     * @return 每个目标点对应的匹配结果（按传入顺序）
      */
-    public List<MatchResult> findMatches(String filePath, String prefix, String suffix) {
-        List<MatchResult> results = new ArrayList<>();
+    public Map<FileTarget, List<MatchResult>> findMatches(String filePath, Collection<FileTarget> patterns) {
+        Map<FileTarget, List<MatchResult>> results = new LinkedHashMap<>();
+        List<FileTarget> patternList = new ArrayList<>(patterns);
+        List<String> prefixes = new ArrayList<>(patternList.size());
+        for (FileTarget pattern : patternList) {
+            results.put(pattern, new ArrayList<>());
+            prefixes.add(pattern.getPrefix());
+        }
         
         try {
             String cleanedPath = cleanFilePath(filePath);
@@ -233,21 +113,25 @@ public class FileProcessor {
                 return results;
             }
             
-            // 检测文件编码
-            Charset fileEncoding = detectFileEncoding(file);
-            List<String> lines = FileUtils.readLines(file, fileEncoding);
+            List<String> lines = readFile(file).getLines();
+            PrefixMatcher matcher = new PrefixMatcher(prefixes);
             
+            int matchCount = 0;
             for (int i = 0; i < lines.size(); i++) {
                 String line = lines.get(i);
-                if (findPrefixIndex(line, prefix) != -1) {
+                BitSet found = matcher.match(line);
+                for (int p = found.nextSetBit(0); p >= 0; p = found.nextSetBit(p + 1)) {
+                    FileTarget pattern = patternList.get(p);
+                    String suffix = pattern.getSuffix();
                     // 如果没有指定suffix，或者suffix为空，或者line包含suffix
                     if (suffix == null || suffix.isEmpty() || line.contains(suffix)) {
-                        results.add(new MatchResult(i + 1, line)); // 行号从1开始
+                        results.get(pattern).add(new MatchResult(i + 1, line)); // 行号从1开始
+                        matchCount++;
                     }
                 }
             }
             
-            logger.info("在文件 {} 中找到 {} 个匹配项", cleanedPath, results.size());
+            logger.info("在文件 {} 中找到 {} 个匹配项 (前缀数: {})", cleanedPath, matchCount, patternList.size());
             
         } catch (IOException e) {
             logger.error("读取文件失败: {}", filePath, e);
@@ -277,41 +161,7 @@ public class FileProcessor {
                 return "文件不存在";
             }
             
-            // 检测文件编码
-            Charset fileEncoding = detectFileEncoding(file);
-            List<String> lines = FileUtils.readLines(file, fileEncoding);
-            
-            // 检查行号是否有效
-            if (target.getLineNumber() < 1 || target.getLineNumber() > lines.size()) {
-                return "行号无效";
-            }
-            
-            String line = lines.get(target.getLineNumber() - 1);
-            String prefix = target.getPrefix();
-            String suffix = target.getSuffix();
-            
-            // 查找前缀位置（支持空格匹配）
-            int prefixIndex = findPrefixIndex(line, prefix);
-            if (prefixIndex == -1) {
-                return "前缀未找到";
-            }
-            
-            int startIndex = prefixIndex + prefix.length();
-            int endIndex = line.length();
-            
-            // 如果指定了后缀，查找后缀位置
-            if (suffix != null && !suffix.isEmpty()) {
-                int suffixIndex = line.indexOf(suffix, startIndex);
-                if (suffixIndex != -1) {
-                    endIndex = suffixIndex;
-                }
-            }
-            
-            if (startIndex >= endIndex) {
-                return "";
-            }
-            
-            return line.substring(startIndex, endIndex);
+            return extractCurrentValue(readFile(file), target);
             
         } catch (IOException e) {
             logger.error("提取当前值失败: {}", target.getFilePath(), e);
@@ -319,76 +169,288 @@ public class FileProcessor {
         }
     }
 
+    /**
+     * 从已读取的文件内容中提取目标点的当前值
+     */
+    public String extractCurrentValue(FileContentCache.CachedFile cachedFile, FileTarget target) throws IOException {
+        // 检查行号是否有效
+        if (target.getLineNumber() < 1 || target.getLineNumber() > cachedFile.getLineCount()) {
+            return "行号无效";
+        }
+        
+        // 通过行索引只读取目标行
+        String line = cachedFile.getLine(target.getLineNumber());
+        String prefix = target.getPrefix() != null ? target.getPrefix() : "";
+        String suffix = target.getSuffix();
+        
+        // 查找前缀位置（支持空格匹配）
+        int prefixIndex = findPrefixIndex(line, prefix);
+        if (prefixIndex == -1) {
+            return "前缀未找到";
+        }
+        
+        int startIndex = prefixIndex + prefix.length();
+        int endIndex = line.length();
+        
+        // 如果指定了后缀，查找后缀位置
+        if (suffix != null && !suffix.isEmpty()) {
+            int suffixIndex = line.indexOf(suffix, startIndex);
+            if (suffixIndex != -1) {
+                endIndex = suffixIndex;
+            }
+        }
+        
+        if (startIndex >= endIndex) {
+            return "";
+        }
+        
+        return line.substring(startIndex, endIndex);
+    }
+
     /**
      * 应用配置更改到文件
      */
     public void applyChange(FileTarget target, String newValue) {
-        try {
-            String cleanedPath = cleanFilePath(target.getFilePath());
-            File file = new File(cleanedPath);
-            
-            if (!file.exists()) {
-                throw new RuntimeException("文件不存在: " + cleanedPath);
+        String cleanedPath = cleanFilePath(target.getFilePath());
+        PendingChange change = new PendingChange(target, newValue);
+        applyChanges(cleanedPath, Collections.singletonList(change));
+        
+        if (!change.isSuccess()) {
+            throw new RuntimeException(change.getErrorMessage());
+        }
+    }
+
+    /**
+     * 批量应用同一文件中的多个配置更改
+     * 每个更改的结果记录在对应的 PendingChange 中
+     */
+    public void applyChanges(String cleanedPath, List<PendingChange> changes) {
+        applyChanges(Collections.singletonMap(cleanedPath, changes));
+    }
+
+    /**
+     * 批量应用多个文件中的配置更改（key 为清理后的文件路径）
+     * 指向同一文件的不同写法（大小写、. 和 ..）先合并为一组；
+     * 每个文件只读取受影响的行，修改后写入临时文件；全部准备完成后统一提交，
+     * 通过原子重命名替换原文件，写入中途中断不会留下半写的配置文件
+     */
+    public void applyChanges(Map<String, List<PendingChange>> changesByFile) {
+        // 按文件键合并，保留每个文件第一次出现的路径写法
+        Map<String, String> pathsByKey = new HashMap<>();
+        Map<String, List<PendingChange>> mergedChanges = new LinkedHashMap<>();
+        for (Map.Entry<String, List<PendingChange>> entry : changesByFile.entrySet()) {
+            String path = pathsByKey.computeIfAbsent(fileKey(entry.getKey()), k -> entry.getKey());
+            mergedChanges.computeIfAbsent(path, k -> new ArrayList<>()).addAll(entry.getValue());
+        }
+        
+        Map<File, List<PendingChange>> stagedChanges = new LinkedHashMap<>();
+        try (AtomicFileWriter.Batch batch = new AtomicFileWriter.Batch()) {
+            for (Map.Entry<String, List<PendingChange>> entry : mergedChanges.entrySet()) {
+                List<PendingChange> applied = stageChanges(entry.getKey(), entry.getValue(), batch);
+                if (!applied.isEmpty()) {
+                    stagedChanges.put(AtomicFileWriter.targetFile(new File(entry.getKey())), applied);
+                }
             }
             
-            // 检查是否需要特殊处理
-            String processedValue = newValue;
-            if ("passed".equals(target.getId())) {
-                processedValue = DFMEncryption.encrypt(newValue);
-                logger.info("DFM加密处理完成: target.id={}", target.getId());
-            } else if ("convertPath".equals(target.getId())) {
-                processedValue = newValue.replace("\\", "/");
-                logger.info("路径转换处理完成: target.id={}, 原值: {}, 转换后: {}", target.getId(), newValue, processedValue);
+            if (batch.isEmpty()) {
+                return;
             }
             
-            // 检测文件编码
-            Charset fileEncoding = detectFileEncoding(file);
-            List<String> lines = FileUtils.readLines(file, fileEncoding);
-            
-            // 检查行号是否有效
-            if (target.getLineNumber() < 1 || target.getLineNumber() > lines.size()) {
-                throw new RuntimeException("行号无效: " + target.getLineNumber());
+            Map<File, IOException> failures;
+            try {
+                failures = batch.commit();
+            } finally {
+                for (File file : stagedChanges.keySet()) {
+                    fileCache.invalidate(file);
+                }
             }
             
-            String line = lines.get(target.getLineNumber() - 1);
-            String prefix = target.getPrefix();
-            String suffix = target.getSuffix();
-            
-            // 查找前缀位置（支持空格匹配）
-            int prefixIndex = findPrefixIndex(line, prefix);
-            if (prefixIndex == -1) {
-                throw new RuntimeException("前缀未找到: " + prefix);
+            for (Map.Entry<File, List<PendingChange>> entry : stagedChanges.entrySet()) {
+                IOException failure = failures.get(entry.getKey());
+                if (failure == null) {
+                    logger.info("成功更新文件 {} 的 {} 处配置", entry.getKey().getPath(), entry.getValue().size());
+                    continue;
+                }
+                logger.error("应用配置更改失败: {}", entry.getKey().getPath(), failure);
+                for (PendingChange change : entry.getValue()) {
+                    change.fail("应用配置更改失败: " + failure.getMessage());
+                }
             }
-            
-            int startIndex = prefixIndex + prefix.length();
-            int endIndex = line.length();
-            
-            // 如果指定了后缀，查找后缀位置
-            if (suffix != null && !suffix.isEmpty()) {
-                int suffixIndex = line.indexOf(suffix, startIndex);
-                if (suffixIndex != -1) {
-                    endIndex = suffixIndex;
+        }
+    }
+
+    /**
+     * 在内存中按顺序修改同一文件的受影响行，并将新内容写入批次的临时文件
+     *
+     * @return 已写入临时文件、等待提交的更改
+     */
+    private List<PendingChange> stageChanges(String cleanedPath, List<PendingChange> changes,
+                                             AtomicFileWriter.Batch batch) {
+        if (changes == null || changes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        File file = new File(cleanedPath);
+        if (!file.exists()) {
+            for (PendingChange change : changes) {
+                change.fail("文件不存在: " + cleanedPath);
+            }
+            return Collections.emptyList();
+        }
+        
+        try {
+            FileContentCache.CachedFile cachedFile = readFile(file);
+            int lineCount = cachedFile.getLineCount();
+            
+            // 只读取受影响的行，在内存中按顺序修改
+            SortedMap<Integer, String> originalLines = new TreeMap<>();
+            Map<Integer, String> updatedLines = new HashMap<>();
+            List<PendingChange> applied = new ArrayList<>();
+            for (PendingChange change : changes) {
+                try {
+                    FileTarget target = change.getTarget();
+                    String processedValue = processValue(change);
+                    
+                    // 检查行号是否有效
+                    int lineNumber = target.getLineNumber();
+                    if (lineNumber < 1 || lineNumber > lineCount) {
+                        throw new RuntimeException("行号无效: " + lineNumber);
+                    }
+                    
+                    String line = updatedLines.get(lineNumber);
+                    if (line == null) {
+                        line = cachedFile.getLine(lineNumber);
+                        originalLines.put(lineNumber, line);
+                    }
+                    updatedLines.put(lineNumber, replaceValue(line, target, processedValue));
+                    applied.add(change);
+                } catch (RuntimeException e) {
+                    change.fail(e.getMessage());
                 }
             }
             
-            // 构建新行，直接拼接，保持前缀原有格式
-            String newLine = line.substring(0, startIndex) + processedValue;
-            
-            if (suffix != null && !suffix.isEmpty() && endIndex < line.length()) {
-                newLine += line.substring(endIndex);
+            if (applied.isEmpty()) {
+                return applied;
             }
             
-            // 更新行
-            lines.set(target.getLineNumber() - 1, newLine);
-            
-            // 使用原有编码写回文件
-            FileUtils.writeLines(file, fileEncoding.name(), lines);
-            
-            logger.info("成功更新文件 {} 第 {} 行 (编码: {})", cleanedPath, target.getLineNumber(), fileEncoding.name());
+            // 只替换发生变化的字节区间，保留原有换行符和BOM
+            spliceWriter.writeLines(cachedFile, originalLines, updatedLines, batch);
+            logger.debug("已准备文件 {} 的 {} 处配置更改 (编码: {})", cleanedPath, applied.size(),
+                    cachedFile.getCharset().name());
+            return applied;
             
         } catch (IOException e) {
-            logger.error("应用配置更改失败: {}", target.getFilePath(), e);
-            throw new RuntimeException("应用配置更改失败: " + e.getMessage());
+            logger.error("应用配置更改失败: {}", cleanedPath, e);
+            for (PendingChange change : changes) {
+                if (change.isSuccess()) {
+                    change.fail("应用配置更改失败: " + e.getMessage());
+                }
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 根据目标点的值处理方式对新值进行特殊处理
+     */
+    private String processValue(PendingChange change) {
+        FileTarget target = change.getTarget();
+        String newValue = change.getNewValue();
+        String processedValue = newValue;
+        switch (change.getValueHandling()) {
+            case ENCRYPT:
+                processedValue = DFMEncryption.encrypt(newValue);
+                logger.info("DFM加密处理完成: target.id={}", target.getId());
+                break;
+            case CONVERT_PATH:
+                processedValue = newValue.replace("\\", "/");
+                logger.info("路径转换处理完成: target.id={}, 原值: {}, 转换后: {}", target.getId(), newValue, processedValue);
+                break;
+            default:
+                break;
+        }
+        return processedValue;
+    }
+
+    /**
+     * 将行中前缀与后缀之间的值替换为新值
+     */
+    private String replaceValue(String line, FileTarget target, String processedValue) {
+        String prefix = target.getPrefix();
+        String suffix = target.getSuffix();
+        
+        // 查找前缀位置（支持空格匹配）
+        int prefixIndex = findPrefixIndex(line, prefix);
+        if (prefixIndex == -1) {
+            throw new RuntimeException("前缀未找到: " + prefix);
+        }
+        
+        int startIndex = prefixIndex + prefix.length();
+        int endIndex = line.length();
+        
+        // 如果指定了后缀，查找后缀位置
+        if (suffix != null && !suffix.isEmpty()) {
+            int suffixIndex = line.indexOf(suffix, startIndex);
+            if (suffixIndex != -1) {
+                endIndex = suffixIndex;
+            }
+        }
+        
+        // 构建新行，直接拼接，保持前缀原有格式
+        String newLine = line.substring(0, startIndex) + processedValue;
+        
+        if (suffix != null && !suffix.isEmpty() && endIndex < line.length()) {
+            newLine += line.substring(endIndex);
+        }
+        
+        return newLine;
+    }
+
+    /**
+     * 待应用的配置更改
+     */
+    public static class PendingChange {
+        private final FileTarget target;
+        private final String newValue;
+        private final CompiledTemplate.ValueHandling valueHandling;
+        private String errorMessage;
+
+        public PendingChange(FileTarget target, String newValue) {
+            this(target, newValue, CompiledTemplate.ValueHandling.of(target));
+        }
+
+        public PendingChange(CompiledTemplate.CompiledTarget target, String newValue) {
+            this(target.getTarget(), newValue, target.getValueHandling());
+        }
+
+        private PendingChange(FileTarget target, String newValue, CompiledTemplate.ValueHandling valueHandling) {
+            this.target = target;
+            this.newValue = newValue;
+            this.valueHandling = valueHandling;
+        }
+
+        void fail(String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        public FileTarget getTarget() {
+            return target;
+        }
+
+        public String getNewValue() {
+            return newValue;
+        }
+
+        public CompiledTemplate.ValueHandling getValueHandling() {
+            return valueHandling;
+        }
+
+        public boolean isSuccess() {
+            return errorMessage == null;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,182 @@
+package com.configtool.service;
+
+import com.configtool.util.AtomicFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 文件局部写入器
+ * 只替换发生变化的字节区间，其余字节从原文件直接复制，原有换行符和BOM不受影响。
+ * 新内容写入原子写入批次的临时文件，由批次统一提交替换原文件
+ */
+public class FileSpliceWriter {
+    private static final Logger logger = LoggerFactory.getLogger(FileSpliceWriter.class);
+
+    /**
+     * 将修改后的行写回文件
+     *
+     * @param cachedFile    修改前的文件版本
+     * @param originalLines 被修改行的原始内容（行号 -> 内容）
+     * @param updatedLines  被修改行的新内容（行号 -> 内容）
+     * @param batch         新内容写入的原子写入批次
+     */
+    public void writeLines(FileContentCache.CachedFile cachedFile, SortedMap<Integer, String> originalLines,
+                           Map<Integer, String> updatedLines, AtomicFileWriter.Batch batch) throws IOException {
+        LineIndex index = cachedFile.getLineIndex();
+        if (index == null) {
+            rewriteDecoded(cachedFile, updatedLines, batch);
+            return;
+        }
+
+        Charset charset = cachedFile.getCharset();
+        List<Splice> splices = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : originalLines.entrySet()) {
+            int lineNumber = entry.getKey();
+            String oldLine = entry.getValue();
+            String newLine = updatedLines.get(lineNumber);
+            if (newLine == null || newLine.equals(oldLine)) {
+                continue;
+            }
+            long lineStart = index.getLineStart(lineNumber);
+            byte[] rawLine = index.readLineBytes(lineNumber);
+            splices.add(buildSplice(lineStart, rawLine, oldLine, newLine, charset));
+        }
+
+        if (!splices.isEmpty()) {
+            applySplices(cachedFile.getFile(), splices, batch);
+        }
+    }
+
+    /**
+     * 计算一行内需要替换的最小字节区间
+     * 去掉新旧内容相同的首尾部分；若原始字节与解码后重新编码的结果不一致（解码有损），则替换整行
+     */
+    private Splice buildSplice(long lineStart, byte[] rawLine, String oldLine, String newLine, Charset charset) {
+        byte[] oldBytes = oldLine.getBytes(charset);
+        if (!Arrays.equals(rawLine, oldBytes)) {
+            return new Splice(lineStart, lineStart + rawLine.length, newLine.getBytes(charset));
+        }
+
+        int maxCommon = Math.min(oldLine.length(), newLine.length());
+        int prefix = 0;
+        while (prefix < maxCommon && oldLine.charAt(prefix) == newLine.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix > 0 && Character.isHighSurrogate(oldLine.charAt(prefix - 1))) {
+            prefix--;
+        }
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && oldLine.charAt(oldLine.length() - 1 - suffix) == newLine.charAt(newLine.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(oldLine.charAt(oldLine.length() - suffix))) {
+            suffix--;
+        }
+
+        byte[] headBytes = oldLine.substring(0, prefix).getBytes(charset);
+        byte[] oldMiddle = oldLine.substring(prefix, oldLine.length() - suffix).getBytes(charset);
+        byte[] tailBytes = oldLine.substring(oldLine.length() - suffix).getBytes(charset);
+        if (headBytes.length + oldMiddle.length + tailBytes.length != oldBytes.length) {
+            // 有状态编码分段编码结果不可叠加，退回整行替换
+            return new Splice(lineStart, lineStart + oldBytes.length, newLine.getBytes(charset));
+        }
+
+        byte[] replacement = newLine.substring(prefix, newLine.length() - suffix).getBytes(charset);
+        long start = lineStart + headBytes.length;
+        return new Splice(start, start + oldMiddle.length, replacement);
+    }
+
+    /**
+     * 应用按偏移排序、互不重叠的替换区间
+     * 替换区间之间未修改的内容由原文件通道直接复制到临时文件，不经过堆内存
+     */
+    void applySplices(File file, List<Splice> splices, AtomicFileWriter.Batch batch) throws IOException {
+        batch.stage(file, target -> {
+            try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long fileSize = source.size();
+                long cursor = 0;
+                for (Splice splice : splices) {
+                    if (splice.end > fileSize) {
+                        throw new IOException("文件在写入过程中被截断: " + file.getPath());
+                    }
+                    AtomicFileWriter.transferFully(source, cursor, splice.start - cursor, target);
+                    AtomicFileWriter.writeFully(target, ByteBuffer.wrap(splice.replacement));
+                    cursor = splice.end;
+                }
+                AtomicFileWriter.transferFully(source, cursor, fileSize - cursor, target);
+            }
+        });
+        logger.debug("替换 {} 处内容: {}", splices.size(), file.getPath());
+    }
+
+    /**
+     * 不支持行索引的编码（如UTF-16）：整文件解码后按原有换行符拼回，保留BOM和换行风格
+     */
+    private void rewriteDecoded(FileContentCache.CachedFile cachedFile, Map<Integer, String> updatedLines,
+                                AtomicFileWriter.Batch batch) throws IOException {
+        File file = cachedFile.getFile();
+        Charset charset = cachedFile.getCharset();
+        String content = new String(Files.readAllBytes(file.toPath()), charset);
+
+        StringBuilder result = new StringBuilder(content.length() + 64);
+        int lineNumber = 1;
+        int lineStart = 0;
+        int length = content.length();
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && content.charAt(lineEnd) != '\n' && content.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            int next = lineEnd;
+            if (next < length && content.charAt(next) == '\r') {
+                next++;
+            }
+            if (next < length && content.charAt(next) == '\n' && (next == lineEnd || content.charAt(lineEnd) == '\r')) {
+                next++;
+            }
+
+            String updated = updatedLines.get(lineNumber);
+            if (updated != null) {
+                result.append(updated);
+            } else {
+                result.append(content, lineStart, lineEnd);
+            }
+            result.append(content, lineEnd, next);
+
+            lineNumber++;
+            lineStart = next;
+        }
+
+        batch.stage(file, result.toString().getBytes(charset));
+        logger.debug("按原有换行符整文件重写: {} (编码: {})", file.getPath(), charset.name());
+    }
+
+    /**
+     * 字节替换区间
+     */
+    static class Splice {
+        final long start;
+        final long end;
+        final byte[] replacement;
+
+        Splice(long start, long end, byte[] replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.configtool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 文件行偏移索引
+ * 针对某一版本的文件记录每行起始字节偏移，随机读取单行时只读取并解码该行的字节。
+ * 仅适用于换行符为单字节 \n / \r 的编码（UTF-8、GBK等），UTF-16等编码需按整文件读取
+ */
+public class LineIndex {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final Charset charset;
+    private final long fileSize;
+    private final long[] lineStarts;
+    private final int lineCount;
+
+    private LineIndex(File file, Charset charset, long fileSize, long[] lineStarts, int lineCount) {
+        this.file = file;
+        this.charset = charset;
+        this.fileSize = fileSize;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * 判断编码是否支持按字节建立行索引
+     */
+    public static boolean supports(Charset charset) {
+        return Arrays.equals("\n".getBytes(charset), new byte[]{'\n'})
+                && Arrays.equals("\r".getBytes(charset), new byte[]{'\r'});
+    }
+
+    /**
+     * 扫描文件建立行索引
+     * 换行规则与 BufferedReader.readLine 一致：\n、\r、\r\n 均视为行结束，
+     * 文件末尾的换行符不产生额外的空行
+     */
+    public static LineIndex build(File file, Charset charset) throws IOException {
+        long[] starts = new long[256];
+        int count = 1; // starts[0] = 0
+        long position = 0;
+        boolean previousCR = false;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (previousCR) {
+                        previousCR = false;
+                        if (b == '\n') {
+                            // \r\n 作为一个换行符，下一行从 \n 之后开始
+                            starts[count - 1] = position;
+                            continue;
+                        }
+                    }
+                    if (b == '\n' || b == '\r') {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                        }
+                        starts[count++] = position;
+                        previousCR = b == '\r';
+                    }
+                }
+                buffer.clear();
+            }
+        }
+
+        // 最后一个起始位置等于文件长度时，说明文件以换行结尾（或为空文件），不构成新行
+        int lines = starts[count - 1] == position ? count - 1 : count;
+        return new LineIndex(file, charset, position, Arrays.copyOf(starts, lines), lines);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * 获取指定行（从1开始）内容的起始字节偏移
+     */
+    public long getLineStart(int lineNumber) {
+        checkLineNumber(lineNumber);
+        return lineStarts[lineNumber - 1];
+    }
+
+    /**
+     * 读取并解码指定行（从1开始），不包含换行符
+     */
+    public String readLine(int lineNumber) throws IOException {
+        return new String(readLineBytes(lineNumber), charset);
+    }
+
+    /**
+     * 读取指定行（从1开始）的原始字节，不包含换行符
+     */
+    public byte[] readLineBytes(int lineNumber) throws IOException {
+        checkLineNumber(lineNumber);
+        long start = lineStarts[lineNumber - 1];
+        // 最后一行读到文件末尾，末尾的换行符在下面去除
+        long end = lineNumber < lineCount ? lineStarts[lineNumber] : fileSize;
+        int length = (int) (end - start);
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) == -1) {
+                    throw new IOException("文件在读取过程中被截断: " + file.getPath());
+                }
+            }
+        }
+
+        byte[] bytes = buffer.array();
+        int contentLength = length;
+        if (contentLength > 0 && bytes[contentLength - 1] == '\n') {
+            contentLength--;
+        }
+        if (contentLength > 0 && bytes[contentLength - 1] == '\r') {
+            contentLength--;
+        }
+        return contentLength == length ? bytes : Arrays.copyOf(bytes, contentLength);
+    }
+
+    private void checkLineNumber(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > lineCount) {
+            throw new IndexOutOfBoundsException("行号无效: " + lineNumber + " (文件共 " + lineCount + " 行)");
+        }
+    }
+}
@@ -1,22 +1,16 @@
 package com.configtool.service;
 
 import com.configtool.util.JsonUtil;
+import com.configtool.util.YamlPatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
 /**
  * Nacos API服务类
@@ -30,27 +24,55 @@ public class NacosApiService {
     private String username;
     private String password;
     private boolean enabled;
+    private int connectTimeoutMillis;
+    private int readTimeoutMillis;
+    private int healthCheckTimeoutMillis;
+    /** 项目类型（kmvue / dfmcloud）-> 数据库配置的同步目标 */
+    private Map<String, List<NacosSyncTarget>> syncTargets = new HashMap<>();
+    private NacosHealthState health;
+    private NacosHttpClient httpClient;
+    private NacosTokenManager tokenManager;
+    private NacosConfigCache configCache;
     
     public NacosApiService() {
-        loadNacosConfig();
+        this(null);
+    }
+    
+    /**
+     * @param config Nacos配置，为 null 时从 nacos-config.properties 加载
+     */
+    NacosApiService(Properties config) {
+        loadNacosConfig(config);
+        this.health = NacosHealthState.forUrl(nacosUrl);
+        this.httpClient = NacosHttpClient.forUrl(nacosUrl, connectTimeoutMillis, readTimeoutMillis);
+        this.tokenManager = NacosTokenManager.forUrl(nacosUrl, username, password, httpClient);
+        this.configCache = NacosConfigCache.forUrl(nacosUrl, httpClient, health, tokenManager);
     }
     
     /**
      * 加载Nacos配置
      */
-    private void loadNacosConfig() {
+    private void loadNacosConfig(Properties config) {
         try {
-            Properties props = new Properties();
-            props.load(getClass().getResourceAsStream("/nacos-config.properties"));
+            Properties props = config;
+            if (props == null) {
+                props = new Properties();
+                props.load(getClass().getResourceAsStream("/nacos-config.properties"));
+            }
             
             this.nacosUrl = props.getProperty("nacos.url", "http://localhost:8848");
             this.namespace = props.getProperty("nacos.namespace", "public");
             this.username = props.getProperty("nacos.username", "nacos");
             this.password = props.getProperty("nacos.password", "nacos");
             this.enabled = Boolean.parseBoolean(props.getProperty("nacos.enabled", "false"));
+            this.connectTimeoutMillis = parseTimeout(props, "nacos.connectTimeoutMillis", 5000);
+            this.readTimeoutMillis = parseTimeout(props, "nacos.readTimeoutMillis", 10000);
+            this.healthCheckTimeoutMillis = parseTimeout(props, "nacos.healthCheckTimeoutMillis", 3000);
+            this.syncTargets.put("kmvue", parseSyncTargets(props, "kmvue", "kmvue-commonConfig.yml"));
+            this.syncTargets.put("dfmcloud", parseSyncTargets(props, "dfmcloud", "dfmcloud-commonConfig.yml"));
             
-            logger.info("Nacos配置加载成功 - URL: {}, Namespace: {}, Enabled: {}", 
-                nacosUrl, namespace, enabled);
+            logger.info("Nacos配置加载成功 - URL: {}, Namespace: {}, Enabled: {}, 连接超时: {}ms, 读取超时: {}ms", 
+                nacosUrl, namespace, enabled, connectTimeoutMillis, readTimeoutMillis);
                 
         } catch (Exception e) {
             logger.warn("加载Nacos配置失败，将使用默认配置: {}", e.getMessage());
@@ -59,179 +81,349 @@ public class NacosApiService {
             this.username = "nacos";
             this.password = "nacos";
             this.enabled = false;
+            this.connectTimeoutMillis = 5000;
+            this.readTimeoutMillis = 10000;
+            this.healthCheckTimeoutMillis = 3000;
+            this.syncTargets.put("kmvue", Collections.singletonList(
+                new NacosSyncTarget("kmvue-commonConfig.yml", NacosSyncTarget.DEFAULT_GROUP, null)));
+            this.syncTargets.put("dfmcloud", Collections.singletonList(
+                new NacosSyncTarget("dfmcloud-commonConfig.yml", NacosSyncTarget.DEFAULT_GROUP, null)));
+        }
+    }
+    
+    /**
+     * 读取项目的同步目标：nacos.{项目}.targets，未配置时使用 nacos.{项目}.dataId 和 nacos.{项目}.group
+     */
+    private static List<NacosSyncTarget> parseSyncTargets(Properties props, String project, String defaultDataId) {
+        NacosSyncTarget defaultTarget = new NacosSyncTarget(
+            props.getProperty("nacos." + project + ".dataId", defaultDataId),
+            props.getProperty("nacos." + project + ".group", NacosSyncTarget.DEFAULT_GROUP),
+            null);
+        String value = props.getProperty("nacos." + project + ".targets");
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.singletonList(defaultTarget);
+        }
+        try {
+            List<NacosSyncTarget> targets = NacosSyncTarget.parseList(value);
+            if (!targets.isEmpty()) {
+                return Collections.unmodifiableList(targets);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("{}，使用默认同步目标 {}", e.getMessage(), defaultTarget);
+        }
+        return Collections.singletonList(defaultTarget);
+    }
+    
+    private static int parseTimeout(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
         }
+        try {
+            int timeout = Integer.parseInt(value.trim());
+            return timeout > 0 ? timeout : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.warn("Nacos超时配置无效: {}={}，使用默认值 {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * tenant参数：public命名空间使用空字符串
+     */
+    private String tenantParam() {
+        return "public".equals(namespace) ? "" : namespace;
+    }
+    
+    /**
+     * 同步目标的tenant参数，未指定命名空间时使用默认命名空间
+     */
+    private String tenantParam(NacosSyncTarget target) {
+        if (target.getNamespace() == null) {
+            return tenantParam();
+        }
+        return "public".equals(target.getNamespace()) ? "" : target.getNamespace();
     }
     
     /**
      * 检查Nacos服务是否可用
+     * 优先使用缓存的健康状态（由最近的实际请求更新），熔断打开期间直接返回不可用
      */
     public boolean isNacosAvailable() {
         if (!enabled) {
             return false;
         }
         
+        Boolean cached = health.getCachedAvailability();
+        if (cached != null) {
+            return cached;
+        }
+        
+        if (!health.allowRequest()) {
+            logger.debug("Nacos熔断中，视为不可用: {}", nacosUrl);
+            return false;
+        }
+        
         try {
-            URL url = new URL(nacosUrl + "/nacos/v1/ns/operator/metrics");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(3000);
-            conn.setReadTimeout(3000);
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = httpClient.get("/nacos/v1/ns/operator/metrics", null, healthCheckTimeoutMillis)
+                    .getStatusCode();
             boolean available = responseCode == 200;
+            if (available) {
+                health.recordSuccess();
+            } else {
+                health.recordFailure("HTTP " + responseCode);
+            }
             
             logger.info("Nacos服务状态检查: {} (HTTP {})", available ? "可用" : "不可用", responseCode);
             return available;
             
         } catch (Exception e) {
+            health.recordFailure(e.getMessage());
             logger.warn("Nacos服务不可用: {}", e.getMessage());
             return false;
         }
     }
     
+    /**
+     * 发出请求前检查是否启用以及熔断状态，熔断打开期间直接失败
+     */
+    private boolean allowRequest(String operation) {
+        if (!enabled) {
+            logger.warn("Nacos未启用，跳过{}", operation);
+            return false;
+        }
+        if (!health.allowRequest()) {
+            logger.warn("Nacos熔断中，跳过{}: {}", operation, nacosUrl);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 附加访问令牌（已登录时）
+     */
+    private Map<String, String> withAccessToken(Map<String, String> params) {
+        String accessToken = tokenManager.getAccessToken();
+        if (accessToken != null) {
+            params.put("accessToken", accessToken);
+        }
+        return params;
+    }
+    
+    /**
+     * 根据实际请求的响应更新健康状态：服务端错误视为失败，其他响应说明服务可达
+     * 403 表示令牌已失效，下次请求重新登录
+     */
+    private void recordResponse(int responseCode) {
+        if (responseCode == 403) {
+            tokenManager.invalidate();
+        }
+        if (responseCode >= 500) {
+            health.recordFailure("HTTP " + responseCode);
+        } else {
+            health.recordSuccess();
+        }
+    }
+    
+    /**
+     * 发布结果
+     */
+    public enum PublishOutcome {
+        /** 已发布 */
+        PUBLISHED,
+        /** 内容与服务端一致，跳过发布 */
+        UNCHANGED,
+        /** 服务端配置已被其他人修改（casMd5不匹配），未发布 */
+        CONFLICT,
+        /** 发布失败 */
+        FAILED;
+        
+        public boolean isSuccess() {
+            return this == PUBLISHED || this == UNCHANGED;
+        }
+    }
+    
+    /**
+     * 服务端配置内容及MD5
+     */
+    private static class RemoteConfig {
+        /** 配置是否存在 */
+        final boolean exists;
+        /** 服务端原始内容 */
+        final String content;
+        final String md5;
+        
+        RemoteConfig(boolean exists, String content) {
+            this.exists = exists;
+            this.content = content;
+            this.md5 = exists ? NacosConfigCache.md5(content) : null;
+        }
+    }
+    
     /**
      * 获取配置
+     * 本地快照经过监听确认时直接返回快照，否则从服务端获取并更新快照
      */
     public String getConfig(String dataId, String group) {
-        if (!enabled || !isNacosAvailable()) {
+        RemoteConfig remote = fetchConfig(dataId, group, tenantParam());
+        return remote != null && remote.exists ? normalizeConfig(remote.content) : null;
+    }
+    
+    /**
+     * 获取配置的原始内容
+     *
+     * @return 配置不存在时 exists 为 false；请求失败时返回 null
+     */
+    private RemoteConfig fetchConfig(String dataId, String group, String tenant) {
+        if (enabled) {
+            String snapshot = configCache.getFresh(dataId, group, tenant);
+            if (snapshot != null) {
+                logger.debug("使用Nacos配置快照: dataId={}, group={}", dataId, group);
+                return new RemoteConfig(true, snapshot);
+            }
+        }
+        
+        if (!allowRequest("获取配置")) {
             return null;
         }
         
         try {
-            // 处理tenant参数：public命名空间使用空字符串
-            String tenantParam = "public".equals(namespace) ? "" : namespace;
-            String urlStr = String.format("%s/nacos/v1/cs/configs?dataId=%s&group=%s&tenant=%s",
-                nacosUrl, 
-                URLEncoder.encode(dataId, StandardCharsets.UTF_8.toString()),
-                URLEncoder.encode(group, StandardCharsets.UTF_8.toString()),
-                URLEncoder.encode(tenantParam, StandardCharsets.UTF_8.toString()));
-            
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("dataId", dataId);
+            params.put("group", group);
+            params.put("tenant", tenant);
             
-            int responseCode = conn.getResponseCode();
+            NacosHttpClient.Response response = httpClient.get("/nacos/v1/cs/configs", withAccessToken(params));
+            int responseCode = response.getStatusCode();
+            recordResponse(responseCode);
             if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line).append("\n");
-                }
-                reader.close();
-                
-                String config = response.toString().trim();
-                logger.info("获取Nacos配置成功: dataId={}, group={}, 长度={}", dataId, group, config.length());
-                return config;
+                configCache.put(dataId, group, tenant, response.getBody());
+                logger.info("获取Nacos配置成功: dataId={}, group={}, 长度={}", dataId, group, response.getBody().length());
+                return new RemoteConfig(true, response.getBody());
+            } else if (responseCode == 404) {
+                configCache.remove(dataId, group, tenant);
+                logger.warn("Nacos配置不存在: dataId={}, group={}", dataId, group);
+                return new RemoteConfig(false, null);
             } else {
                 logger.warn("获取Nacos配置失败: dataId={}, group={}, HTTP {}", dataId, group, responseCode);
                 return null;
             }
             
         } catch (Exception e) {
+            health.recordFailure(e.getMessage());
             logger.error("获取Nacos配置异常: dataId={}, group={}", dataId, group, e);
             return null;
         }
     }
     
+    /**
+     * 统一换行符并去掉首尾空白，与按行读取的结果保持一致
+     */
+    private static String normalizeConfig(String content) {
+        return content.replace("\r\n", "\n").replace('\r', '\n').trim();
+    }
+    
     /**
      * 发布配置
      */
     public boolean publishConfig(String dataId, String group, String content) {
-        if (!enabled || !isNacosAvailable()) {
-            logger.warn("Nacos未启用或不可用，跳过配置发布");
-            return false;
+        return publishConfig(dataId, group, content, null) == PublishOutcome.PUBLISHED;
+    }
+    
+    /**
+     * 发布配置
+     *
+     * @param casMd5 发布所基于的服务端内容MD5，服务端内容已变化时拒绝发布；为 null 时直接覆盖
+     */
+    public PublishOutcome publishConfig(String dataId, String group, String content, String casMd5) {
+        return publishConfig(dataId, group, tenantParam(), content, casMd5);
+    }
+    
+    private PublishOutcome publishConfig(String dataId, String group, String tenant, String content, String casMd5) {
+        if (!allowRequest("配置发布")) {
+            return PublishOutcome.FAILED;
         }
         
         try {
-            String urlStr = nacosUrl + "/nacos/v1/cs/configs";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(10000);
-            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            
             // 构建请求参数
-            StringBuilder params = new StringBuilder();
-            params.append("dataId=").append(URLEncoder.encode(dataId, StandardCharsets.UTF_8.toString()));
-            params.append("&group=").append(URLEncoder.encode(group, StandardCharsets.UTF_8.toString()));
-            
-            // 处理tenant参数：public命名空间使用空字符串
-            String tenantParam = "public".equals(namespace) ? "" : namespace;
-            params.append("&tenant=").append(URLEncoder.encode(tenantParam, StandardCharsets.UTF_8.toString()));
-            params.append("&content=").append(URLEncoder.encode(content, StandardCharsets.UTF_8.toString()));
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("dataId", dataId);
+            params.put("group", group);
+            params.put("tenant", tenant);
+            params.put("content", content);
             
             // 添加type参数，指定为yaml格式
-            params.append("&type=yaml");
+            params.put("type", "yaml");
             
-            // 发送请求
-            OutputStream os = conn.getOutputStream();
-            os.write(params.toString().getBytes(StandardCharsets.UTF_8));
-            os.flush();
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            // 服务端只从请求头读取 casMd5
+            Map<String, String> headers = casMd5 != null ? Collections.singletonMap("casMd5", casMd5) : null;
+            NacosHttpClient.Response response = httpClient.post("/nacos/v1/cs/configs", withAccessToken(params),
+                    headers, readTimeoutMillis);
+            int responseCode = response.getStatusCode();
+            if (casMd5 != null && isCasConflict(response)) {
+                // 服务端正常响应了冲突，不计入失败
+                health.recordSuccess();
+                configCache.remove(dataId, group, tenant);
+                logger.warn("Nacos配置已被修改，放弃本次发布: dataId={}, group={}", dataId, group);
+                return PublishOutcome.CONFLICT;
+            }
+            recordResponse(responseCode);
             if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                String response = reader.readLine();
-                reader.close();
-                
-                boolean success = "true".equals(response);
+                boolean success = "true".equals(response.getBody().trim());
+                if (success) {
+                    // 发布成功后服务端内容即为本次内容，下次读取不必再请求服务端
+                    configCache.put(dataId, group, tenant, content);
+                }
                 logger.info("发布Nacos配置{}: dataId={}, group={}, 内容长度={}", 
                     success ? "成功" : "失败", dataId, group, content.length());
-                return success;
+                return success ? PublishOutcome.PUBLISHED : PublishOutcome.FAILED;
             } else {
                 logger.warn("发布Nacos配置失败: dataId={}, group={}, HTTP {}", dataId, group, responseCode);
-                return false;
+                return PublishOutcome.FAILED;
             }
             
         } catch (Exception e) {
+            health.recordFailure(e.getMessage());
             logger.error("发布Nacos配置异常: dataId={}, group={}", dataId, group, e);
-            return false;
+            return PublishOutcome.FAILED;
         }
     }
     
+    /**
+     * casMd5不匹配时服务端返回错误信息 "Cas publish fail, server md5 may have changed."
+     */
+    private static boolean isCasConflict(NacosHttpClient.Response response) {
+        return !response.isOk() && response.getBody() != null
+                && response.getBody().toLowerCase().contains("cas publish fail");
+    }
+    
     /**
      * 删除配置
      */
     public boolean deleteConfig(String dataId, String group) {
-        if (!enabled || !isNacosAvailable()) {
+        if (!allowRequest("删除配置")) {
             return false;
         }
         
         try {
-            String urlStr = nacosUrl + "/nacos/v1/cs/configs";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("DELETE");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            
             // 构建请求参数
-            StringBuilder params = new StringBuilder();
-            params.append("dataId=").append(URLEncoder.encode(dataId, StandardCharsets.UTF_8.toString()));
-            params.append("&group=").append(URLEncoder.encode(group, StandardCharsets.UTF_8.toString()));
-            params.append("&tenant=").append(URLEncoder.encode(namespace, StandardCharsets.UTF_8.toString()));
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("dataId", dataId);
+            params.put("group", group);
+            params.put("tenant", namespace);
             
-            // 发送请求
-            OutputStream os = conn.getOutputStream();
-            os.write(params.toString().getBytes(StandardCharsets.UTF_8));
-            os.flush();
-            os.close();
-            
-            int responseCode = conn.getResponseCode();
+            int responseCode = httpClient.delete("/nacos/v1/cs/configs", withAccessToken(params)).getStatusCode();
+            recordResponse(responseCode);
             boolean success = responseCode == 200;
+            if (success) {
+                configCache.remove(dataId, group, tenantParam());
+            }
             
             logger.info("删除Nacos配置{}: dataId={}, group={}", success ? "成功" : "失败", dataId, group);
             return success;
             
         } catch (Exception e) {
+            health.recordFailure(e.getMessage());
             logger.error("删除Nacos配置异常: dataId={}, group={}", dataId, group, e);
             return false;
         }
@@ -239,159 +431,102 @@ public class NacosApiService {
     
     /**
      * 更新YAML配置中的数据库配置
+     * 改写后的内容与服务端一致时跳过发布；发布时携带读取时的MD5，避免覆盖其他人同时所做的修改
+     */
+    public PublishOutcome updateDatabaseConfig(String dataId, String group, String url, String username, String password, String driverClassName) {
+        return updateDatabaseConfig(new NacosSyncTarget(dataId, group, null), url, username, password, driverClassName);
+    }
+    
+    /**
+     * 更新指定同步目标中的数据库配置
      */
-    public boolean updateDatabaseConfig(String dataId, String group, String url, String username, String password, String driverClassName) {
+    public PublishOutcome updateDatabaseConfig(NacosSyncTarget target, String url, String username, String password, String driverClassName) {
+        String dataId = target.getDataId();
+        String group = target.getGroup();
+        String tenant = tenantParam(target);
         try {
-            logger.info("开始更新数据库配置: dataId={}, group={}", dataId, group);
+            logger.info("开始更新数据库配置: {}", target);
             logger.info("配置参数 - URL: {}, Username: {}, Password: [隐藏], Driver: {}", url, username, driverClassName);
             
             // 获取现有配置
-            String currentConfig = getConfig(dataId, group);
-            if (currentConfig == null) {
-                logger.warn("无法获取现有配置，将创建新配置: dataId={}, group={}", dataId, group);
-                currentConfig = "";
-            } else {
+            RemoteConfig remote = fetchConfig(dataId, group, tenant);
+            if (remote == null) {
+                // 读取失败时不能当作新配置覆盖服务端内容
+                logger.warn("无法获取现有配置，放弃本次更新: dataId={}, group={}", dataId, group);
+                return PublishOutcome.FAILED;
+            }
+            String currentConfig = remote.exists ? normalizeConfig(remote.content) : "";
+            if (remote.exists) {
                 logger.info("获取到现有配置，长度: {}", currentConfig.length());
+            } else {
+                logger.warn("配置不存在，将创建新配置: dataId={}, group={}", dataId, group);
             }
             
             // 更新数据库配置
             String updatedConfig = updateYamlDatabaseConfig(currentConfig, url, username, password, driverClassName);
             logger.info("更新后的配置长度: {}", updatedConfig.length());
-            logger.info("更新后的配置内容:\n{}", updatedConfig);
+            
+            if (remote.exists && isSameContent(remote, updatedConfig)) {
+                logger.info("配置未变化，跳过发布: dataId={}, group={}", dataId, group);
+                return PublishOutcome.UNCHANGED;
+            }
             
             // 发布更新后的配置
-            boolean result = publishConfig(dataId, group, updatedConfig);
+            PublishOutcome result = publishConfig(dataId, group, tenant, updatedConfig, remote.md5);
             logger.info("配置发布结果: {}", result);
             
             return result;
             
         } catch (Exception e) {
             logger.error("更新数据库配置失败: dataId={}, group={}", dataId, group, e);
-            return false;
+            return PublishOutcome.FAILED;
         }
     }
     
     /**
-     * 更新YAML格式的数据库配置
+     * 根据已确认的本地快照判断数据库配置是否无需更新（不发出请求）
+     *
+     * @return 无需更新时返回 true；需要更新返回 false；没有可用快照时返回 null
      */
-    private String updateYamlDatabaseConfig(String yamlContent, String url, String username, String password, String driverClassName) {
-        logger.info("开始更新YAML配置，原配置长度: {}", yamlContent.length());
-        
-        // 如果原配置为空，创建完整配置
-        if (yamlContent == null || yamlContent.trim().isEmpty()) {
-            logger.info("原配置为空，创建新的完整配置");
-            StringBuilder newConfig = new StringBuilder();
-            newConfig.append("spring:\n");
-            newConfig.append("  datasource:\n");
-            newConfig.append("    url: ").append(url).append("\n");
-            newConfig.append("    username: ").append(username).append("\n");
-            newConfig.append("    password: ").append(password).append("\n");
-            newConfig.append("    driver-class-name: ").append(driverClassName).append("\n");
-            
-            String result = newConfig.toString();
-            logger.info("创建的新配置:\n{}", result);
-            return result;
+    public Boolean isDatabaseConfigUnchanged(NacosSyncTarget target, String url, String username, String password, String driverClassName) {
+        if (!enabled) {
+            return null;
         }
-        
-        StringBuilder result = new StringBuilder();
-        String[] lines = yamlContent.split("\n");
-        
-        boolean inSpring = false;
-        boolean inDatasource = false;
-        boolean foundSpring = false;
-        boolean foundDatasource = false;
-        boolean addedDatasource = false;
-        
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            String trimmedLine = line.trim();
-            
-            // 检测spring配置段
-            if (trimmedLine.equals("spring:")) {
-                inSpring = true;
-                foundSpring = true;
-                result.append(line).append("\n");
-                logger.debug("找到spring配置段");
-                continue;
-            }
-            
-            // 检测datasource配置段
-            if (inSpring && trimmedLine.equals("datasource:")) {
-                inDatasource = true;
-                foundDatasource = true;
-                result.append(line).append("\n");
-                
-                // 立即添加数据库配置
-                result.append("    url: ").append(url).append("\n");
-                result.append("    username: ").append(username).append("\n");
-                result.append("    password: ").append(password).append("\n");
-                result.append("    driver-class-name: ").append(driverClassName).append("\n");
-                addedDatasource = true;
-                
-                logger.info("在datasource段添加了数据库配置");
-                
-                // 跳过原有的数据库配置项
-                for (int j = i + 1; j < lines.length; j++) {
-                    String nextLine = lines[j];
-                    String nextTrimmed = nextLine.trim();
-                    
-                    // 如果是datasource的子项（4个空格开头）
-                    if (nextLine.startsWith("    ") && !nextLine.startsWith("      ")) {
-                        if (nextTrimmed.startsWith("url:") || 
-                            nextTrimmed.startsWith("username:") || 
-                            nextTrimmed.startsWith("password:") || 
-                            nextTrimmed.startsWith("driver-class-name:")) {
-                            // 跳过原有配置
-                            i = j;
-                            continue;
-                        } else {
-                            // 保留其他配置项
-                            result.append(nextLine).append("\n");
-                            i = j;
-                            continue;
-                        }
-                    } else {
-                        // 不是datasource的子项，回退
-                        i = j - 1;
-                        break;
-                    }
-                }
-                
-                inDatasource = false;
-                continue;
-            }
-            
-            // 检测是否离开spring配置段
-            if (inSpring && !line.startsWith("  ") && !line.trim().isEmpty() && !trimmedLine.equals("spring:")) {
-                inSpring = false;
-                inDatasource = false;
-            }
-            
-            // 保留其他行
-            result.append(line).append("\n");
+        String snapshot = configCache.getFresh(target.getDataId(), target.getGroup(), tenantParam(target));
+        if (snapshot == null) {
+            return null;
         }
-        
-        // 如果没有找到spring或datasource配置，添加完整配置
-        if (!foundSpring) {
-            logger.info("未找到spring配置，添加完整配置");
-            result.append("spring:\n");
-            result.append("  datasource:\n");
-            result.append("    url: ").append(url).append("\n");
-            result.append("    username: ").append(username).append("\n");
-            result.append("    password: ").append(password).append("\n");
-            result.append("    driver-class-name: ").append(driverClassName).append("\n");
-        } else if (!foundDatasource) {
-            logger.info("找到spring但未找到datasource配置，添加datasource配置");
-            result.append("  datasource:\n");
-            result.append("    url: ").append(url).append("\n");
-            result.append("    username: ").append(username).append("\n");
-            result.append("    password: ").append(password).append("\n");
-            result.append("    driver-class-name: ").append(driverClassName).append("\n");
+        try {
+            String updatedConfig = updateYamlDatabaseConfig(normalizeConfig(snapshot), url, username, password, driverClassName);
+            return isSameContent(new RemoteConfig(true, snapshot), updatedConfig);
+        } catch (IllegalArgumentException e) {
+            // 交给同步队列读取服务端内容后再报告失败
+            return null;
         }
+    }
+    
+    /**
+     * 改写后的内容与服务端内容是否一致：MD5相同，或只有换行符和首尾空白不同
+     */
+    private static boolean isSameContent(RemoteConfig remote, String updatedConfig) {
+        return NacosConfigCache.md5(updatedConfig).equals(remote.md5)
+                || normalizeConfig(updatedConfig).equals(normalizeConfig(remote.content));
+    }
+    
+    /**
+     * 更新YAML格式的数据库配置
+     * 只替换 spring.datasource 下四个键的值，注释、顺序和其他配置保持不变；缺失的键按原有缩进补上
+     */
+    private String updateYamlDatabaseConfig(String yamlContent, String url, String username, String password, String driverClassName) {
+        Map<String, String> updates = new LinkedHashMap<>();
+        updates.put("spring.datasource.url", url);
+        updates.put("spring.datasource.username", username);
+        updates.put("spring.datasource.password", password);
+        updates.put("spring.datasource.driver-class-name", driverClassName);
         
-        String finalResult = result.toString();
-        logger.info("YAML数据库配置更新完成，最终配置长度: {}", finalResult.length());
-        return finalResult;
+        String result = YamlPatcher.patch(yamlContent, updates);
+        logger.debug("YAML数据库配置更新完成，原配置长度: {}, 最终配置长度: {}", yamlContent.length(), result.length());
+        return result;
     }
     
     // Getter方法
@@ -406,4 +541,41 @@ public class NacosApiService {
     public String getNamespace() {
         return namespace;
     }
+    
+    /**
+     * 获取项目的数据库配置同步目标
+     *
+     * @param appType 项目类型，kmvue 以外均按 dfmcloud 处理
+     */
+    public List<NacosSyncTarget> getSyncTargets(String appType) {
+        return syncTargets.get("kmvue".equals(appType) ? "kmvue" : "dfmcloud");
+    }
+    
+    /**
+     * 获取健康状态和熔断信息
+     */
+    public Map<String, Object> getHealthStatus() {
+        return health.getStatus();
+    }
+    
+    /**
+     * 获取HTTP传输统计（请求次数、耗时、传输字节数）
+     */
+    public Map<String, Object> getTransportStatistics() {
+        return httpClient.getStatistics();
+    }
+    
+    /**
+     * 获取登录令牌状态
+     */
+    public Map<String, Object> getAuthStatus() {
+        return tokenManager.getStatus();
+    }
+    
+    /**
+     * 获取配置快照缓存状态
+     */
+    public Map<String, Object> getConfigCacheStatus() {
+        return configCache.getStatus();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,486 @@
+package com.configtool.service;
+
+import com.configtool.util.AtomicFileWriter;
+import com.configtool.util.JsonUtil;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nacos配置本地快照缓存（按服务地址共享）
+ * 保存 dataId/group/tenant 对应的配置内容及MD5，持久化到 data/nacos-snapshot/ 目录。
+ * 后台线程通过Nacos长轮询监听接口（/nacos/v1/cs/configs/listener）感知服务端变更并刷新快照；
+ * 只有经过监听确认、且监听仍在正常工作的快照才直接用于读取，其余情况仍从服务端获取
+ */
+public class NacosConfigCache {
+    private static final Logger logger = LoggerFactory.getLogger(NacosConfigCache.class);
+
+    private static final String SNAPSHOT_DIR = "data/nacos-snapshot/";
+
+    private static final String CONFIG_PATH = "/nacos/v1/cs/configs";
+    private static final String LISTENER_PATH = "/nacos/v1/cs/configs/listener";
+
+    /** 长轮询挂起时间 */
+    static final long LONG_POLL_TIMEOUT_MILLIS = 30000;
+
+    /** 长轮询读取超时在挂起时间之外的余量 */
+    private static final long LONG_POLL_GRACE_MILLIS = 10000;
+
+    /** 监听失败后的重试等待时间 */
+    private static final long MIN_RETRY_MILLIS = 2000;
+    private static final long MAX_RETRY_MILLIS = 30000;
+
+    /** Listening-Configs 参数中的字段分隔符和配置分隔符 */
+    private static final char WORD_SEPARATOR = '\u0002';
+    private static final char LINE_SEPARATOR = '\u0001';
+
+    private static final Map<String, NacosConfigCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String nacosUrl;
+    private final NacosHttpClient httpClient;
+    private final NacosHealthState health;
+    private final NacosTokenManager tokenManager;
+    private final File snapshotFile;
+
+    /** dataId@group@tenant -> 快照 */
+    private final Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+
+    /** 正在进行的长轮询中监听的配置 */
+    private Set<String> polling = new HashSet<>();
+    /** 最近一次长轮询成功返回的时间 */
+    private long lastPollOkAt;
+
+    private Thread listener;
+    private boolean stopped;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong pollCount = new AtomicLong();
+    private final AtomicLong changeCount = new AtomicLong();
+
+    NacosConfigCache(String nacosUrl, NacosHttpClient httpClient, NacosHealthState health,
+                     NacosTokenManager tokenManager, File snapshotFile) {
+        this.nacosUrl = nacosUrl;
+        this.httpClient = httpClient;
+        this.health = health;
+        this.tokenManager = tokenManager;
+        this.snapshotFile = snapshotFile;
+        load();
+    }
+
+    /**
+     * 获取指定Nacos地址的快照缓存
+     */
+    public static NacosConfigCache forUrl(String nacosUrl, NacosHttpClient httpClient, NacosHealthState health,
+                                          NacosTokenManager tokenManager) {
+        return INSTANCES.computeIfAbsent(nacosUrl, url -> new NacosConfigCache(url, httpClient, health, tokenManager,
+                new File(SNAPSHOT_DIR + url.replaceAll("[^A-Za-z0-9.-]", "_") + ".json")));
+    }
+
+    /**
+     * 停止所有监听线程
+     */
+    public static void shutdownAll() {
+        for (NacosConfigCache cache : INSTANCES.values()) {
+            cache.shutdown();
+        }
+    }
+
+    /**
+     * 获取可直接使用的快照内容（服务端原始内容）
+     * 快照未经监听确认或监听已失效时返回 null，调用方应从服务端获取
+     */
+    public synchronized String getFresh(String dataId, String group, String tenant) {
+        Snapshot snapshot = snapshots.get(key(dataId, group, tenant));
+        if (snapshot != null && snapshot.confirmed && isListening()) {
+            hitCount.incrementAndGet();
+            return snapshot.content;
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 记录服务端当前的配置内容（刚获取或刚发布成功的内容）
+     */
+    public void put(String dataId, String group, String tenant, String content) {
+        String key = key(dataId, group, tenant);
+        synchronized (this) {
+            Snapshot snapshot = new Snapshot(dataId, group, tenant, content, md5(content));
+            // 正在进行的长轮询已经监听了该配置，之后的变更会被感知；新加入的配置要等下一轮监听确认
+            snapshot.confirmed = polling.contains(key) && isListening();
+            snapshots.put(key, snapshot);
+            ensureListener();
+            notifyAll();
+        }
+        persist();
+    }
+
+    /**
+     * 配置已不存在（服务端返回404或已删除）
+     */
+    public void remove(String dataId, String group, String tenant) {
+        boolean removed;
+        synchronized (this) {
+            removed = snapshots.remove(key(dataId, group, tenant)) != null;
+        }
+        if (removed) {
+            persist();
+        }
+    }
+
+    /**
+     * 监听是否在正常工作：最近一次长轮询在挂起时间加余量内成功返回
+     */
+    private boolean isListening() {
+        return lastPollOkAt > 0
+                && System.currentTimeMillis() - lastPollOkAt <= LONG_POLL_TIMEOUT_MILLIS + LONG_POLL_GRACE_MILLIS;
+    }
+
+    private void ensureListener() {
+        if (listener == null && !stopped) {
+            listener = new Thread(this::runListener, "nacos-config-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    private void runListener() {
+        long retryMillis = MIN_RETRY_MILLIS;
+        while (true) {
+            List<Snapshot> listening;
+            boolean initial;
+            synchronized (this) {
+                while (!stopped && snapshots.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                listening = new ArrayList<>(snapshots.values());
+                initial = false;
+                polling = new HashSet<>();
+                for (Snapshot snapshot : listening) {
+                    polling.add(key(snapshot.dataId, snapshot.group, snapshot.tenant));
+                    initial |= !snapshot.confirmed;
+                }
+            }
+
+            boolean ok = false;
+            if (health.allowRequest()) {
+                ok = poll(listening, initial);
+            }
+
+            synchronized (this) {
+                polling = new HashSet<>();
+                if (stopped) {
+                    return;
+                }
+                if (ok) {
+                    retryMillis = MIN_RETRY_MILLIS;
+                    continue;
+                }
+                try {
+                    wait(retryMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                retryMillis = Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+            }
+        }
+    }
+
+    /**
+     * 执行一次长轮询并刷新发生变化的配置
+     *
+     * @param initial 有未确认的快照时不挂起，立即返回比较结果
+     */
+    private boolean poll(List<Snapshot> listening, boolean initial) {
+        Map<String, String> params = new HashMap<>();
+        params.put("Listening-Configs", buildListeningConfigs(listening));
+        addAccessToken(params);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Long-Pulling-Timeout", String.valueOf(LONG_POLL_TIMEOUT_MILLIS));
+        if (initial) {
+            headers.put("Long-Pulling-Timeout-No-Hangup", "true");
+        }
+
+        NacosHttpClient.Response response;
+        try {
+            pollCount.incrementAndGet();
+            response = httpClient.post(LISTENER_PATH, params, headers,
+                    (int) (LONG_POLL_TIMEOUT_MILLIS + LONG_POLL_GRACE_MILLIS));
+        } catch (IOException e) {
+            health.recordFailure(e.getMessage());
+            logger.warn("Nacos配置监听失败: {}", e.getMessage());
+            return false;
+        }
+        if (response.getStatusCode() == 403) {
+            tokenManager.invalidate();
+        }
+        if (response.getStatusCode() >= 500) {
+            health.recordFailure("HTTP " + response.getStatusCode());
+        } else {
+            health.recordSuccess();
+        }
+        if (!response.isOk()) {
+            logger.warn("Nacos配置监听失败: HTTP {}", response.getStatusCode());
+            return false;
+        }
+
+        Set<String> changed = parseChangedKeys(response.getBody());
+        for (Snapshot snapshot : listening) {
+            String key = key(snapshot.dataId, snapshot.group, snapshot.tenant);
+            if (changed.contains(key)) {
+                changeCount.incrementAndGet();
+                logger.info("Nacos配置已变更，刷新本地快照: dataId={}, group={}", snapshot.dataId, snapshot.group);
+                refresh(snapshot);
+            }
+        }
+
+        synchronized (this) {
+            lastPollOkAt = System.currentTimeMillis();
+            for (Snapshot snapshot : listening) {
+                String key = key(snapshot.dataId, snapshot.group, snapshot.tenant);
+                // 轮询期间被替换的快照不在本次确认范围内
+                if (!changed.contains(key) && snapshots.get(key) == snapshot) {
+                    snapshot.confirmed = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从服务端重新获取配置并更新快照
+     */
+    private void refresh(Snapshot snapshot) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("dataId", snapshot.dataId);
+        params.put("group", snapshot.group);
+        params.put("tenant", snapshot.tenant);
+        addAccessToken(params);
+        try {
+            NacosHttpClient.Response response = httpClient.get(CONFIG_PATH, params);
+            if (response.isOk()) {
+                synchronized (this) {
+                    Snapshot refreshed = new Snapshot(snapshot.dataId, snapshot.group, snapshot.tenant,
+                            response.getBody(), md5(response.getBody()));
+                    refreshed.confirmed = true;
+                    snapshots.put(key(snapshot.dataId, snapshot.group, snapshot.tenant), refreshed);
+                }
+                persist();
+            } else if (response.getStatusCode() == 404) {
+                remove(snapshot.dataId, snapshot.group, snapshot.tenant);
+            } else {
+                markUnconfirmed(snapshot);
+            }
+        } catch (IOException e) {
+            logger.warn("刷新Nacos配置快照失败: dataId={}, group={}, {}", snapshot.dataId, snapshot.group, e.getMessage());
+            markUnconfirmed(snapshot);
+        }
+    }
+
+    private void addAccessToken(Map<String, String> params) {
+        String accessToken = tokenManager.getAccessToken();
+        if (accessToken != null) {
+            params.put("accessToken", accessToken);
+        }
+    }
+
+    private synchronized void markUnconfirmed(Snapshot snapshot) {
+        Snapshot current = snapshots.get(key(snapshot.dataId, snapshot.group, snapshot.tenant));
+        if (current != null) {
+            current.confirmed = false;
+        }
+    }
+
+    private static String buildListeningConfigs(List<Snapshot> listening) {
+        StringBuilder sb = new StringBuilder();
+        for (Snapshot snapshot : listening) {
+            sb.append(snapshot.dataId).append(WORD_SEPARATOR);
+            sb.append(snapshot.group).append(WORD_SEPARATOR);
+            sb.append(snapshot.md5);
+            if (!snapshot.tenant.isEmpty()) {
+                sb.append(WORD_SEPARATOR).append(snapshot.tenant);
+            }
+            sb.append(LINE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析监听接口返回的变更列表（URL编码的 dataId^2group[^2tenant]^1 ...）
+     */
+    static Set<String> parseChangedKeys(String body) {
+        Set<String> changed = new HashSet<>();
+        if (body == null || body.trim().isEmpty()) {
+            return changed;
+        }
+        String decoded;
+        try {
+            decoded = URLDecoder.decode(body.trim(), StandardCharsets.UTF_8.name());
+        } catch (Exception e) {
+            logger.warn("无法解析Nacos监听结果: {}", body);
+            return changed;
+        }
+        for (String line : decoded.split(String.valueOf(LINE_SEPARATOR))) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split(String.valueOf(WORD_SEPARATOR));
+            if (parts.length >= 2) {
+                changed.add(key(parts[0], parts[1], parts.length >= 3 ? parts[2] : ""));
+            }
+        }
+        return changed;
+    }
+
+    private static String key(String dataId, String group, String tenant) {
+        return dataId + "@" + group + "@" + (tenant != null ? tenant : "");
+    }
+
+    /**
+     * 与Nacos服务端一致的内容MD5（UTF-8编码，小写十六进制）
+     */
+    static String md5(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5算法不可用", e);
+        }
+    }
+
+    /**
+     * 加载持久化的快照（加载的快照需要经过监听确认才会使用）
+     */
+    private void load() {
+        if (!snapshotFile.exists()) {
+            return;
+        }
+        try {
+            String json = new String(Files.readAllBytes(snapshotFile.toPath()), StandardCharsets.UTF_8);
+            List<Snapshot> loaded = JsonUtil.getGson().fromJson(json, new TypeToken<List<Snapshot>>() {}.getType());
+            if (loaded != null) {
+                for (Snapshot snapshot : loaded) {
+                    if (snapshot.dataId == null || snapshot.group == null || snapshot.content == null) {
+                        continue;
+                    }
+                    if (snapshot.tenant == null) {
+                        snapshot.tenant = "";
+                    }
+                    snapshot.md5 = md5(snapshot.content);
+                    snapshot.confirmed = false;
+                    snapshots.put(key(snapshot.dataId, snapshot.group, snapshot.tenant), snapshot);
+                }
+            }
+            logger.info("加载Nacos配置快照 {} 个: {}", snapshots.size(), nacosUrl);
+        } catch (Exception e) {
+            logger.warn("加载Nacos配置快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将快照写入 data/nacos-snapshot/ 目录
+     */
+    private void persist() {
+        List<Snapshot> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(snapshots.values());
+        }
+        try {
+            File dir = snapshotFile.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            AtomicFileWriter.write(snapshotFile, JsonUtil.toJson(copy).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("保存Nacos配置快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止监听线程
+     */
+    public void shutdown() {
+        Thread thread;
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+            thread = listener;
+        }
+        if (thread != null) {
+            // 长轮询可能正挂起在读取上，守护线程随进程退出即可，这里不等待
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 获取快照缓存状态
+     */
+    public synchronized Map<String, Object> getStatus() {
+        int confirmed = 0;
+        for (Snapshot snapshot : snapshots.values()) {
+            if (snapshot.confirmed) {
+                confirmed++;
+            }
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("snapshotCount", snapshots.size());
+        status.put("confirmedCount", confirmed);
+        status.put("listening", isListening());
+        status.put("lastPollOkAt", lastPollOkAt);
+        status.put("hitCount", hitCount.get());
+        status.put("missCount", missCount.get());
+        status.put("pollCount", pollCount.get());
+        status.put("changeCount", changeCount.get());
+        return status;
+    }
+
+    /**
+     * 配置快照
+     */
+    private static class Snapshot {
+        String dataId;
+        String group;
+        String tenant;
+        String content;
+        transient String md5;
+        /** 是否经过监听确认与服务端一致 */
+        transient boolean confirmed;
+
+        Snapshot(String dataId, String group, String tenant, String content, String md5) {
+            this.dataId = dataId;
+            this.group = group;
+            this.tenant = tenant != null ? tenant : "";
+            this.content = content;
+            this.md5 = md5;
+        }
+    }
+}
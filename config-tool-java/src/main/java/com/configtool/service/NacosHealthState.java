@@ -0,0 +1,148 @@
+package com.configtool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nacos服务健康状态（按服务地址共享）
+ * 缓存最近一次可用性结果，并实现关闭/打开/半开三态熔断：
+ * 连续失败达到阈值后打开熔断，期间请求直接失败；冷却时间过后放行一个试探请求，成功则恢复，失败则继续熔断。
+ * 状态由实际请求的结果更新，不需要额外的探测请求
+ */
+public class NacosHealthState {
+    private static final Logger logger = LoggerFactory.getLogger(NacosHealthState.class);
+
+    /** 可用性结果的缓存时间 */
+    static final long HEALTH_TTL_MILLIS = 10000;
+
+    /** 连续失败多少次后打开熔断 */
+    static final int FAILURE_THRESHOLD = 3;
+
+    /** 熔断打开后的冷却时间 */
+    static final long OPEN_MILLIS = 30000;
+
+    public enum State {
+        /** 正常放行 */
+        CLOSED,
+        /** 熔断中，请求直接失败 */
+        OPEN,
+        /** 冷却结束，放行一个试探请求 */
+        HALF_OPEN
+    }
+
+    private static final Map<String, NacosHealthState> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String nacosUrl;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trialStartedAt;
+
+    /** 最近一次请求结果及时间 */
+    private boolean lastAvailable;
+    private long lastCheckedAt;
+    private String lastError;
+
+    private long rejectedCount;
+
+    NacosHealthState(String nacosUrl) {
+        this.nacosUrl = nacosUrl;
+    }
+
+    /**
+     * 获取指定Nacos地址的健康状态
+     */
+    public static NacosHealthState forUrl(String nacosUrl) {
+        return INSTANCES.computeIfAbsent(nacosUrl, NacosHealthState::new);
+    }
+
+    /**
+     * 缓存的可用性结果，超过缓存时间时返回 null
+     */
+    public synchronized Boolean getCachedAvailability() {
+        if (lastCheckedAt == 0 || System.currentTimeMillis() - lastCheckedAt > HEALTH_TTL_MILLIS) {
+            return null;
+        }
+        return lastAvailable;
+    }
+
+    /**
+     * 是否允许发出请求：熔断打开期间直接拒绝，冷却结束后只放行一个试探请求
+     */
+    public synchronized boolean allowRequest() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < OPEN_MILLIS) {
+                    rejectedCount++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialStartedAt = now;
+                logger.info("Nacos熔断冷却结束，放行试探请求: {}", nacosUrl);
+                return true;
+            case HALF_OPEN:
+            default:
+                // 试探请求未返回结果时，超过冷却时间再放行一个
+                if (now - trialStartedAt < OPEN_MILLIS) {
+                    rejectedCount++;
+                    return false;
+                }
+                trialStartedAt = now;
+                return true;
+        }
+    }
+
+    /**
+     * 记录一次成功的请求（服务有响应）
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Nacos服务恢复，关闭熔断: {}", nacosUrl);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        lastAvailable = true;
+        lastCheckedAt = System.currentTimeMillis();
+        lastError = null;
+    }
+
+    /**
+     * 记录一次失败的请求（连接失败、超时或服务端错误）
+     */
+    public synchronized void recordFailure(String error) {
+        consecutiveFailures++;
+        lastAvailable = false;
+        lastCheckedAt = System.currentTimeMillis();
+        lastError = error;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)) {
+            state = State.OPEN;
+            openedAt = lastCheckedAt;
+            logger.warn("Nacos连续失败 {} 次，打开熔断 {} 秒: {} ({})", consecutiveFailures, OPEN_MILLIS / 1000,
+                    nacosUrl, error);
+        }
+    }
+
+    /**
+     * 获取健康状态信息
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", state.name());
+        status.put("consecutiveFailures", consecutiveFailures);
+        status.put("lastAvailable", lastCheckedAt > 0 ? lastAvailable : null);
+        status.put("lastCheckedAt", lastCheckedAt);
+        status.put("lastError", lastError);
+        status.put("rejectedCount", rejectedCount);
+        if (state == State.OPEN) {
+            status.put("retryInMillis", Math.max(0, OPEN_MILLIS - (System.currentTimeMillis() - openedAt)));
+        }
+        return status;
+    }
+}
@@ -0,0 +1,295 @@
+package com.configtool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Nacos HTTP传输层（按服务地址共享）
+ * 所有Nacos请求都通过它发出：请求支持gzip压缩的响应，响应流（包括错误响应）总是完整读取并关闭，
+ * 使JDK能够复用keep-alive连接，而不是每次请求都重新建立连接。
+ * 同时统计请求次数、耗时和传输字节数
+ */
+public class NacosHttpClient {
+    private static final Logger logger = LoggerFactory.getLogger(NacosHttpClient.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Map<String, NacosHttpClient> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String baseUrl;
+    private volatile int connectTimeoutMillis;
+    private volatile int readTimeoutMillis;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong gzipResponseCount = new AtomicLong();
+
+    NacosHttpClient(String baseUrl, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.baseUrl = baseUrl;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * 获取指定Nacos地址的传输层，超时时间以最近一次加载的配置为准
+     */
+    public static NacosHttpClient forUrl(String baseUrl, int connectTimeoutMillis, int readTimeoutMillis) {
+        NacosHttpClient client = INSTANCES.computeIfAbsent(baseUrl,
+                url -> new NacosHttpClient(url, connectTimeoutMillis, readTimeoutMillis));
+        client.connectTimeoutMillis = connectTimeoutMillis;
+        client.readTimeoutMillis = readTimeoutMillis;
+        return client;
+    }
+
+    /**
+     * 发送GET请求
+     */
+    public Response get(String path, Map<String, String> params) throws IOException {
+        return execute("GET", path, params, null, readTimeoutMillis);
+    }
+
+    /**
+     * 发送GET请求并使用指定的超时时间（连接和读取都不超过该时间）
+     */
+    public Response get(String path, Map<String, String> params, int timeoutMillis) throws IOException {
+        return execute("GET", path, params, null, timeoutMillis);
+    }
+
+    /**
+     * 发送表单POST请求
+     */
+    public Response post(String path, Map<String, String> params) throws IOException {
+        return execute("POST", path, params, null, readTimeoutMillis);
+    }
+
+    /**
+     * 发送带附加请求头的表单POST请求，读取超时使用指定值（用于长轮询）
+     */
+    public Response post(String path, Map<String, String> params, Map<String, String> headers, int timeoutMillis)
+            throws IOException {
+        return execute("POST", path, params, headers, timeoutMillis);
+    }
+
+    /**
+     * 发送DELETE请求（参数放在查询字符串中）
+     */
+    public Response delete(String path, Map<String, String> params) throws IOException {
+        return execute("DELETE", path, params, null, readTimeoutMillis);
+    }
+
+    private Response execute(String method, String path, Map<String, String> params, Map<String, String> headers,
+                             int timeoutMillis) throws IOException {
+        boolean hasBody = "POST".equals(method);
+        String query = encodeParams(params);
+        String urlStr = baseUrl + path;
+        if (!hasBody && !query.isEmpty()) {
+            urlStr += (urlStr.contains("?") ? "&" : "?") + query;
+        }
+
+        requestCount.incrementAndGet();
+        long start = System.currentTimeMillis();
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(urlStr).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(Math.min(connectTimeoutMillis, timeoutMillis));
+            conn.setReadTimeout(timeoutMillis);
+            conn.setUseCaches(false);
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            conn.setRequestProperty("Connection", "keep-alive");
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            if (hasBody) {
+                byte[] body = query.getBytes(StandardCharsets.UTF_8);
+                conn.setDoOutput(true);
+                conn.setFixedLengthStreamingMode(body.length);
+                conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(body);
+                }
+                bytesSent.addAndGet(body.length);
+            }
+
+            int statusCode = conn.getResponseCode();
+            String body = readBody(conn, statusCode);
+            return new Response(statusCode, body);
+
+        } catch (IOException e) {
+            failureCount.incrementAndGet();
+            drainErrorStream(conn);
+            throw e;
+        } finally {
+            long elapsed = System.currentTimeMillis() - start;
+            totalLatencyMillis.addAndGet(elapsed);
+            updateMax(maxLatencyMillis, elapsed);
+            logger.debug("Nacos请求 {} {} 耗时 {} 毫秒", method, path, elapsed);
+        }
+    }
+
+    /**
+     * 读取完整的响应体并关闭响应流（错误响应读取错误流）
+     */
+    private String readBody(HttpURLConnection conn, int statusCode) throws IOException {
+        InputStream raw = statusCode >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (raw == null) {
+            return "";
+        }
+        CountingInputStream counting = new CountingInputStream(raw);
+        try (InputStream in = "gzip".equalsIgnoreCase(conn.getContentEncoding())
+                ? new GZIPInputStream(counting) : counting) {
+            if (in instanceof GZIPInputStream) {
+                gzipResponseCount.incrementAndGet();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            bytesReceived.addAndGet(counting.count);
+        }
+    }
+
+    /**
+     * 请求异常时尽量读完并关闭错误流，避免连接无法复用
+     */
+    private void drainErrorStream(HttpURLConnection conn) {
+        if (conn == null) {
+            return;
+        }
+        try (InputStream err = conn.getErrorStream()) {
+            if (err != null) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (err.read(buffer) != -1) {
+                    // 丢弃
+                }
+            }
+        } catch (IOException ignored) {
+            // 连接已不可用，由JDK丢弃
+        }
+    }
+
+    private static String encodeParams(Map<String, String> params) throws IOException {
+        if (params == null || params.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8.name()));
+            sb.append('=');
+            String value = entry.getValue() != null ? entry.getValue() : "";
+            sb.append(URLEncoder.encode(value, StandardCharsets.UTF_8.name()));
+        }
+        return sb.toString();
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取传输统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long requests = requestCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requestCount", requests);
+        stats.put("failureCount", failureCount.get());
+        stats.put("totalLatencyMillis", totalLatencyMillis.get());
+        stats.put("averageLatencyMillis", requests > 0 ? totalLatencyMillis.get() / requests : 0);
+        stats.put("maxLatencyMillis", maxLatencyMillis.get());
+        stats.put("bytesSent", bytesSent.get());
+        stats.put("bytesReceived", bytesReceived.get());
+        stats.put("gzipResponseCount", gzipResponseCount.get());
+        stats.put("connectTimeoutMillis", connectTimeoutMillis);
+        stats.put("readTimeoutMillis", readTimeoutMillis);
+        return stats;
+    }
+
+    /**
+     * HTTP响应
+     */
+    public static class Response {
+        private final int statusCode;
+        private final String body;
+
+        Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isOk() {
+            return statusCode == 200;
+        }
+    }
+
+    /**
+     * 统计读取字节数（压缩前）的输入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
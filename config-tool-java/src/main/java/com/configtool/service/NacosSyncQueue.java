@@ -0,0 +1,408 @@
+package com.configtool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nacos同步队列
+ * 数据库配置的Nacos同步在后台线程中执行，不阻塞配置应用。
+ * 同一同步目标的多次提交合并为一次发布（以最后一次为准），失败后按指数退避重试；
+ * 不同目标并行发布，共享同一个keep-alive连接池
+ *
+ * 可通过系统属性调整：
+ * configtool.nacosSync.threads 同时发布的目标数
+ */
+public class NacosSyncQueue {
+    private static final Logger logger = LoggerFactory.getLogger(NacosSyncQueue.class);
+
+    /** 最多尝试次数（含首次） */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /** 首次重试前的等待时间，之后每次翻倍 */
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    /** 默认并发数不超过JDK对同一主机保持的keep-alive连接数（http.maxConnections，默认5） */
+    private static final NacosSyncQueue INSTANCE = new NacosSyncQueue(new NacosApiService(),
+            Integer.getInteger("configtool.nacosSync.threads", 4));
+
+    private final NacosApiService nacosApiService;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+
+    /** 等待同步的任务（目标标识 -> 任务），按提交顺序执行 */
+    private final Map<String, SyncTask> pending = new LinkedHashMap<>();
+
+    /** 正在同步的任务（目标标识 -> 任务） */
+    private final Map<String, SyncTask> running = new LinkedHashMap<>();
+
+    /** 每个同步目标最近一次同步的结果 */
+    private final Map<String, Map<String, Object>> lastResults = new LinkedHashMap<>();
+
+    private Thread dispatcher;
+    private boolean shutdown;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+
+    NacosSyncQueue(NacosApiService nacosApiService, int threads) {
+        this.nacosApiService = nacosApiService;
+        this.threads = Math.max(1, threads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "nacos-sync-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取进程内共享的同步队列
+     */
+    public static NacosSyncQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 提交数据库配置同步任务
+     * 同一目标已有等待中的任务时，用新配置替换它，被替换任务的结果与新任务一致
+     *
+     * @return 同步结果；失败后仍在重试时不会完成
+     */
+    public CompletableFuture<SyncResult> submitDatabaseConfig(NacosSyncTarget target, String url, String username,
+                                                              String password, String driverClassName) {
+        SyncTask task = new SyncTask(target, url, username, password, driverClassName);
+        boolean coalesced;
+        synchronized (this) {
+            if (shutdown) {
+                throw new IllegalStateException("Nacos同步队列已关闭");
+            }
+            SyncTask replaced = pending.remove(task.key);
+            coalesced = replaced != null;
+            if (coalesced) {
+                follow(replaced, task);
+                coalescedCount.incrementAndGet();
+            }
+            pending.put(task.key, task);
+            submittedCount.incrementAndGet();
+            ensureDispatcher();
+            notifyAll();
+        }
+        logger.info("Nacos同步任务已加入队列: {}{}", target, coalesced ? "（已合并）" : "");
+        return task.future;
+    }
+
+    /**
+     * 被替换的任务以替换它的任务的结果完成
+     */
+    private static void follow(SyncTask replaced, SyncTask replacement) {
+        replacement.future.whenComplete((result, error) -> replaced.future.complete(result));
+    }
+
+    private void ensureDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::runDispatcher, "nacos-sync");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * 把到期的任务分派到线程池，同一目标同时只有一个任务在执行
+     */
+    private void runDispatcher() {
+        synchronized (this) {
+            while (true) {
+                SyncTask task;
+                while (running.size() < threads && (task = nextDueTask()) != null) {
+                    running.put(task.key, task);
+                    SyncTask dispatched = task;
+                    executor.execute(() -> runTask(dispatched));
+                }
+                if (shutdown && pending.isEmpty() && running.isEmpty()) {
+                    executor.shutdown();
+                    return;
+                }
+                try {
+                    wait(running.size() < threads ? waitMillis() : 0);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void runTask(SyncTask task) {
+        boolean success = false;
+        NacosApiService.PublishOutcome outcome = null;
+        String message;
+        long start = System.currentTimeMillis();
+        try {
+            outcome = nacosApiService.updateDatabaseConfig(task.target, task.url, task.username, task.password,
+                    task.driverClassName);
+            success = outcome.isSuccess();
+            message = describe(outcome);
+        } catch (Exception e) {
+            message = "同步异常: " + e.getMessage();
+            logger.error("Nacos同步异常: {}", task.target, e);
+        }
+        long latencyMillis = System.currentTimeMillis() - start;
+
+        synchronized (this) {
+            running.remove(task.key);
+            task.attempts++;
+            SyncTask newer = pending.get(task.key);
+            if (success) {
+                if (outcome == NacosApiService.PublishOutcome.UNCHANGED) {
+                    skippedCount.incrementAndGet();
+                } else {
+                    publishedCount.incrementAndGet();
+                }
+                recordResult(task, true, message);
+                task.future.complete(new SyncResult(task.target, true, outcome, message, latencyMillis, task.attempts));
+                logger.info("Nacos配置同步成功: {}, 尝试次数={}, 耗时={}ms", task.target, task.attempts, latencyMillis);
+            } else if (newer != null) {
+                // 执行期间已有新的提交，直接执行新的任务
+                recordResult(task, false, message + "（已被新提交替代）");
+                follow(task, newer);
+            } else if (task.attempts < MAX_ATTEMPTS && !shutdown) {
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (task.attempts - 1));
+                // 熔断打开期间的重试必然直接失败，等到熔断冷却结束再重试
+                Object retryIn = nacosApiService.getHealthStatus().get("retryInMillis");
+                if (retryIn instanceof Long) {
+                    backoff = Math.max(backoff, (Long) retryIn);
+                }
+                task.notBefore = System.currentTimeMillis() + backoff;
+                pending.put(task.key, task);
+                retryCount.incrementAndGet();
+                recordResult(task, false, message + String.format("，%d 毫秒后重试", backoff));
+                logger.warn("Nacos配置同步失败，{} 毫秒后重试（第 {} 次）: {}", backoff, task.attempts, task.target);
+            } else {
+                failedCount.incrementAndGet();
+                recordResult(task, false, message + "（已放弃）");
+                task.future.complete(new SyncResult(task.target, false, outcome, message, latencyMillis, task.attempts));
+                logger.error("Nacos配置同步失败，已尝试 {} 次: {}", task.attempts, task.target);
+            }
+            notifyAll();
+        }
+    }
+
+    private static String describe(NacosApiService.PublishOutcome outcome) {
+        switch (outcome) {
+            case PUBLISHED:
+                return "同步成功";
+            case UNCHANGED:
+                return "配置未变化，已跳过发布";
+            case CONFLICT:
+                return "服务端配置已被修改，将重新读取后重试";
+            case FAILED:
+            default:
+                return "同步失败";
+        }
+    }
+
+    /**
+     * 取出第一个已到执行时间、且同一目标没有正在执行的任务
+     */
+    private SyncTask nextDueTask() {
+        long now = System.currentTimeMillis();
+        Iterator<SyncTask> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            SyncTask task = iterator.next();
+            if (task.notBefore <= now && !running.containsKey(task.key)) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 距离最近一个重试任务的等待时间，没有可执行的任务时一直等待（任务完成或提交时唤醒）
+     */
+    private long waitMillis() {
+        long earliest = Long.MAX_VALUE;
+        for (SyncTask task : pending.values()) {
+            if (!running.containsKey(task.key)) {
+                earliest = Math.min(earliest, task.notBefore);
+            }
+        }
+        if (earliest == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, earliest - System.currentTimeMillis());
+    }
+
+    private void recordResult(SyncTask task, boolean success, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("target", task.target.toString());
+        result.put("dataId", task.target.getDataId());
+        result.put("group", task.target.getGroup());
+        result.put("success", success);
+        result.put("message", message);
+        result.put("attempts", task.attempts);
+        result.put("time", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        lastResults.put(task.key, result);
+    }
+
+    /**
+     * 获取队列状态：等待数量、正在同步的目标、每个目标最近一次的同步结果和统计
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("queueDepth", pending.size());
+        List<String> runningTargets = new ArrayList<>();
+        for (SyncTask task : running.values()) {
+            runningTargets.add(task.target.toString());
+        }
+        status.put("running", runningTargets);
+        List<String> pendingTargets = new ArrayList<>();
+        for (SyncTask task : pending.values()) {
+            pendingTargets.add(task.target.toString());
+        }
+        status.put("pending", pendingTargets);
+        status.put("lastResults", new ArrayList<>(lastResults.values()));
+        status.put("threads", threads);
+        status.put("submittedCount", submittedCount.get());
+        status.put("coalescedCount", coalescedCount.get());
+        status.put("publishedCount", publishedCount.get());
+        status.put("skippedCount", skippedCount.get());
+        status.put("failedCount", failedCount.get());
+        status.put("retryCount", retryCount.get());
+        return status;
+    }
+
+    /**
+     * 关闭队列：不再接受新任务，等待中的任务最多再等待 timeoutMillis 毫秒
+     */
+    public void shutdown(long timeoutMillis) {
+        Thread thread;
+        synchronized (this) {
+            shutdown = true;
+            // 放弃退避中的重试，只完成已到执行时间的任务
+            long now = System.currentTimeMillis();
+            Iterator<SyncTask> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                SyncTask task = iterator.next();
+                if (task.notBefore > now) {
+                    iterator.remove();
+                    task.future.complete(new SyncResult(task.target, false, null, "队列已关闭，放弃重试", 0, task.attempts));
+                }
+            }
+            notifyAll();
+            thread = dispatcher;
+        }
+        if (thread == null) {
+            executor.shutdown();
+            return;
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (!pending.isEmpty() || !running.isEmpty()) {
+                logger.warn("退出时仍有 {} 个Nacos同步任务未完成", pending.size() + running.size());
+            }
+        }
+    }
+
+    /**
+     * 单个目标的同步结果
+     */
+    public static class SyncResult {
+        private final NacosSyncTarget target;
+        private final boolean success;
+        private final NacosApiService.PublishOutcome outcome;
+        private final String message;
+        private final long latencyMillis;
+        private final int attempts;
+
+        SyncResult(NacosSyncTarget target, boolean success, NacosApiService.PublishOutcome outcome, String message,
+                   long latencyMillis, int attempts) {
+            this.target = target;
+            this.success = success;
+            this.outcome = outcome;
+            this.message = message;
+            this.latencyMillis = latencyMillis;
+            this.attempts = attempts;
+        }
+
+        public NacosSyncTarget getTarget() {
+            return target;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * 发布结果，同步异常或队列关闭时为 null
+         */
+        public NacosApiService.PublishOutcome getOutcome() {
+            return outcome;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * 最后一次尝试的耗时
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    /**
+     * 同步任务
+     */
+    private static class SyncTask {
+        final String key;
+        final NacosSyncTarget target;
+        final String url;
+        final String username;
+        final String password;
+        final String driverClassName;
+        final CompletableFuture<SyncResult> future = new CompletableFuture<>();
+        int attempts;
+        long notBefore;
+
+        SyncTask(NacosSyncTarget target, String url, String username, String password, String driverClassName) {
+            this.key = target.getKey();
+            this.target = target;
+            this.url = url;
+            this.username = username;
+            this.password = password;
+            this.driverClassName = driverClassName;
+        }
+    }
+}
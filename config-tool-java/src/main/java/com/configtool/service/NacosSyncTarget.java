@@ -0,0 +1,81 @@
+package com.configtool.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nacos同步目标：dataId、分组和命名空间
+ * 配置格式为 dataId[@group[@namespace]]，多个目标用逗号分隔；未指定命名空间时使用 nacos.namespace
+ */
+public final class NacosSyncTarget {
+    public static final String DEFAULT_GROUP = "DEFAULT_GROUP";
+
+    private final String dataId;
+    private final String group;
+    /** 命名空间，null 表示使用默认命名空间 */
+    private final String namespace;
+
+    public NacosSyncTarget(String dataId, String group, String namespace) {
+        this.dataId = dataId;
+        this.group = group != null && !group.isEmpty() ? group : DEFAULT_GROUP;
+        this.namespace = namespace != null && !namespace.isEmpty() ? namespace : null;
+    }
+
+    /**
+     * 解析逗号分隔的同步目标列表
+     */
+    public static List<NacosSyncTarget> parseList(String value) {
+        List<NacosSyncTarget> targets = new ArrayList<>();
+        if (value == null) {
+            return targets;
+        }
+        for (String entry : value.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] parts = trimmed.split("@", -1);
+            if (parts[0].trim().isEmpty() || parts.length > 3) {
+                throw new IllegalArgumentException("Nacos同步目标格式无效: " + trimmed);
+            }
+            targets.add(new NacosSyncTarget(parts[0].trim(),
+                    parts.length > 1 ? parts[1].trim() : null,
+                    parts.length > 2 ? parts[2].trim() : null));
+        }
+        return targets;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * 唯一标识：dataId@group@namespace
+     */
+    public String getKey() {
+        return dataId + "@" + group + "@" + (namespace != null ? namespace : "");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NacosSyncTarget && getKey().equals(((NacosSyncTarget) o).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return dataId + "@" + group + (namespace != null ? "@" + namespace : "");
+    }
+}
@@ -0,0 +1,203 @@
+package com.configtool.service;
+
+import com.configtool.util.JsonUtil;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nacos访问令牌管理（按服务地址和用户名共享）
+ * 通过 /nacos/v1/auth/login 登录一次并缓存 accessToken；令牌接近过期时在后台刷新，
+ * 期间继续使用原令牌，只有令牌已过期或尚未登录时才同步登录。
+ * 未配置用户名或登录失败时返回 null，请求不携带令牌（服务端未开启鉴权时仍可正常使用）
+ */
+public class NacosTokenManager {
+    private static final Logger logger = LoggerFactory.getLogger(NacosTokenManager.class);
+
+    private static final String LOGIN_PATH = "/nacos/v1/auth/login";
+
+    /** 已使用TTL的比例达到该值时开始后台刷新 */
+    private static final double REFRESH_RATIO = 0.9;
+
+    /** 已使用TTL的比例达到该值时视为已过期（留出时钟误差和请求耗时的余量） */
+    private static final double EXPIRE_RATIO = 0.98;
+
+    /** 服务端未返回TTL时使用Nacos的默认值（18000秒） */
+    private static final long DEFAULT_TTL_SECONDS = 18000;
+
+    /** 登录失败后多久内不再重试，避免每个请求都发起登录 */
+    private static final long LOGIN_RETRY_MILLIS = 30000;
+
+    private static final Map<String, NacosTokenManager> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String username;
+    private final String password;
+    private final NacosHttpClient httpClient;
+
+    private String accessToken;
+    private long refreshAt;
+    private long expiresAt;
+    private long lastFailureAt;
+    private String lastError;
+    private boolean refreshing;
+
+    private final AtomicLong loginCount = new AtomicLong();
+    private final AtomicLong loginFailureCount = new AtomicLong();
+
+    NacosTokenManager(String username, String password, NacosHttpClient httpClient) {
+        this.username = username;
+        this.password = password;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * 获取指定Nacos地址和用户的令牌管理器
+     */
+    public static NacosTokenManager forUrl(String nacosUrl, String username, String password,
+                                           NacosHttpClient httpClient) {
+        return INSTANCES.computeIfAbsent(nacosUrl + "|" + username,
+                key -> new NacosTokenManager(username, password, httpClient));
+    }
+
+    /**
+     * 获取当前可用的访问令牌
+     *
+     * @return 令牌；未配置用户名或登录失败时返回 null
+     */
+    public String getAccessToken() {
+        if (username == null || username.trim().isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (accessToken != null && now < expiresAt) {
+                if (now >= refreshAt && !refreshing && now - lastFailureAt >= LOGIN_RETRY_MILLIS) {
+                    refreshing = true;
+                    Thread refresher = new Thread(this::refreshInBackground, "nacos-token-refresh");
+                    refresher.setDaemon(true);
+                    refresher.start();
+                }
+                return accessToken;
+            }
+            if (now - lastFailureAt < LOGIN_RETRY_MILLIS) {
+                return null;
+            }
+            // 令牌已过期或尚未登录，同步登录（持有锁，并发请求只登录一次）
+            login();
+            return accessToken;
+        }
+    }
+
+    /**
+     * 服务端拒绝了令牌（403），下次请求重新登录
+     */
+    public synchronized void invalidate() {
+        if (accessToken != null) {
+            logger.info("Nacos访问令牌已失效，下次请求重新登录");
+        }
+        accessToken = null;
+        expiresAt = 0;
+        refreshAt = 0;
+    }
+
+    /**
+     * 后台刷新：登录请求不持有锁，刷新期间其他请求继续使用原令牌
+     */
+    private void refreshInBackground() {
+        LoginResult result = requestToken();
+        synchronized (this) {
+            apply(result);
+            refreshing = false;
+        }
+    }
+
+    /**
+     * 同步登录（调用方持有锁）
+     */
+    private void login() {
+        apply(requestToken());
+    }
+
+    /**
+     * 请求 /nacos/v1/auth/login
+     */
+    private LoginResult requestToken() {
+        loginCount.incrementAndGet();
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("username", username);
+        params.put("password", password);
+        try {
+            NacosHttpClient.Response response = httpClient.post(LOGIN_PATH, params);
+            if (!response.isOk()) {
+                return LoginResult.failed("HTTP " + response.getStatusCode() + " " + response.getBody().trim());
+            }
+            JsonObject json = JsonUtil.getGson().fromJson(response.getBody(), JsonObject.class);
+            if (json == null || !json.has("accessToken")) {
+                return LoginResult.failed("响应中没有accessToken");
+            }
+            long ttlSeconds = json.has("tokenTtl") ? json.get("tokenTtl").getAsLong() : DEFAULT_TTL_SECONDS;
+            return new LoginResult(json.get("accessToken").getAsString(), ttlSeconds, null);
+        } catch (Exception e) {
+            return LoginResult.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * 更新令牌（调用方持有锁）；登录失败时保留未过期的原令牌
+     */
+    private void apply(LoginResult result) {
+        if (result.accessToken == null) {
+            loginFailureCount.incrementAndGet();
+            lastFailureAt = System.currentTimeMillis();
+            lastError = result.error;
+            logger.warn("Nacos登录失败: 用户={}, {}", username, result.error);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        accessToken = result.accessToken;
+        refreshAt = now + (long) (result.ttlSeconds * 1000 * REFRESH_RATIO);
+        expiresAt = now + (long) (result.ttlSeconds * 1000 * EXPIRE_RATIO);
+        lastFailureAt = 0;
+        lastError = null;
+        logger.info("Nacos登录成功: 用户={}, 令牌有效期 {} 秒", username, result.ttlSeconds);
+    }
+
+    /**
+     * 获取令牌状态（不包含令牌本身）
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("username", username);
+        status.put("hasToken", accessToken != null);
+        status.put("expiresInMillis", accessToken != null ? Math.max(0, expiresAt - System.currentTimeMillis()) : 0);
+        status.put("loginCount", loginCount.get());
+        status.put("loginFailureCount", loginFailureCount.get());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    /**
+     * 登录结果
+     */
+    private static class LoginResult {
+        final String accessToken;
+        final long ttlSeconds;
+        final String error;
+
+        LoginResult(String accessToken, long ttlSeconds, String error) {
+            this.accessToken = accessToken;
+            this.ttlSeconds = ttlSeconds;
+            this.error = error;
+        }
+
+        static LoginResult failed(String error) {
+            return new LoginResult(null, 0, error);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.configtool.service;
+
+import com.configtool.config.EnvironmentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 路径解析器
+ * 负责清理目标文件路径、解析 {{RELATIVE}} / {{ENV:X}} 路径模板。
+ * 路径模板只编译一次，基准目录每个进程只计算一次，解析结果缓存在有界的LRU中，
+ * 刷新配置数据时整体失效
+ */
+public class PathResolver {
+    private static final Logger logger = LoggerFactory.getLogger(PathResolver.class);
+
+    /** 最多缓存的路径数 */
+    private static final int MAX_CACHED_PATHS = 1024;
+
+    private static final PathResolver INSTANCE = new PathResolver();
+
+    /** 清理后的文件路径（原始路径 -> 清理后的绝对路径） */
+    private final Map<String, String> cleanedPaths = newLruMap();
+
+    /** 已编译的路径模板 */
+    private final Map<String, CompiledPath> compiledPaths = newLruMap();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /** 基准目录：jar包所在目录的上级目录，用于相对目标路径 */
+    private volatile String baseDirectory;
+
+    /** 工作目录基准：用于 {{RELATIVE}} 模板 */
+    private volatile String workingDirectory;
+
+    PathResolver() {
+    }
+
+    /**
+     * 获取进程内共享的解析器实例
+     */
+    public static PathResolver getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 清理文件路径，移除不可见字符，并将相对路径转换为绝对路径
+     */
+    public String cleanFilePath(String path) {
+        if (path == null || path.isEmpty()) {
+            return "";
+        }
+
+        synchronized (cleanedPaths) {
+            String cached = cleanedPaths.get(path);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+        }
+        missCount.incrementAndGet();
+
+        // 移除不可见的Unicode字符，去除首尾空白，并标准化路径分隔符 (Windows)
+        String cleaned = removeInvisibleChars(path).trim().replace('/', '\\');
+
+        // 检查是否为相对路径，如果是则转换为绝对路径
+        if (!isAbsolutePath(cleaned)) {
+            cleaned = convertToAbsolutePath(cleaned);
+        }
+
+        synchronized (cleanedPaths) {
+            cleanedPaths.put(path, cleaned);
+        }
+        return cleaned;
+    }
+
+    /**
+     * 解析路径模板
+     * {{RELATIVE}} 开头的模板相对于工作目录解析；包含 {{ENV:X}} 的模板替换第一个环境变量，
+     * 环境变量不在预设列表中或未设置时返回原始模板（保留标记）
+     */
+    public String resolveTemplate(String pathTemplate) {
+        if (pathTemplate == null) {
+            return null;
+        }
+        return compile(pathTemplate).resolve();
+    }
+
+    /**
+     * 获取路径模板中的第一个环境变量名，不包含环境变量时返回 null
+     */
+    public String getEnvVar(String pathTemplate) {
+        if (pathTemplate == null || !pathTemplate.contains(EnvironmentConfig.ENV_PATH_MARKER_PREFIX)) {
+            return null;
+        }
+        return compile(pathTemplate).envVar;
+    }
+
+    /**
+     * 使所有缓存失效，并在下次使用时重新计算基准目录
+     */
+    public void invalidate() {
+        synchronized (cleanedPaths) {
+            cleanedPaths.clear();
+        }
+        synchronized (compiledPaths) {
+            compiledPaths.clear();
+        }
+        baseDirectory = null;
+        workingDirectory = null;
+        logger.info("路径解析缓存已清空");
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        synchronized (cleanedPaths) {
+            stats.put("size", cleanedPaths.size());
+        }
+        synchronized (compiledPaths) {
+            stats.put("compiledTemplates", compiledPaths.size());
+        }
+        stats.put("maxEntries", MAX_CACHED_PATHS);
+        stats.put("hitCount", hits);
+        stats.put("missCount", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    private CompiledPath compile(String pathTemplate) {
+        synchronized (compiledPaths) {
+            CompiledPath compiled = compiledPaths.get(pathTemplate);
+            if (compiled == null) {
+                compiled = new CompiledPath(pathTemplate);
+                compiledPaths.put(pathTemplate, compiled);
+            }
+            return compiled;
+        }
+    }
+
+    private static String removeInvisibleChars(String path) {
+        StringBuilder result = null;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            boolean invisible = (c >= '\u200B' && c <= '\u200D') || c == '\uFEFF' || (c >= '\u202A' && c <= '\u202E');
+            if (invisible) {
+                if (result == null) {
+                    result = new StringBuilder(path.length());
+                    result.append(path, 0, i);
+                }
+            } else if (result != null) {
+                result.append(c);
+            }
+        }
+        return result != null ? result.toString() : path;
+    }
+
+    /**
+     * 判断是否为绝对路径
+     * Windows绝对路径判断：以盘符开头(如C:)或网络路径(\\)
+     */
+    private static boolean isAbsolutePath(String path) {
+        if (path.length() >= 3 && path.charAt(1) == ':' && (path.charAt(2) == '\\' || path.charAt(2) == '/')) {
+            char drive = path.charAt(0);
+            return (drive >= 'a' && drive <= 'z') || (drive >= 'A' && drive <= 'Z');
+        }
+        return path.startsWith("\\\\");
+    }
+
+    /**
+     * 将相对路径转换为绝对路径
+     * 基准目录为config-tool-java项目的上级目录
+     */
+    private String convertToAbsolutePath(String relativePath) {
+        try {
+            File absoluteFile = new File(getBaseDirectory(), relativePath);
+            String absolutePath = absoluteFile.getCanonicalPath();
+
+            logger.info("相对路径转换: {} -> {}", relativePath, absolutePath);
+            return absolutePath;
+
+        } catch (IOException e) {
+            logger.error("转换相对路径失败: {}", relativePath, e);
+            // 如果转换失败，返回原始路径
+            return relativePath;
+        }
+    }
+
+    /**
+     * 获取基准目录：config-tool-java项目的上级目录
+     */
+    private String getBaseDirectory() {
+        String base = baseDirectory;
+        if (base == null) {
+            base = computeBaseDirectory();
+            baseDirectory = base;
+            logger.info("基准目录: {}", base);
+        }
+        return base;
+    }
+
+    private String computeBaseDirectory() {
+        try {
+            // 方法1：尝试通过jar文件位置获取
+            String jarPath = getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
+            File jarFile = new File(jarPath);
+
+            // 如果是jar文件，获取其父目录的父目录
+            if (jarFile.isFile() && jarFile.getName().endsWith(".jar")) {
+                File jarDir = jarFile.getParentFile(); // jar文件所在目录
+                if (jarDir != null && jarDir.getParentFile() != null) {
+                    return jarDir.getParentFile().getCanonicalPath(); // jar文件目录的上级目录
+                }
+            }
+
+            // 方法2：通过当前工作目录获取
+            return computeWorkingDirectory();
+
+        } catch (Exception e) {
+            logger.error("获取基准目录失败", e);
+            // fallback：返回当前工作目录
+            return System.getProperty("user.dir");
+        }
+    }
+
+    /**
+     * 获取当前工作目录
+     */
+    private String getWorkingDirectory() {
+        String dir = workingDirectory;
+        if (dir == null) {
+            dir = computeWorkingDirectory();
+            workingDirectory = dir;
+        }
+        return dir;
+    }
+
+    private String computeWorkingDirectory() {
+        try {
+            String workDir = System.getProperty("user.dir");
+            File workDirFile = new File(workDir);
+
+            // 如果当前工作目录名为config-tool-java，返回其上级目录
+            if (workDirFile.getName().equals("config-tool-java") && workDirFile.getParentFile() != null) {
+                return workDirFile.getParentFile().getCanonicalPath();
+            }
+
+            // 否则返回当前工作目录
+            return workDir;
+
+        } catch (Exception e) {
+            logger.error("获取当前工作目录失败", e);
+            return System.getProperty("user.dir");
+        }
+    }
+
+    /**
+     * 检查环境变量是否在配置的必需环境变量列表中
+     */
+    private static boolean isRequiredEnvVar(String envVar) {
+        for (String requiredVar : EnvironmentConfig.REQUIRED_ENV_VARS) {
+            if (requiredVar.equals(envVar)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 标准化路径分隔符，避免双反斜杠等问题
+     */
+    static String normalizePathSeparators(String path) {
+        if (path == null || path.isEmpty()) {
+            return path;
+        }
+
+        // 将双反斜杠替换为单反斜杠
+        path = path.replace("\\\\", "\\");
+
+        // 将双正斜杠替换为单正斜杠
+        path = path.replace("//", "/");
+
+        // 处理混合分隔符：如果是Windows环境，统一为反斜杠
+        if (File.separator.equals("\\")) {
+            path = path.replace("/", "\\");
+        }
+
+        return path;
+    }
+
+    private static <V> Map<String, V> newLruMap() {
+        // accessOrder=true，实现LRU淘汰
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_CACHED_PATHS;
+            }
+        };
+    }
+
+    /**
+     * 编译后的路径模板
+     * ENV模板按第一个环境变量标记切分为字面量片段，解析时用环境变量值拼接
+     */
+    private class CompiledPath {
+        private final String template;
+        private final Kind kind;
+        /** RELATIVE：去掉标记和开头分隔符后的相对部分 */
+        private final String relativePart;
+        /** ENV：第一个环境变量名 */
+        private final String envVar;
+        /** ENV：按环境变量标记切分的字面量片段 */
+        private final List<String> literals;
+
+        private volatile String resolved;
+
+        CompiledPath(String template) {
+            this.template = template;
+            String relative = null;
+            String var = null;
+            List<String> parts = Collections.emptyList();
+
+            if (template.startsWith(EnvironmentConfig.RELATIVE_PATH_MARKER)) {
+                relative = template.substring(EnvironmentConfig.RELATIVE_PATH_MARKER.length());
+                // 移除开头的路径分隔符（如果有的话）
+                if (relative.startsWith("\\") || relative.startsWith("/")) {
+                    relative = relative.substring(1);
+                }
+                this.kind = Kind.RELATIVE;
+            } else {
+                var = parseFirstEnvVar(template);
+                if (var != null) {
+                    parts = split(template, EnvironmentConfig.ENV_PATH_MARKER_PREFIX + var
+                            + EnvironmentConfig.ENV_PATH_MARKER_SUFFIX);
+                }
+                this.kind = var != null ? Kind.ENV : Kind.PLAIN;
+            }
+            this.relativePart = relative;
+            this.envVar = var;
+            this.literals = parts;
+        }
+
+        String resolve() {
+            String result = resolved;
+            if (result != null) {
+                hitCount.incrementAndGet();
+                return result;
+            }
+            missCount.incrementAndGet();
+
+            switch (kind) {
+                case RELATIVE:
+                    result = resolveRelative();
+                    break;
+                case ENV:
+                    result = resolveEnv();
+                    break;
+                default:
+                    result = template;
+            }
+            resolved = result;
+            return result;
+        }
+
+        private String resolveRelative() {
+            try {
+                File resolvedFile = new File(getWorkingDirectory(), relativePart);
+                String absolutePath = normalizePathSeparators(resolvedFile.getCanonicalPath());
+                logger.info("相对路径解析: {} -> {}", template, absolutePath);
+                return absolutePath;
+            } catch (IOException e) {
+                logger.error("相对路径解析失败: {}", template, e);
+                return template;
+            }
+        }
+
+        private String resolveEnv() {
+            // 只处理预设的环境变量
+            if (!isRequiredEnvVar(envVar)) {
+                logger.warn("环境变量不在预设列表中: {}", envVar);
+                return template; // 返回原始模板，保留标记
+            }
+
+            String envValue = System.getenv(envVar);
+            if (envValue == null || envValue.isEmpty()) {
+                logger.warn("环境变量未设置或为空: {}", envVar);
+                return template; // 返回原始模板，保留标记
+            }
+
+            // 处理路径分隔符，避免双反斜杠或混合分隔符
+            String resolvedPath = normalizePathSeparators(String.join(envValue, literals));
+            logger.info("环境变量路径解析: {} -> {} ({}={})", template, resolvedPath, envVar, envValue);
+            return resolvedPath;
+        }
+    }
+
+    private enum Kind {
+        PLAIN, RELATIVE, ENV
+    }
+
+    /**
+     * 提取第一个 {{ENV:X}} 标记中的变量名（X 非空且不含 '}'）
+     */
+    private static String parseFirstEnvVar(String template) {
+        String prefix = EnvironmentConfig.ENV_PATH_MARKER_PREFIX;
+        int from = 0;
+        while (true) {
+            int start = template.indexOf(prefix, from);
+            if (start < 0) {
+                return null;
+            }
+            int nameStart = start + prefix.length();
+            int nameEnd = nameStart;
+            while (nameEnd < template.length() && template.charAt(nameEnd) != '}') {
+                nameEnd++;
+            }
+            if (nameEnd > nameStart && template.startsWith(EnvironmentConfig.ENV_PATH_MARKER_SUFFIX, nameEnd)) {
+                return template.substring(nameStart, nameEnd);
+            }
+            from = start + 1;
+        }
+    }
+
+    private static List<String> split(String text, String separator) {
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        int index;
+        while ((index = text.indexOf(separator, from)) >= 0) {
+            parts.add(text.substring(from, index));
+            from = index + separator.length();
+        }
+        parts.add(text.substring(from));
+        return parts;
+    }
+}
@@ -0,0 +1,171 @@
+package com.configtool.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 状态检查线程池
+ * 目标文件的读取按文件分组提交到有界线程池并行执行，调用方按期限等待结果。
+ * 同一文件同时只有一个检查在执行，避免慢速共享目录占满线程池；
+ * 文件正在检查时，新的检查排在其后执行（不占用线程），调用方仍在自己的期限内等待结果
+ *
+ * 可通过系统属性调整：
+ * configtool.statusCheck.threads       线程数
+ * configtool.statusCheck.queueSize     等待队列长度
+ * configtool.statusCheck.timeoutMillis 每个目标点的检查期限（毫秒）
+ */
+public class StatusCheckExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(StatusCheckExecutor.class);
+
+    private static final StatusCheckExecutor INSTANCE = new StatusCheckExecutor(
+            Integer.getInteger("configtool.statusCheck.threads",
+                    Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors() * 2))),
+            Integer.getInteger("configtool.statusCheck.queueSize", 256),
+            Long.getLong("configtool.statusCheck.timeoutMillis", 5000L));
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    /** 文件 -> 该文件最后提交的检查结束时完成的信号 */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlightFiles = new ConcurrentHashMap<>();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong waitedCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    StatusCheckExecutor(int threads, int queueSize, long timeoutMillis) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "status-check-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutMillis = timeoutMillis;
+        logger.info("状态检查线程池: 线程数={}, 队列长度={}, 检查期限={}ms", threads, queueSize, timeoutMillis);
+    }
+
+    /**
+     * 获取进程内共享的线程池实例
+     */
+    public static StatusCheckExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 每个目标点的检查期限（毫秒）
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * 提交一个文件的检查任务
+     * 同一文件已有检查在进行时，任务在其结束后才放入线程池；
+     * 调用方不再需要结果时可取消返回的任务，尚未开始的任务不会再执行
+     *
+     * @param fileKey 文件路径，用于判断同一文件的检查是否仍在进行
+     * @return 任务结果；排队执行时线程池已满，以 RejectedExecutionException 失败
+     * @throws RejectedExecutionException 等待队列已满
+     */
+    public <T> Future<T> submit(String fileKey, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = inFlightFiles.put(fileKey, done);
+        if (previous == null) {
+            execute(fileKey, task, result, done);
+        } else {
+            waitedCount.incrementAndGet();
+            previous.whenComplete((ignored, error) -> {
+                try {
+                    execute(fileKey, task, result, done);
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 将任务放入线程池；任务结束（或放弃执行）时通知排在其后的检查
+     */
+    private <T> void execute(String fileKey, Callable<T> task, CompletableFuture<T> result,
+                             CompletableFuture<Void> done) {
+        if (result.isDone()) {
+            // 调用方已超时并取消
+            cancelledCount.incrementAndGet();
+            finish(fileKey, done);
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!result.isDone()) {
+                        result.complete(task.call());
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    finish(fileKey, done);
+                }
+            });
+            submittedCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            finish(fileKey, done);
+            throw e;
+        }
+    }
+
+    private void finish(String fileKey, CompletableFuture<Void> done) {
+        inFlightFiles.remove(fileKey, done);
+        done.complete(null);
+    }
+
+    /**
+     * 记录一次超时
+     */
+    void recordTimeout(String fileKey) {
+        timeoutCount.incrementAndGet();
+        logger.warn("文件检查超时({}ms): {}", timeoutMillis, fileKey);
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取线程池统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("inFlightFiles", inFlightFiles.size());
+        stats.put("timeoutMillis", timeoutMillis);
+        stats.put("submittedCount", submittedCount.get());
+        stats.put("timeoutCount", timeoutCount.get());
+        stats.put("waitedCount", waitedCount.get());
+        stats.put("cancelledCount", cancelledCount.get());
+        return stats;
+    }
+}
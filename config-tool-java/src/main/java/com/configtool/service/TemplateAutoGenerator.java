@@ -26,9 +26,13 @@ import java.util.regex.Pattern;
 public class TemplateAutoGenerator {
     private static final Logger logger = LoggerFactory.getLogger(TemplateAutoGenerator.class);
     
+    /** 路径模板中的标记 */
+    private static final Pattern MARKER_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}");
+    
     // 使用EnvironmentConfig中统一配置的环境变量列表
     
     private final FileProcessor fileProcessor;
+    private final PathResolver pathResolver = PathResolver.getInstance();
     
     // 生成统计信息
     private final List<String> skippedEnvVars = new ArrayList<>();
@@ -206,40 +210,7 @@ public class TemplateAutoGenerator {
      * 从路径中提取环境变量名
      */
     private String extractEnvVarFromPath(String path) {
-        if (path == null || !path.contains("{{ENV:")) {
-            return null;
-        }
-        
-        Pattern pattern = Pattern.compile("\\{\\{ENV:([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(path);
-        
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        return null;
-    }
-    
-    /**
-     * 标准化路径分隔符，避免双反斜杠等问题
-     */
-    private String normalizePathSeparators(String path) {
-        if (path == null || path.isEmpty()) {
-            return path;
-        }
-        
-        // 将双反斜杠替换为单反斜杠
-        path = path.replace("\\\\", "\\");
-        
-        // 将双正斜杠替换为单正斜杠
-        path = path.replace("//", "/");
-        
-        // 处理混合分隔符：如果是Windows环境，统一为反斜杠
-        if (File.separator.equals("\\")) {
-            path = path.replace("/", "\\");
-        }
-        
-        return path;
+        return pathResolver.getEnvVar(path);
     }
     
     /**
@@ -333,6 +304,35 @@ public class TemplateAutoGenerator {
         
         logger.info("开始处理模板配置项...");
         
+        // 先校验所有目标点的路径，并按解析后的文件分组
+        Map<FileTarget, String> resolvedPaths = new IdentityHashMap<>();
+        Map<String, List<FileTarget>> targetsByFile = new LinkedHashMap<>();
+        for (ConfigItem item : template.getItems()) {
+            if (item.getTargets() == null) {
+                continue;
+            }
+            for (FileTarget target : item.getTargets()) {
+                // 注意：totalTargets已经在环境变量过滤阶段统计过了
+                if (isValidTargetAfterPathReplacement(target)) {
+                    String resolvedPath = resolvePath(target.getFilePath());
+                    resolvedPaths.put(target, resolvedPath);
+                    targetsByFile.computeIfAbsent(resolvedPath, k -> new ArrayList<>()).add(target);
+                } else {
+                    logger.info("跳过无效目标点: {}", target.getFilePath());
+                }
+            }
+        }
+        
+        // 每个文件只读取一次，一遍扫描找出该文件所有目标点的匹配项
+        Map<FileTarget, List<MatchResult>> matchesByTarget = new IdentityHashMap<>();
+        for (Map.Entry<String, List<FileTarget>> entry : targetsByFile.entrySet()) {
+            try {
+                matchesByTarget.putAll(fileProcessor.findMatches(entry.getKey(), entry.getValue()));
+            } catch (Exception e) {
+                logger.error("搜索匹配项时出现异常: {}", entry.getKey(), e);
+            }
+        }
+        
         List<ConfigItem> validItems = new ArrayList<>();
         
         for (ConfigItem item : template.getItems()) {
@@ -340,27 +340,25 @@ public class TemplateAutoGenerator {
                 continue;
             }
             
-            // 先处理目标点（解析路径、搜索匹配项等）
+            // 根据搜索结果处理目标点
             List<FileTarget> validTargets = new ArrayList<>();
             for (FileTarget target : item.getTargets()) {
-                // 注意：totalTargets已经在环境变量过滤阶段统计过了
                 String originalPath = target.getFilePath();
                 
-                if (isValidTargetAfterPathReplacement(target)) {
-                    // 处理目标点（解析路径、搜索匹配项等）
-                    List<FileTarget> processedTargets = processFileTargetWithMultipleMatches(target);
+                if (resolvedPaths.containsKey(target)) {
+                    // 处理目标点（每个匹配项生成一个目标点）
+                    List<FileTarget> processedTargets = processFileTargetWithMultipleMatches(
+                            target, resolvedPaths.get(target), matchesByTarget.get(target));
                     
                     // 检查处理后的目标点是否真正有效
                     for (FileTarget processedTarget : processedTargets) {
                         if (isTargetValidAfterProcessing(processedTarget, originalPath)) {
                             validTargets.add(processedTarget);
-                        this.validTargets++;
-                    } else {
-                        logger.info("跳过处理后无效的目标点: {}", originalPath);
+                            this.validTargets++;
+                        } else {
+                            logger.info("跳过处理后无效的目标点: {}", originalPath);
                         }
                     }
-                } else {
-                    logger.info("跳过无效目标点: {}", originalPath);
                 }
             }
             
@@ -496,8 +494,7 @@ public class TemplateAutoGenerator {
      * 提取未解析的标记
      */
     private String extractUnresolvedMarkers(String path) {
-        Pattern pattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(path);
+        Matcher matcher = MARKER_PATTERN.matcher(path);
         List<String> markers = new ArrayList<>();
         
         while (matcher.find()) {
@@ -507,70 +504,60 @@ public class TemplateAutoGenerator {
         return String.join(", ", markers);
     }
     
-        /**
+    /**
      * 处理单个文件目标点，支持多个匹配项
+     *
+     * @param matches 该目标点在文件中的匹配结果，为 null 表示搜索时出现异常
      */
-    private List<FileTarget> processFileTargetWithMultipleMatches(FileTarget target) {
+    private List<FileTarget> processFileTargetWithMultipleMatches(FileTarget target, String resolvedPath, 
+                                                                  List<MatchResult> matches) {
         List<FileTarget> results = new ArrayList<>();
         String originalPath = target.getFilePath();
-        if (originalPath == null || originalPath.isEmpty()) {
-            results.add(target);
-            return results;
-        }
-
-        // 解析路径模板
-        String resolvedPath = resolvePath(originalPath);
         
-        try {
-            // 使用FileProcessor在实际文件中搜索匹配项
-            List<MatchResult> matches = fileProcessor.findMatches(resolvedPath, target.getPrefix(), target.getSuffix());
-            
-            if (matches.isEmpty()) {
-                // 没有找到匹配项，设置无效行号
-                target.setFilePath(resolvedPath);
-                target.setLineNumber(0);
-                results.add(target);
-                logger.warn("未找到匹配项: {} -> {} (前缀: {})", originalPath, resolvedPath, target.getPrefix());
-            } else {
-                // 找到匹配项，为每个匹配项创建一个目标点
-                for (int i = 0; i < matches.size(); i++) {
-                    MatchResult match = matches.get(i);
-                    FileTarget newTarget;
-                    
-                    if (i == 0) {
-                        // 第一个匹配项使用原始目标点
-                        newTarget = target;
-                    } else {
-                        // 后续匹配项创建新的目标点
-                        newTarget = new FileTarget(
-                            target.getId() + "_" + (i + 1),
-                            target.getFilePath(),
-                            target.getLineNumber(),
-                            target.getPrefix(),
-                            target.getSuffix()
-                        );
-                    }
-                    
-                    newTarget.setFilePath(resolvedPath);
-                    newTarget.setLineNumber(match.getLineNumber());
-                    results.add(newTarget);
-                }
-                
-                StringBuilder lineNumbers = new StringBuilder();
-                for (int i = 0; i < matches.size(); i++) {
-                    if (i > 0) lineNumbers.append(", ");
-                    lineNumbers.append(matches.get(i).getLineNumber());
-                }
-                logger.info("找到{}个匹配项: {} -> {} (行号: {})", 
-                          matches.size(), originalPath, resolvedPath, lineNumbers.toString());
-            }
-            
-        } catch (Exception e) {
+        if (matches == null) {
             // 搜索过程中出现异常，设置无效行号
             target.setFilePath(resolvedPath);
             target.setLineNumber(0);
             results.add(target);
-            logger.error("搜索匹配项时出现异常: {} -> {}", originalPath, resolvedPath, e);
+            logger.warn("搜索匹配项失败: {} -> {}", originalPath, resolvedPath);
+        } else if (matches.isEmpty()) {
+            // 没有找到匹配项，设置无效行号
+            target.setFilePath(resolvedPath);
+            target.setLineNumber(0);
+            results.add(target);
+            logger.warn("未找到匹配项: {} -> {} (前缀: {})", originalPath, resolvedPath, target.getPrefix());
+        } else {
+            // 找到匹配项，为每个匹配项创建一个目标点
+            for (int i = 0; i < matches.size(); i++) {
+                MatchResult match = matches.get(i);
+                FileTarget newTarget;
+                
+                if (i == 0) {
+                    // 第一个匹配项使用原始目标点
+                    newTarget = target;
+                } else {
+                    // 后续匹配项创建新的目标点
+                    newTarget = new FileTarget(
+                        target.getId() + "_" + (i + 1),
+                        target.getFilePath(),
+                        target.getLineNumber(),
+                        target.getPrefix(),
+                        target.getSuffix()
+                    );
+                }
+                
+                newTarget.setFilePath(resolvedPath);
+                newTarget.setLineNumber(match.getLineNumber());
+                results.add(newTarget);
+            }
+            
+            StringBuilder lineNumbers = new StringBuilder();
+            for (int i = 0; i < matches.size(); i++) {
+                if (i > 0) lineNumbers.append(", ");
+                lineNumbers.append(matches.get(i).getLineNumber());
+            }
+            logger.info("找到{}个匹配项: {} -> {} (行号: {})", 
+                      matches.size(), originalPath, resolvedPath, lineNumbers.toString());
         }
         
         return results;
@@ -630,138 +617,7 @@ public class TemplateAutoGenerator {
      * 解析路径模板
      */
     private String resolvePath(String pathTemplate) {
-        // 处理相对路径
-        if (pathTemplate.startsWith(EnvironmentConfig.RELATIVE_PATH_MARKER)) {
-            return resolveRelativePath(pathTemplate);
-        }
-        
-        // 处理环境变量路径
-        if (pathTemplate.contains(EnvironmentConfig.ENV_PATH_MARKER_PREFIX)) {
-            return resolveEnvironmentPath(pathTemplate);
-        }
-        
-        // 原样返回
-        return pathTemplate;
-    }
-    
-    /**
-     * 解析相对路径
-     */
-    private String resolveRelativePath(String pathTemplate) {
-        try {
-            String relativePart = pathTemplate.substring(EnvironmentConfig.RELATIVE_PATH_MARKER.length());
-            
-            // 移除开头的路径分隔符（如果有的话）
-            if (relativePart.startsWith("\\") || relativePart.startsWith("/")) {
-                relativePart = relativePart.substring(1);
-            }
-            
-            String basePath = getCurrentWorkingDirectory();
-            File resolvedFile = new File(basePath, relativePart);
-            String absolutePath = resolvedFile.getCanonicalPath();
-            
-            // 标准化路径分隔符
-            absolutePath = normalizePathSeparators(absolutePath);
-            
-            logger.info("相对路径解析: {} -> {}", pathTemplate, absolutePath);
-            return absolutePath;
-        } catch (IOException e) {
-            logger.error("相对路径解析失败: {}", pathTemplate, e);
-            return pathTemplate;
-        }
-    }
-    
-    /**
-     * 获取当前工作目录
-     */
-    private String getCurrentWorkingDirectory() {
-        try {
-            String workDir = System.getProperty("user.dir");
-            File workDirFile = new File(workDir);
-            
-            // 如果当前工作目录名为config-tool-java，返回其上级目录
-            if (workDirFile.getName().equals("config-tool-java") && workDirFile.getParentFile() != null) {
-                return workDirFile.getParentFile().getCanonicalPath();
-            }
-            
-            // 否则返回当前工作目录
-            return workDir;
-            
-        } catch (Exception e) {
-            logger.error("获取当前工作目录失败", e);
-            return System.getProperty("user.dir");
-        }
-    }
-    
-    /**
-     * 解析环境变量路径
-     */
-    private String resolveEnvironmentPath(String pathTemplate) {
-        Pattern pattern = Pattern.compile("\\{\\{ENV:([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(pathTemplate);
-        
-        if (matcher.find()) {
-            String envVar = matcher.group(1);
-            
-            // 只处理预设的环境变量
-            if (!isRequiredEnvVar(envVar)) {
-                logger.warn("环境变量不在预设列表中: {}", envVar);
-                return pathTemplate; // 返回原始模板，保留标记
-            }
-            
-            String envValue = System.getenv(envVar);
-            
-            if (envValue != null && !envValue.isEmpty()) {
-                String resolvedPath = pathTemplate.replace("{{ENV:" + envVar + "}}", envValue);
-                
-                // 处理路径分隔符，避免双反斜杠或混合分隔符
-                resolvedPath = normalizePathSeparators(resolvedPath);
-                
-                logger.info("环境变量路径解析: {} -> {} ({}={})", pathTemplate, resolvedPath, envVar, envValue);
-                return resolvedPath;
-            } else {
-                logger.warn("环境变量未设置或为空: {}", envVar);
-                return pathTemplate; // 返回原始模板，保留标记
-            }
-        }
-        
-        return pathTemplate;
-    }
-    
-    /**
-     * 获取jar包父目录
-     */
-    private String getJarParentDirectory() {
-        try {
-            // 方法1：尝试通过jar文件位置获取
-            String jarPath = getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
-            File jarFile = new File(jarPath);
-            
-            // 如果是jar文件，获取其父目录的父目录
-            if (jarFile.isFile() && jarFile.getName().endsWith(".jar")) {
-                File jarDir = jarFile.getParentFile(); // jar文件所在目录
-                if (jarDir != null && jarDir.getParentFile() != null) {
-                    return jarDir.getParentFile().getCanonicalPath(); // jar文件目录的上级目录
-                }
-            }
-            
-            // 方法2：通过当前工作目录获取
-            String workDir = System.getProperty("user.dir");
-            File workDirFile = new File(workDir);
-            
-            // 如果当前工作目录名为config-tool-java，返回其上级目录
-            if (workDirFile.getName().equals("config-tool-java") && workDirFile.getParentFile() != null) {
-                return workDirFile.getParentFile().getCanonicalPath();
-            }
-            
-            // 否则返回当前工作目录
-            return workDir;
-            
-        } catch (Exception e) {
-            logger.error("获取jar包父目录失败", e);
-            // fallback：返回当前工作目录
-            return System.getProperty("user.dir");
-        }
+        return pathResolver.resolveTemplate(pathTemplate);
     }
     
     /**
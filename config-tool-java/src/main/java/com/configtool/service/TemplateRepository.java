@@ -0,0 +1,320 @@
+package com.configtool.service;
+
+import com.configtool.model.ConfigItem;
+import com.configtool.model.FileTarget;
+import com.configtool.model.Template;
+import com.configtool.util.JsonUtil;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模板仓库（进程内共享）
+ * 在内存中保存已解析的模板，列表和按ID读取直接从内存返回副本（调用方会填充当前值）。
+ * 每隔 revalidateMillis 按目录列表和文件的修改时间、大小重新校验一次，只重新解析发生变化的文件；
+ * 本进程保存或删除模板时同步更新内存
+ *
+ * 可通过系统属性调整：
+ * configtool.templateRepository.revalidateMillis 重新校验磁盘的间隔（毫秒），0 表示每次都校验
+ */
+public class TemplateRepository {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateRepository.class);
+
+    static final String TEMPLATES_DIR = "data/templates/";
+
+    private static final String EXTENSION = ".json";
+
+    private static final TemplateRepository INSTANCE = new TemplateRepository(new File(TEMPLATES_DIR),
+            Long.getLong("configtool.templateRepository.revalidateMillis", 2000L));
+
+    private final File dir;
+    private final long revalidateMillis;
+
+    /** 模板ID（文件名去掉扩展名）-> 缓存项，按文件名排序 */
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    /** 上次按目录列表校验的时间，0 表示尚未加载 */
+    private long lastScanAt;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong scanCount = new AtomicLong();
+
+    TemplateRepository(File dir, long revalidateMillis) {
+        this.dir = dir;
+        this.revalidateMillis = revalidateMillis;
+    }
+
+    /**
+     * 获取进程内共享的模板仓库
+     */
+    public static TemplateRepository getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取所有模板（副本）
+     */
+    public synchronized List<Template> list() {
+        long now = System.currentTimeMillis();
+        if (lastScanAt == 0 || now - lastScanAt >= revalidateMillis) {
+            scan(now);
+        } else {
+            hitCount.incrementAndGet();
+        }
+        List<Template> templates = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (entry.template != null) {
+                templates.add(copyOf(entry.template));
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * 根据ID获取模板（副本）
+     *
+     * @return 模板；文件不存在或无法解析时返回 null
+     */
+    public synchronized Template get(String templateId) {
+        Entry entry = lookup(templateId, false);
+        return entry != null ? copyOf(entry.template) : null;
+    }
+
+    /**
+     * 立即与磁盘校验后获取模板（副本）及其对应的文件版本
+     * 调用方已知文件发生变化时使用，不受 revalidateMillis 影响
+     *
+     * @return 模板及解析时的修改时间和大小；文件不存在或无法解析时返回 null
+     */
+    public synchronized VersionedTemplate getCurrent(String templateId) {
+        Entry entry = lookup(templateId, true);
+        if (entry == null || entry.template == null) {
+            return null;
+        }
+        return new VersionedTemplate(copyOf(entry.template), entry.lastModified, entry.size);
+    }
+
+    /**
+     * 查找缓存项，需要时按文件修改时间和大小重新加载（调用方持有锁）
+     *
+     * @param force 是否忽略 revalidateMillis 立即校验磁盘
+     */
+    private Entry lookup(String templateId, boolean force) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(templateId);
+        if (entry != null && !force && now - entry.checkedAt < revalidateMillis) {
+            hitCount.incrementAndGet();
+            return entry;
+        }
+
+        File file = fileOf(templateId);
+        long lastModified = file.lastModified();
+        if (lastModified == 0 && !file.exists()) {
+            entries.remove(templateId);
+            return null;
+        }
+        if (entry != null && entry.isCurrent(lastModified, file.length())) {
+            entry.checkedAt = now;
+            hitCount.incrementAndGet();
+            return entry;
+        }
+        entry = load(file, now);
+        entries.put(templateId, entry);
+        return entry;
+    }
+
+    /**
+     * 模板已写入文件后同步更新内存
+     *
+     * @param template 已保存的模板（由仓库持有，调用方之后不应再修改）
+     */
+    public synchronized void put(String templateId, Template template) {
+        File file = fileOf(templateId);
+        Entry entry = new Entry(template, file.lastModified(), file.length(), System.currentTimeMillis());
+        entries.put(templateId, entry);
+    }
+
+    /**
+     * 模板文件已删除后同步移除
+     */
+    public synchronized void remove(String templateId) {
+        entries.remove(templateId);
+    }
+
+    /**
+     * 清空内存，下次访问时重新从磁盘加载
+     */
+    public synchronized void clear() {
+        entries.clear();
+        lastScanAt = 0;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("hitCount", hitCount.get());
+        stats.put("loadCount", loadCount.get());
+        stats.put("scanCount", scanCount.get());
+        stats.put("revalidateMillis", revalidateMillis);
+        return stats;
+    }
+
+    /**
+     * 按目录列表校验：新增或修改时间、大小变化的文件重新解析，已删除的文件移除（调用方持有锁）
+     */
+    private void scan(long now) {
+        scanCount.incrementAndGet();
+        lastScanAt = now;
+        if (!dir.exists()) {
+            logger.warn("模板目录不存在: {}", dir.getAbsolutePath());
+            entries.clear();
+            return;
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            entries.clear();
+            return;
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (File file : files) {
+            String templateId = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+            seen.add(templateId);
+            Entry entry = entries.get(templateId);
+            if (entry != null && entry.isCurrent(file.lastModified(), file.length())) {
+                entry.checkedAt = now;
+                continue;
+            }
+            entries.put(templateId, load(file, now));
+        }
+        entries.keySet().retainAll(seen);
+    }
+
+    /**
+     * 读取并解析模板文件；先记录修改时间和大小，读取期间文件被修改时下次校验会重新加载
+     */
+    private Entry load(File file, long now) {
+        loadCount.incrementAndGet();
+        long lastModified = file.lastModified();
+        long size = file.length();
+        Template template = null;
+        try {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            template = JsonUtil.fromJson(content, Template.class);
+        } catch (IOException e) {
+            logger.error("读取模板文件失败: {}", file.getName(), e);
+        } catch (RuntimeException e) {
+            // 无法解析的文件也记录下来，文件未变化时不再重复解析
+            logger.error("解析模板文件失败: {}", file.getName(), e);
+        }
+        return new Entry(template, lastModified, size, now);
+    }
+
+    private File fileOf(String templateId) {
+        return new File(dir, templateId + EXTENSION);
+    }
+
+    /**
+     * 复制模板（配置项和目标点均为新对象）
+     */
+    private static Template copyOf(Template template) {
+        if (template == null) {
+            return null;
+        }
+        Template copy = new Template(template.getId(), template.getName(), template.getDescription());
+        if (template.getItems() == null) {
+            copy.setItems(null);
+            return copy;
+        }
+        List<ConfigItem> items = new ArrayList<>(template.getItems().size());
+        for (ConfigItem item : template.getItems()) {
+            if (item == null) {
+                items.add(null);
+                continue;
+            }
+            ConfigItem itemCopy = new ConfigItem(item.getId(), item.getName(), item.getDescription(), item.getDefaultValue());
+            itemCopy.setCurrentValue(item.getCurrentValue());
+            itemCopy.setStatus(item.getStatus());
+            if (item.getTargets() == null) {
+                itemCopy.setTargets(null);
+            } else {
+                List<FileTarget> targets = new ArrayList<>(item.getTargets().size());
+                for (FileTarget target : item.getTargets()) {
+                    targets.add(target == null ? null : new FileTarget(target.getId(), target.getFilePath(),
+                            target.getLineNumber(), target.getPrefix(), target.getSuffix()));
+                }
+                itemCopy.setTargets(targets);
+            }
+            items.add(itemCopy);
+        }
+        copy.setItems(items);
+        return copy;
+    }
+
+    /**
+     * 模板及其解析时对应的文件版本
+     */
+    public static class VersionedTemplate {
+        private final Template template;
+        private final long lastModified;
+        private final long size;
+
+        VersionedTemplate(Template template, long lastModified, long size) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        public Template getTemplate() {
+            return template;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * 缓存项
+     */
+    private static class Entry {
+        /** 解析结果，文件无法解析时为 null */
+        final Template template;
+        final long lastModified;
+        final long size;
+        /** 上次确认与磁盘一致的时间 */
+        long checkedAt;
+
+        Entry(Template template, long lastModified, long size, long checkedAt) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.checkedAt = checkedAt;
+        }
+
+        boolean isCurrent(long lastModified, long size) {
+            return this.lastModified == lastModified && this.size == size;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.configtool.service;
 
+import com.configtool.config.EnvironmentConfig;
 import com.configtool.model.ConfigItem;
 import com.configtool.model.FileTarget;
 import com.configtool.model.Template;
+import com.configtool.util.AtomicFileWriter;
 import com.configtool.util.JsonUtil;
 import com.fasterxml.uuid.Generators;
 import org.apache.commons.io.FileUtils;
@@ -13,7 +15,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 模板管理服务
@@ -21,9 +27,13 @@ import java.util.List;
  */
 public class TemplateService {
     private static final Logger logger = LoggerFactory.getLogger(TemplateService.class);
-    private static final String TEMPLATES_DIR = "data/templates/";
+    private static final String TEMPLATES_DIR = TemplateRepository.TEMPLATES_DIR;
+    
+    /** 编译后的模板（所有实例共享），模板保存时重建，模板文件被外部修改时按版本失效 */
+    private static final Map<String, CompiledTemplate> COMPILED_TEMPLATES = new ConcurrentHashMap<>();
     
     private final FileProcessor fileProcessor;
+    private final TemplateRepository repository = TemplateRepository.getInstance();
 
     public TemplateService() {
         this.fileProcessor = new FileProcessor();
@@ -44,35 +54,52 @@ public class TemplateService {
     }
 
     /**
-     * 获取所有模板列表
+     * 启动时恢复被中断的写入
+     * 清理模板目录、骨架模板目录以及所有目标文件所在目录中遗留的临时文件
      */
-    public List<Template> getAllTemplates() {
-        List<Template> templates = new ArrayList<>();
-        File dir = new File(TEMPLATES_DIR);
+    public void recoverInterruptedWrites() {
+        Set<File> dirs = new LinkedHashSet<>();
+        dirs.add(new File(TEMPLATES_DIR).getAbsoluteFile());
+        dirs.add(new File(EnvironmentConfig.SKELETON_TEMPLATES_DIR).getAbsoluteFile());
         
-        if (!dir.exists()) {
-            logger.warn("模板目录不存在: {}", dir.getAbsolutePath());
-            return templates;
-        }
-        
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
-        if (files == null) {
-            return templates;
-        }
-        
-        for (File file : files) {
-            try {
-                String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-                Template template = JsonUtil.fromJson(content, Template.class);
-                if (template != null) {
-                    templates.add(template);
+        for (Template template : getAllTemplates()) {
+            if (template.getItems() == null) {
+                continue;
+            }
+            for (ConfigItem item : template.getItems()) {
+                if (item.getTargets() == null) {
+                    continue;
+                }
+                for (FileTarget target : item.getTargets()) {
+                    try {
+                        File parent = new File(fileProcessor.cleanFilePath(target.getFilePath())).getAbsoluteFile().getParentFile();
+                        if (parent != null) {
+                            dirs.add(parent);
+                        }
+                    } catch (Exception e) {
+                        logger.debug("跳过无法解析的目标路径: {}", target.getFilePath());
+                    }
                 }
-            } catch (IOException e) {
-                logger.error("读取模板文件失败: {}", file.getName(), e);
             }
         }
         
-        logger.info("加载了 {} 个模板", templates.size());
+        int recovered = 0;
+        for (File dir : dirs) {
+            recovered += AtomicFileWriter.recoverDirectory(dir);
+        }
+        if (recovered > 0) {
+            logger.warn("启动恢复完成，处理了 {} 个遗留临时文件", recovered);
+        } else {
+            logger.debug("启动恢复完成，扫描了 {} 个目录，无遗留临时文件", dirs.size());
+        }
+    }
+
+    /**
+     * 获取所有模板列表（从模板仓库返回副本）
+     */
+    public List<Template> getAllTemplates() {
+        List<Template> templates = repository.list();
+        logger.debug("加载了 {} 个模板", templates.size());
         return templates;
     }
 
@@ -80,61 +107,107 @@ public class TemplateService {
      * 根据ID获取模板详情（包含当前值）
      */
     public Template getTemplateById(String templateId) {
-        File file = new File(TEMPLATES_DIR + templateId + ".json");
-        
-        if (!file.exists()) {
-            logger.warn("模板文件不存在: {}", file.getAbsolutePath());
-            return null;
+        Template template = loadTemplate(templateId);
+        if (template != null) {
+            // 填充当前值
+            fillCurrentValues(template);
+        }
+        return template;
+    }
+
+    /**
+     * 根据ID读取模板（不填充当前值，从模板仓库返回副本）
+     */
+    public Template loadTemplate(String templateId) {
+        Template template = repository.get(templateId);
+        if (template == null) {
+            logger.warn("模板文件不存在或无法读取: {}", getTemplateFile(templateId).getAbsolutePath());
+        }
+        return template;
+    }
+
+    /**
+     * 获取模板的编译结果，模板不存在时返回 null
+     * 同一模板版本只编译一次
+     */
+    public CompiledTemplate getCompiledTemplate(String templateId) {
+        File file = getTemplateFile(templateId);
+        CompiledTemplate compiled = COMPILED_TEMPLATES.get(templateId);
+        if (compiled != null && compiled.isCurrent(file)) {
+            return compiled;
         }
         
-        try {
-            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-            Template template = JsonUtil.fromJson(content, Template.class);
-            
-            if (template != null) {
-                // 填充当前值
-                fillCurrentValues(template);
-            }
-            
-            return template;
-        } catch (IOException e) {
-            logger.error("读取模板文件失败: {}", file.getName(), e);
+        // 文件已变化：绕过仓库的校验间隔重新读取，并以实际解析的文件版本标记编译结果
+        TemplateRepository.VersionedTemplate current = repository.getCurrent(templateId);
+        if (current == null) {
+            logger.warn("模板文件不存在或无法读取: {}", file.getAbsolutePath());
+            COMPILED_TEMPLATES.remove(templateId);
             return null;
         }
+        Template template = current.getTemplate();
+        compiled = CompiledTemplate.compile(template, current.getLastModified(), current.getSize(),
+                PathResolver.getInstance());
+        COMPILED_TEMPLATES.put(templateId, compiled);
+        logger.debug("编译模板: {}, 目标文件 {} 个", template.getName(), compiled.getFileGroups().size());
+        return compiled;
+    }
+    
+    /**
+     * 清除所有编译结果（路径解析环境变化时调用）
+     */
+    public static void clearCompiledTemplates() {
+        COMPILED_TEMPLATES.clear();
+    }
+
+    /**
+     * 获取模板对应的文件
+     */
+    public File getTemplateFile(String templateId) {
+        return new File(TEMPLATES_DIR + templateId + ".json");
     }
 
     /**
      * 填充模板配置项的当前值和状态
      */
-    private void fillCurrentValues(Template template) {
+    public void fillCurrentValues(Template template) {
         if (template.getItems() == null) {
             return;
         }
         
         for (ConfigItem item : template.getItems()) {
-            if (item.getTargets() != null && !item.getTargets().isEmpty()) {
-                analyzeConfigItemStatus(item);
-            } else {
-                // 没有目标点的配置项
-                item.setCurrentValue("");
-                item.setStatus("ERROR");
+            fillCurrentValue(item);
+        }
+    }
+
+    /**
+     * 填充单个配置项的当前值和状态
+     */
+    void fillCurrentValue(ConfigItem item) {
+        List<String> values = new ArrayList<>();
+        if (item.getTargets() != null) {
+            for (FileTarget target : item.getTargets()) {
+                values.add(fileProcessor.extractCurrentValue(target));
             }
         }
+        applyCurrentValues(item, values);
     }
     
     /**
-     * 分析配置项状态：检查所有目标点
+     * 根据各目标点读取到的值（与目标点顺序一致）设置配置项的当前值和状态
      */
-    private void analyzeConfigItemStatus(ConfigItem item) {
-        List<String> allValues = new ArrayList<>();
+    void applyCurrentValues(ConfigItem item, List<String> values) {
+        if (values.isEmpty()) {
+            // 没有目标点的配置项
+            item.setCurrentValue("");
+            item.setStatus("ERROR");
+            return;
+        }
+        
         List<String> successValues = new ArrayList<>();
         List<String> errorMessages = new ArrayList<>();
         
         // 检查每个目标点
-        for (FileTarget target : item.getTargets()) {
-            String value = fileProcessor.extractCurrentValue(target);
-            allValues.add(value);
-            
+        for (String value : values) {
             if (isErrorMessage(value)) {
                 errorMessages.add(value);
             } else {
@@ -163,7 +236,7 @@ public class TemplateService {
         }
         
         logger.debug("配置项 {} 状态分析完成: 总目标点={}, 成功={}, 失败={}, 状态={}", 
-                    item.getName(), allValues.size(), successValues.size(), 
+                    item.getName(), values.size(), successValues.size(), 
                     errorMessages.size(), item.getStatus());
     }
     
@@ -175,7 +248,8 @@ public class TemplateService {
             value.equals("文件不存在") || 
             value.equals("前缀未找到") || 
             value.equals("行号无效") || 
-            value.equals("读取失败")
+            value.equals("读取失败") ||
+            value.equals("读取超时")
         );
     }
     
@@ -207,7 +281,13 @@ public class TemplateService {
             String json = JsonUtil.toJson(template);
             File file = new File(TEMPLATES_DIR + template.getId() + ".json");
             
-            FileUtils.writeStringToFile(file, json, StandardCharsets.UTF_8);
+            AtomicFileWriter.write(file, json.getBytes(StandardCharsets.UTF_8));
+            TemplateStatusWatcher.getInstance().invalidate(template.getId());
+            
+            // 基于保存的内容更新模板仓库并重建编译结果（与调用方持有的对象分离）
+            Template saved = JsonUtil.fromJson(json, Template.class);
+            repository.put(template.getId(), saved);
+            COMPILED_TEMPLATES.put(template.getId(), CompiledTemplate.compile(saved, file, PathResolver.getInstance()));
             
             logger.info("保存模板成功: {} -> {}", template.getName(), file.getAbsolutePath());
             return template;
@@ -230,6 +310,9 @@ public class TemplateService {
         }
         
         boolean deleted = file.delete();
+        TemplateStatusWatcher.getInstance().invalidate(templateId);
+        COMPILED_TEMPLATES.remove(templateId);
+        repository.remove(templateId);
         if (deleted) {
             logger.info("删除模板成功: {}", file.getAbsolutePath());
         } else {
@@ -285,6 +368,9 @@ public class TemplateService {
             return;
         }
         
+        TemplateStatusWatcher.getInstance().clear();
+        COMPILED_TEMPLATES.clear();
+        repository.clear();
         int deletedCount = 0;
         for (File file : files) {
             if (file.delete()) {
@@ -352,7 +438,7 @@ public class TemplateService {
             }
             
             String json = JsonUtil.toJson(template);
-            File file = new File(fileName);
+            File file = new File(fileName).getAbsoluteFile();
             
             // 确保目录存在
             File parentDir = file.getParentFile();
@@ -360,7 +446,7 @@ public class TemplateService {
                 parentDir.mkdirs();
             }
             
-            FileUtils.writeStringToFile(file, json, StandardCharsets.UTF_8);
+            AtomicFileWriter.write(file, json.getBytes(StandardCharsets.UTF_8));
             
             logger.info("保存模板到文件成功: {} -> {}", template.getName(), file.getAbsolutePath());
             
@@ -0,0 +1,494 @@
+package com.configtool.service;
+
+import com.configtool.model.ConfigItem;
+import com.configtool.model.FileTarget;
+import com.configtool.model.Template;
+import com.configtool.model.TemplateWithStatus;
+import com.configtool.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模板状态监视器
+ * 缓存每个模板的状态快照，并通过 WatchService 监视所有目标文件所在目录：
+ * 目标文件变化时只重新检查该文件涉及的配置项，读取状态时直接返回快照。
+ * 快照发布后不再修改，刷新时生成新的快照替换旧快照
+ */
+public class TemplateStatusWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateStatusWatcher.class);
+
+    /** 收到文件事件后等待后续事件的时间，合并编辑器一次保存产生的多个事件 */
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private static final TemplateStatusWatcher INSTANCE = new TemplateStatusWatcher();
+
+    /**
+     * 配置项状态检查方法（刷新模板中指定配置项的当前值并返回其状态，结果与传入下标顺序一致）
+     */
+    public interface ItemStatusChecker {
+        List<TemplateWithStatus.ConfigItemStatus> check(Template template, List<Integer> itemIndexes);
+    }
+
+    /**
+     * 状态变化监听器
+     */
+    public interface StatusChangeListener {
+        /**
+         * @param templateId   状态发生变化的模板
+         * @param changedItems 重新检查过的配置项名称
+         */
+        void onStatusChanged(String templateId, List<String> changedItems);
+    }
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Object refreshLock = new Object();
+    private final List<StatusChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** 已注册监视的目录 */
+    private final Map<Path, WatchKey> watchedDirs = new HashMap<>();
+
+    /** 被快照引用的文件最近一次变化时的事件序号 */
+    private final Map<Path, Long> lastChangeSequence = new ConcurrentHashMap<>();
+    private long eventSequence;
+
+    private WatchService watchService;
+    private Thread watchThread;
+
+    TemplateStatusWatcher() {
+    }
+
+    /**
+     * 获取进程内共享的监视器实例
+     */
+    public static TemplateStatusWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 获取模板的状态快照，没有快照或快照已过期时返回 null
+     */
+    public TemplateWithStatus getSnapshot(String templateId) {
+        Snapshot snapshot = snapshots.get(templateId);
+        if (snapshot == null) {
+            return null;
+        }
+        if (!snapshot.isTemplateUnchanged()) {
+            snapshots.remove(templateId, snapshot);
+            logger.debug("模板文件已变化，丢弃状态快照: {}", templateId);
+            return null;
+        }
+        // 目标目录无法监视的配置项和上次检查超时的配置项，每次读取时重新检查
+        Set<Integer> recheckItems = new HashSet<>(snapshot.unwatchedItems);
+        recheckItems.addAll(snapshot.timedOutItems());
+        if (!recheckItems.isEmpty()) {
+            Snapshot refreshed = refresh(snapshot, recheckItems, false);
+            snapshots.replace(templateId, snapshot, refreshed);
+            snapshot = refreshed;
+        }
+        return snapshot.status;
+    }
+
+    /**
+     * 开始检查模板状态前调用：注册模板所有目标文件所在目录的监视
+     *
+     * @return 当前事件序号，发布快照时传回，用于发现检查期间发生的文件变化
+     */
+    public synchronized long prepare(Template template) {
+        for (Path file : collectTargetFiles(template).keySet()) {
+            watchDirectory(file.getParent());
+        }
+        return eventSequence;
+    }
+
+    /**
+     * 发布模板状态快照
+     * 检查期间有目标文件发生变化时，重新检查相关配置项后再发布
+     *
+     * @param templateFile  模板文件，用于校验快照对应的模板版本
+     * @param status        完整检查得到的模板状态
+     * @param startSequence prepare 返回的事件序号
+     * @param checker       配置项状态检查方法，文件变化时使用
+     * @return 发布后的模板状态
+     */
+    public TemplateWithStatus publish(String templateId, File templateFile, TemplateWithStatus status,
+                                      long startSequence, ItemStatusChecker checker) {
+        Map<Path, Set<Integer>> itemsByFile = collectTargetFiles(status.getTemplate());
+        Set<Integer> unwatchedItems = new HashSet<>();
+        Set<Integer> changedItems = new HashSet<>();
+        synchronized (this) {
+            for (Map.Entry<Path, Set<Integer>> entry : itemsByFile.entrySet()) {
+                Path file = entry.getKey();
+                if (!watchedDirs.containsKey(file.getParent())) {
+                    unwatchedItems.addAll(entry.getValue());
+                }
+                Long changed = lastChangeSequence.get(file);
+                if (changed != null && changed > startSequence) {
+                    changedItems.addAll(entry.getValue());
+                }
+            }
+        }
+
+        Snapshot snapshot = new Snapshot(templateId, templateFile, status, itemsByFile, unwatchedItems, checker);
+        if (!changedItems.isEmpty()) {
+            snapshot = refresh(snapshot, changedItems, false);
+        }
+        snapshots.put(templateId, snapshot);
+        logger.debug("发布模板状态快照: {}, 监视文件 {} 个, 无法监视的配置项 {} 个",
+                templateId, itemsByFile.size(), unwatchedItems.size());
+        return snapshot.status;
+    }
+
+    /**
+     * 通知目标文件已被修改（本进程写入后立即调用，不必等待文件事件）
+     */
+    public void filesChanged(Collection<File> files) {
+        Set<Path> paths = new LinkedHashSet<>();
+        for (File file : files) {
+            paths.add(normalize(file));
+        }
+        synchronized (this) {
+            eventSequence++;
+            for (Path path : paths) {
+                lastChangeSequence.put(path, eventSequence);
+            }
+        }
+        refreshFiles(paths);
+    }
+
+    /**
+     * 使指定模板的快照失效（模板保存或删除时调用）
+     */
+    public void invalidate(String templateId) {
+        if (snapshots.remove(templateId) != null) {
+            logger.debug("模板状态快照已失效: {}", templateId);
+        }
+    }
+
+    /**
+     * 清空所有快照（目标路径解析方式变化时调用）
+     */
+    public void clear() {
+        snapshots.clear();
+        logger.info("模板状态快照已清空");
+    }
+
+    public void addListener(StatusChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StatusChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 停止监视线程
+     */
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("关闭文件监视服务失败", e);
+            }
+            watchService = null;
+            watchThread = null;
+            watchedDirs.clear();
+        }
+        snapshots.clear();
+    }
+
+    /**
+     * 获取监视器统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("snapshots", snapshots.size());
+        stats.put("watchedDirectories", watchedDirs.size());
+        stats.put("listeners", listeners.size());
+        return stats;
+    }
+
+    /**
+     * 按文件汇总模板中的目标点（规范化路径 -> 配置项下标）
+     */
+    private Map<Path, Set<Integer>> collectTargetFiles(Template template) {
+        Map<Path, Set<Integer>> itemsByFile = new LinkedHashMap<>();
+        if (template == null || template.getItems() == null) {
+            return itemsByFile;
+        }
+        PathResolver pathResolver = PathResolver.getInstance();
+        List<ConfigItem> items = template.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getTargets() == null) {
+                continue;
+            }
+            for (FileTarget target : items.get(i).getTargets()) {
+                try {
+                    String cleanedPath = pathResolver.cleanFilePath(target.getFilePath());
+                    if (cleanedPath.isEmpty()) {
+                        continue;
+                    }
+                    itemsByFile.computeIfAbsent(normalize(new File(cleanedPath)), k -> new HashSet<>()).add(i);
+                } catch (Exception e) {
+                    logger.debug("跳过无法解析的目标路径: {}", target.getFilePath());
+                }
+            }
+        }
+        return itemsByFile;
+    }
+
+    private static Path normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    /**
+     * 注册目录监视，首次注册时启动监视线程
+     */
+    private synchronized void watchDirectory(Path dir) {
+        if (dir == null || watchedDirs.containsKey(dir)) {
+            return;
+        }
+        if (!dir.toFile().isDirectory()) {
+            return;
+        }
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                watchThread = new Thread(this::watchLoop, "template-status-watcher");
+                watchThread.setDaemon(true);
+                watchThread.start();
+                logger.info("文件监视线程已启动");
+            }
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirs.put(dir, key);
+            logger.debug("开始监视目录: {}", dir);
+        } catch (IOException e) {
+            logger.warn("无法监视目录，相关配置项将在每次读取时检查: {} ({})", dir, e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                Set<Path> overflowDirs = new LinkedHashSet<>();
+                // 合并短时间内的连续事件
+                while (key != null) {
+                    collectEvents(key, changed, overflowDirs);
+                    key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                handleChanges(changed, overflowDirs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("文件监视服务已关闭");
+        } catch (RuntimeException e) {
+            logger.error("文件监视线程异常退出", e);
+        }
+    }
+
+    private void collectEvents(WatchKey key, Set<Path> changed, Set<Path> overflowDirs) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowDirs.add(dir);
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            synchronized (this) {
+                watchedDirs.remove(dir);
+            }
+            logger.warn("目录已不可监视: {}", dir);
+        }
+    }
+
+    private void handleChanges(Set<Path> changed, Set<Path> overflowDirs) {
+        // 只关心被快照引用的文件；事件溢出时目录下所有被引用的文件都视为变化
+        Set<Path> relevant = new LinkedHashSet<>();
+        for (Snapshot snapshot : snapshots.values()) {
+            for (Path file : snapshot.itemsByFile.keySet()) {
+                if (changed.contains(file) || overflowDirs.contains(file.getParent())) {
+                    relevant.add(file);
+                }
+            }
+        }
+        if (relevant.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            eventSequence++;
+            for (Path path : relevant) {
+                lastChangeSequence.put(path, eventSequence);
+            }
+        }
+        refreshFiles(relevant);
+    }
+
+    /**
+     * 重新检查引用了指定文件的所有快照中的相关配置项
+     */
+    private void refreshFiles(Set<Path> files) {
+        synchronized (refreshLock) {
+            for (Snapshot snapshot : snapshots.values()) {
+                Set<Integer> affected = new HashSet<>();
+                for (Path file : files) {
+                    Set<Integer> items = snapshot.itemsByFile.get(file);
+                    if (items != null) {
+                        affected.addAll(items);
+                    }
+                }
+                if (affected.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Snapshot refreshed = refresh(snapshot, affected, true);
+                    snapshots.replace(snapshot.templateId, snapshot, refreshed);
+                } catch (RuntimeException e) {
+                    logger.error("刷新模板状态失败，丢弃快照: {}", snapshot.templateId, e);
+                    snapshots.remove(snapshot.templateId, snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * 基于旧快照重新检查指定配置项，生成新快照
+     */
+    private Snapshot refresh(Snapshot snapshot, Set<Integer> itemIndexes, boolean notify) {
+        Template template = copyOf(snapshot.status.getTemplate());
+        List<ConfigItem> items = template.getItems();
+
+        // 同名配置项的状态以最后一个为准，与完整检查保持一致：涉及某个名称时重新检查所有同名配置项
+        Set<String> names = new HashSet<>();
+        for (int index : itemIndexes) {
+            names.add(items.get(index).getName());
+        }
+
+        List<Integer> recheckItems = new ArrayList<>();
+        List<String> changedItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ConfigItem item = items.get(i);
+            if (names.contains(item.getName())) {
+                recheckItems.add(i);
+                if (!changedItems.contains(item.getName())) {
+                    changedItems.add(item.getName());
+                }
+            }
+        }
+
+        Map<String, TemplateWithStatus.ConfigItemStatus> itemStatuses = new HashMap<>(snapshot.status.getItemStatuses());
+        List<TemplateWithStatus.ConfigItemStatus> statuses = snapshot.checker.check(template, recheckItems);
+        for (int i = 0; i < recheckItems.size(); i++) {
+            itemStatuses.put(items.get(recheckItems.get(i)).getName(), statuses.get(i));
+        }
+
+        Snapshot refreshed = snapshot.withStatus(new TemplateWithStatus(template, itemStatuses));
+        logger.debug("模板 {} 重新检查了 {} 个配置项", snapshot.templateId, changedItems.size());
+        if (notify) {
+            for (StatusChangeListener listener : listeners) {
+                try {
+                    listener.onStatusChanged(snapshot.templateId, Collections.unmodifiableList(changedItems));
+                } catch (RuntimeException e) {
+                    logger.warn("状态变化通知失败", e);
+                }
+            }
+        }
+        return refreshed;
+    }
+
+    private static Template copyOf(Template template) {
+        return JsonUtil.getGson().fromJson(JsonUtil.getGson().toJson(template), Template.class);
+    }
+
+    /**
+     * 模板状态快照（发布后不再修改）
+     */
+    private static class Snapshot {
+        final String templateId;
+        final File templateFile;
+        final long templateLastModified;
+        final long templateSize;
+        final TemplateWithStatus status;
+        final Map<Path, Set<Integer>> itemsByFile;
+        final Set<Integer> unwatchedItems;
+        final ItemStatusChecker checker;
+
+        Snapshot(String templateId, File templateFile, TemplateWithStatus status,
+                 Map<Path, Set<Integer>> itemsByFile, Set<Integer> unwatchedItems, ItemStatusChecker checker) {
+            this(templateId, templateFile, templateFile.lastModified(), templateFile.length(),
+                    status, itemsByFile, unwatchedItems, checker);
+        }
+
+        private Snapshot(String templateId, File templateFile, long templateLastModified, long templateSize,
+                         TemplateWithStatus status, Map<Path, Set<Integer>> itemsByFile,
+                         Set<Integer> unwatchedItems, ItemStatusChecker checker) {
+            this.templateId = templateId;
+            this.templateFile = templateFile;
+            this.templateLastModified = templateLastModified;
+            this.templateSize = templateSize;
+            this.status = status;
+            this.itemsByFile = itemsByFile;
+            this.unwatchedItems = unwatchedItems;
+            this.checker = checker;
+        }
+
+        Snapshot withStatus(TemplateWithStatus newStatus) {
+            return new Snapshot(templateId, templateFile, templateLastModified, templateSize,
+                    newStatus, itemsByFile, unwatchedItems, checker);
+        }
+
+        /**
+         * 上次检查超时的配置项
+         */
+        Set<Integer> timedOutItems() {
+            Set<Integer> indexes = new HashSet<>();
+            List<ConfigItem> items = status.getTemplate().getItems();
+            if (items == null) {
+                return indexes;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                TemplateWithStatus.ConfigItemStatus itemStatus = status.getItemStatuses().get(items.get(i).getName());
+                if (itemStatus != null && "TIMEOUT".equals(itemStatus.getStatus())) {
+                    indexes.add(i);
+                }
+            }
+            return indexes;
+        }
+
+        boolean isTemplateUnchanged() {
+            return templateFile.lastModified() == templateLastModified && templateFile.length() == templateSize;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.configtool.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 原子文件写入工具
+ * 先写入同目录下的临时文件并刷盘，再通过原子重命名替换目标文件，
+ * 进程在写入中途被终止时目标文件保持原样
+ */
+public class AtomicFileWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFileWriter.class);
+
+    /** 临时文件后缀：内容可能不完整，恢复时直接删除 */
+    public static final String TEMP_SUFFIX = ".cfgtool-tmp";
+
+    /** 待回写文件后缀：内容完整，但目标文件可能在回写中途被截断，恢复时需要重新回写 */
+    public static final String PENDING_SUFFIX = ".cfgtool-pending";
+
+    private static final Pattern PENDING_NAME = Pattern.compile("^(.+)\\.\\d+" + Pattern.quote(PENDING_SUFFIX) + "$");
+
+    /**
+     * 向临时文件写入内容的回调
+     */
+    public interface ContentWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * 原子写入单个文件
+     */
+    public static void write(File target, byte[] content) throws IOException {
+        try (Batch batch = new Batch()) {
+            batch.stage(target, content);
+            Map<File, IOException> failures = batch.commit();
+            if (!failures.isEmpty()) {
+                // 批次按绝对路径记录失败，只有一个文件，直接取唯一的失败
+                throw failures.values().iterator().next();
+            }
+        }
+    }
+
+    /**
+     * 启动时清理指定目录中遗留的临时文件
+     * 未提交的临时文件直接删除；待回写文件说明上次回写被中断，重新回写到目标文件
+     *
+     * @return 处理的遗留文件数
+     */
+    public static int recoverDirectory(File dir) {
+        File[] leftovers = dir.listFiles((d, name) -> name.endsWith(TEMP_SUFFIX) || name.endsWith(PENDING_SUFFIX));
+        if (leftovers == null) {
+            return 0;
+        }
+
+        int recovered = 0;
+        for (File leftover : leftovers) {
+            try {
+                if (leftover.getName().endsWith(PENDING_SUFFIX)) {
+                    Matcher matcher = PENDING_NAME.matcher(leftover.getName());
+                    if (matcher.matches()) {
+                        File target = new File(dir, matcher.group(1));
+                        copyInPlace(leftover.toPath(), target.toPath());
+                        logger.warn("恢复被中断的写入: {}", target.getPath());
+                    }
+                }
+                Files.deleteIfExists(leftover.toPath());
+                recovered++;
+                logger.info("清理遗留临时文件: {}", leftover.getPath());
+            } catch (IOException e) {
+                logger.error("处理遗留临时文件失败: {}", leftover.getPath(), e);
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * 批次中记录目标文件使用的形式：绝对路径并去掉 . 和 ..（commit 返回的失败也以此为键）
+     */
+    public static File targetFile(File target) {
+        try {
+            return target.toPath().toAbsolutePath().normalize().toFile();
+        } catch (InvalidPathException e) {
+            return target.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * 一批文件的组提交
+     * 所有文件先写入临时文件，提交时统一刷盘、重命名，并对每个目录只同步一次。
+     * 每个文件在一个批次中只能准备一次，同一文件的多处修改由调用方先合并
+     */
+    public static class Batch implements Closeable {
+        private final Map<File, Path> staged = new LinkedHashMap<>();
+
+        /**
+         * 为目标文件准备新内容（写入临时文件，尚未替换目标文件）
+         *
+         * @throws IllegalStateException 同一文件已在本批次中准备过（已准备的内容保持不变）
+         */
+        public void stage(File target, ContentWriter writer) throws IOException {
+            File absoluteTarget = targetFile(target);
+            if (staged.containsKey(absoluteTarget)) {
+                throw new IllegalStateException("同一文件在批次中重复写入，应先合并更改: " + absoluteTarget.getPath());
+            }
+            if (absoluteTarget.exists() && !absoluteTarget.canWrite()) {
+                throw new IOException("文件不可写: " + absoluteTarget.getPath());
+            }
+            Path dir = absoluteTarget.getParentFile().toPath();
+            Path temp = Files.createTempFile(dir, absoluteTarget.getName() + ".", TEMP_SUFFIX);
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    writer.write(channel);
+                }
+                copyPermissions(absoluteTarget.toPath(), temp);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+
+            staged.put(absoluteTarget, temp);
+        }
+
+        /**
+         * 为目标文件准备新内容
+         */
+        public void stage(File target, byte[] content) throws IOException {
+            stage(target, channel -> writeFully(channel, ByteBuffer.wrap(content)));
+        }
+
+        public boolean isEmpty() {
+            return staged.isEmpty();
+        }
+
+        /**
+         * 提交所有已准备的文件
+         *
+         * @return 提交失败的文件及原因，全部成功时为空
+         */
+        public Map<File, IOException> commit() {
+            Map<File, IOException> failures = new LinkedHashMap<>();
+
+            // 1. 统一刷盘
+            for (Map.Entry<File, Path> entry : staged.entrySet()) {
+                try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                } catch (IOException e) {
+                    failures.put(entry.getKey(), e);
+                }
+            }
+
+            // 2. 原子重命名
+            Set<Path> dirs = new LinkedHashSet<>();
+            for (Map.Entry<File, Path> entry : staged.entrySet()) {
+                File target = entry.getKey();
+                if (failures.containsKey(target)) {
+                    continue;
+                }
+                try {
+                    replace(entry.getValue(), target.toPath());
+                    dirs.add(entry.getValue().getParent());
+                } catch (IOException e) {
+                    failures.put(target, e);
+                }
+            }
+
+            // 3. 每个目录同步一次，确保重命名持久化
+            for (Path dir : dirs) {
+                syncDirectory(dir);
+            }
+
+            for (Path temp : staged.values()) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("删除临时文件失败: {}", temp, e);
+                }
+            }
+            logger.debug("组提交完成: {} 个文件, {} 个目录, 失败 {} 个", staged.size(), dirs.size(), failures.size());
+            staged.clear();
+            return failures;
+        }
+
+        /**
+         * 丢弃未提交的临时文件
+         */
+        @Override
+        public void close() {
+            for (Path temp : staged.values()) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("删除临时文件失败: {}", temp, e);
+                }
+            }
+            staged.clear();
+        }
+    }
+
+    /**
+     * 用临时文件替换目标文件
+     * 优先原子重命名；目标文件被其他进程占用等无法重命名时，退回为原位回写，
+     * 回写前把临时文件改名为待回写文件，以便中断后在启动时恢复
+     */
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.debug("不支持原子重命名，改为原位回写: {}", target);
+        } catch (FileSystemException e) {
+            logger.warn("无法替换文件（可能被其他程序占用），改为原位回写: {} ({})", target, e.getMessage());
+        }
+
+        String pendingName = temp.getFileName().toString();
+        pendingName = pendingName.substring(0, pendingName.length() - TEMP_SUFFIX.length()) + PENDING_SUFFIX;
+        Path pending = temp.resolveSibling(pendingName);
+        Files.move(temp, pending);
+        copyInPlace(pending, target);
+        Files.delete(pending);
+    }
+
+    /**
+     * 将源文件内容原位写入目标文件（保留目标文件本身，仅覆盖内容）
+     */
+    private static void copyInPlace(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.truncate(size);
+            out.force(true);
+        }
+    }
+
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows等平台不支持对目录刷盘，忽略
+            logger.trace("目录刷盘不受支持: {}", dir);
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) {
+        if (!Files.exists(source)) {
+            return;
+        }
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView == null || targetView == null) {
+            return;
+        }
+        try {
+            targetView.setPermissions(sourceView.readAttributes().permissions());
+        } catch (IOException e) {
+            logger.debug("复制文件权限失败: {}", source, e);
+        }
+    }
+
+    /**
+     * 将缓冲区内容完整写入通道
+     */
+    public static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 将源通道的指定区间完整复制到目标通道
+     */
+    public static void transferFully(FileChannel source, long position, long count, FileChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long transferred = source.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("复制文件内容失败：源文件提前结束");
+            }
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.configtool.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 多前缀匹配器
+ * 基于Aho-Corasick自动机，一次扫描即可找出一行文本中出现的所有前缀
+ */
+public class PrefixMatcher {
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int patternCount;
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<int[]> outputs = new ArrayList<>();
+    private int[] failure;
+
+    /** 空前缀在任意文本中都能匹配 */
+    private final BitSet emptyPatterns = new BitSet();
+
+    /**
+     * @param patterns 前缀列表，下标即为匹配结果中的模式编号；null 表示该模式永不匹配
+     */
+    public PrefixMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+        newState();
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (pattern == null) {
+                continue;
+            }
+            if (pattern.isEmpty()) {
+                emptyPatterns.set(i);
+                continue;
+            }
+            addPattern(pattern, i);
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * 模式数量
+     */
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * 扫描文本，返回在其中出现过的模式编号集合
+     */
+    public BitSet match(CharSequence text) {
+        BitSet found = (BitSet) emptyPatterns.clone();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != 0) {
+                state = failure[state];
+                next = transitions.get(state).get(c);
+            }
+            state = next != null ? next : 0;
+            for (int patternIndex : outputs.get(state)) {
+                found.set(patternIndex);
+            }
+        }
+        return found;
+    }
+
+    private int newState() {
+        transitions.add(new HashMap<>());
+        outputs.add(NO_OUTPUT);
+        return transitions.size() - 1;
+    }
+
+    private void addPattern(String pattern, int patternIndex) {
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            if (next == null) {
+                next = newState();
+                transitions.get(state).put(c, next);
+            }
+            state = next;
+        }
+        outputs.set(state, append(outputs.get(state), patternIndex));
+    }
+
+    /**
+     * 按广度优先构建失败指针，并把失败链上的输出合并到当前状态
+     */
+    private void buildFailureLinks() {
+        failure = new int[transitions.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int fallback = failure[state];
+                Integer next = transitions.get(fallback).get(c);
+                while (next == null && fallback != 0) {
+                    fallback = failure[fallback];
+                    next = transitions.get(fallback).get(c);
+                }
+                failure[child] = next != null && next != child ? next : 0;
+                int[] inherited = outputs.get(failure[child]);
+                if (inherited.length > 0) {
+                    outputs.set(child, merge(outputs.get(child), inherited));
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
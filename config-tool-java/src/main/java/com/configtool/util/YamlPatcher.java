@@ -0,0 +1,517 @@
+package com.configtool.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * YAML键值修补工具
+ * 按缩进逐行扫描一遍，定位 "spring.datasource.url" 这样的键路径，只替换对应标量值所在的片段，
+ * 其余内容（注释、顺序、其他键、换行符）原样保留并成段复制；不存在的键插入到最近的已有父节点末尾。
+ *
+ * 只处理块映射；序列项和块标量（| 或 >）中的内容不参与匹配，替换块标量时连同其内容行一起替换
+ */
+public final class YamlPatcher {
+
+    /** 需要加引号才能作为普通标量写入的保留字 */
+    private static final Pattern RESERVED = Pattern.compile("(?i)true|false|yes|no|on|off|null|~");
+
+    /**
+     * 会被 YAML 1.1 解析为非字符串的普通标量（与 SnakeYAML 的隐式类型规则一致）：
+     * 整数（含八进制 0123、十六进制、二进制、六十进制 12:30）、浮点数（含 1e3、.inf、.nan）、时间戳
+     */
+    private static final Pattern[] IMPLICIT_TYPES = {
+            Pattern.compile("[-+]?0b_*[0-1]+[0-1_]*|[-+]?0_*[0-7]+[0-7_]*|[-+]?(?:0|[1-9][0-9_]*)"
+                    + "|[-+]?0x_*[0-9a-fA-F]+[0-9a-fA-F_]*|[-+]?[1-9][0-9_]*(?::[0-5]?[0-9])+"),
+            Pattern.compile("[-+]?(?:\\.[0-9]+|[0-9_]+(?:\\.[0-9_]*)?)(?:[eE][-+]?[0-9]+)?"
+                    + "|[-+]?[0-9][0-9_]*(?::[0-5]?[0-9])+\\.[0-9_]*|[-+]?\\.(?:inf|Inf|INF)|\\.(?:nan|NaN|NAN)"),
+            Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}"
+                    + "|[0-9]{4}-[0-9]{1,2}-[0-9]{1,2}(?:[Tt]|[ \\t]+)[0-9]{1,2}:[0-9]{2}:[0-9]{2}(?:\\.[0-9]*)?"
+                    + "(?:[ \\t]*(?:Z|[-+][0-9]{1,2}(?::[0-9]{2})?))?")
+    };
+
+    /** 出现在开头时需要加引号的字符 */
+    private static final String INDICATORS = "-?:,[]{}#&*!|>'\"%@`";
+
+    private YamlPatcher() {
+    }
+
+    /**
+     * 修补YAML内容
+     *
+     * @param yaml    原内容，可以为空
+     * @param updates 键路径（点分隔）-> 新值，按顺序插入缺失的键
+     * @return 修补后的内容
+     * @throws IllegalArgumentException 键路径的某一级已是标量值或序列，无法写入子键
+     */
+    public static String patch(String yaml, Map<String, String> updates) {
+        return new Patch(yaml != null ? yaml : "", updates).run();
+    }
+
+    /**
+     * 按YAML规则格式化标量值
+     *
+     * @param existing 原值（用于保留原有的引号风格），没有时为 null
+     */
+    static String formatScalar(String value, String existing) {
+        if (existing != null && existing.startsWith("'")) {
+            return singleQuoted(value);
+        }
+        if (existing != null && existing.startsWith("\"")) {
+            return doubleQuoted(value);
+        }
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('\t') >= 0) {
+            return doubleQuoted(value);
+        }
+        return isPlainSafe(value) ? value : singleQuoted(value);
+    }
+
+    private static boolean isPlainSafe(String value) {
+        if (value.isEmpty() || RESERVED.matcher(value).matches()) {
+            return false;
+        }
+        for (Pattern pattern : IMPLICIT_TYPES) {
+            if (pattern.matcher(value).matches()) {
+                return false;
+            }
+        }
+        if (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1))) {
+            return false;
+        }
+        return INDICATORS.indexOf(value.charAt(0)) < 0
+                && !value.contains(": ") && !value.contains(" #") && !value.endsWith(":");
+    }
+
+    private static String singleQuoted(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static String doubleQuoted(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 一次修补过程
+     */
+    private static final class Patch {
+        private final String text;
+        private final Map<String, String> updates;
+        private final Set<String> applied = new HashSet<>();
+        private final String newline;
+        private final StringBuilder out;
+        /** text 中已复制到 out 的位置 */
+        private int copied;
+
+        Patch(String text, Map<String, String> updates) {
+            this.text = text;
+            this.updates = new LinkedHashMap<>(updates);
+            this.newline = text.contains("\r\n") ? "\r\n" : "\n";
+            this.out = new StringBuilder(text.length() + 256);
+        }
+
+        String run() {
+            Deque<Node> stack = new ArrayDeque<>();
+            Node root = new Node(-1, "", true);
+            stack.push(root);
+            int length = text.length();
+            int pos = 0;
+            /** 块标量所属键的缩进，-1 表示不在块标量中 */
+            int blockScalarIndent = -1;
+
+            while (pos < length) {
+                int lineEnd = text.indexOf('\n', pos);
+                int next = lineEnd < 0 ? length : lineEnd + 1;
+                int contentEnd = lineEnd < 0 ? length : lineEnd;
+                if (contentEnd > pos && text.charAt(contentEnd - 1) == '\r') {
+                    contentEnd--;
+                }
+                int first = pos;
+                while (first < contentEnd && text.charAt(first) == ' ') {
+                    first++;
+                }
+                int indent = first - pos;
+                boolean blank = first >= contentEnd;
+
+                if (blockScalarIndent >= 0) {
+                    if (blank || indent > blockScalarIndent) {
+                        if (!blank) {
+                            markContent(stack, next);
+                        }
+                        pos = next;
+                        continue;
+                    }
+                    blockScalarIndent = -1;
+                }
+                if (blank || text.charAt(first) == '#' || text.startsWith("---", first) || text.startsWith("...", first)) {
+                    pos = next;
+                    continue;
+                }
+
+                boolean item = text.charAt(first) == '-' && (first + 1 == contentEnd || text.charAt(first + 1) == ' ');
+                // 与键同缩进的序列项（"key:" 下一行直接是 "- a"）仍属于该键
+                while (stack.peek().indent > indent
+                        || stack.peek().indent == indent && !(item && stack.peek().acceptsItemAt(indent))) {
+                    close(stack.pop());
+                }
+                Node parent = stack.peek();
+
+                if (item) {
+                    // 序列项：其中的内容不参与匹配，父节点也不能再插入子键
+                    parent.sequence = true;
+                    parent.childIndent = parent.childIndent >= 0 ? parent.childIndent : indent;
+                    stack.push(new Node(indent, parent.path + ".-", false));
+                    markContent(stack, next);
+                    pos = next;
+                    continue;
+                }
+
+                int colon = findKeyColon(first, contentEnd);
+                if (colon < 0) {
+                    // 多行标量的续行
+                    markContent(stack, next);
+                    pos = next;
+                    continue;
+                }
+
+                String key = unquote(text.substring(first, colon).trim());
+                String path = parent.path.isEmpty() ? key : parent.path + "." + key;
+                parent.children.add(key);
+                if (parent.childIndent < 0) {
+                    parent.childIndent = indent;
+                }
+
+                int valueStart = colon + 1;
+                while (valueStart < contentEnd && (text.charAt(valueStart) == ' ' || text.charAt(valueStart) == '\t')) {
+                    valueStart++;
+                }
+                int valueEnd = findValueEnd(valueStart, contentEnd);
+                boolean hasValue = valueEnd > valueStart;
+                boolean blockScalar = hasValue && (text.charAt(valueStart) == '|' || text.charAt(valueStart) == '>');
+                if (blockScalar) {
+                    // 块标量的值包括其后缩进更深的内容行
+                    valueEnd = Math.max(valueEnd, blockScalarEnd(next, indent));
+                }
+
+                if (updates.containsKey(path) && !applied.contains(path)
+                        && (hasValue || !hasNestedContent(next, indent))) {
+                    String value = updates.get(path);
+                    if (hasValue) {
+                        String existing = text.substring(valueStart, valueEnd);
+                        out.append(text, copied, valueStart).append(formatScalar(value, existing));
+                        copied = valueEnd;
+                    } else {
+                        out.append(text, copied, colon + 1).append(' ').append(formatScalar(value, null));
+                        copied = colon + 1;
+                    }
+                    hasValue = true;
+                    applied.add(path);
+                }
+                if (blockScalar) {
+                    blockScalarIndent = indent;
+                }
+
+                stack.push(new Node(indent, path, !hasValue));
+                markContent(stack, next);
+                pos = next;
+            }
+
+            while (!stack.isEmpty()) {
+                close(stack.pop());
+            }
+            out.append(text, copied, length);
+
+            if (applied.size() < updates.size()) {
+                List<String> missing = new ArrayList<>();
+                for (String path : updates.keySet()) {
+                    if (!applied.contains(path)) {
+                        missing.add(path);
+                    }
+                }
+                throw new IllegalArgumentException("无法写入YAML键（上级已是标量值或序列）: " + missing);
+            }
+            return out.toString();
+        }
+
+        /**
+         * 当前行属于栈中所有节点的内容
+         */
+        private void markContent(Deque<Node> stack, int next) {
+            for (Node node : stack) {
+                node.contentEnd = next;
+            }
+        }
+
+        /**
+         * 节点结束：在其最后一行之后插入缺失的子键
+         */
+        private void close(Node node) {
+            if (!node.mapping || node.sequence) {
+                // 标量或序列下无法插入键，对应路径保持未写入，最后统一报错
+                return;
+            }
+            String prefix = node.path.isEmpty() ? "" : node.path + ".";
+            InsertTree tree = new InsertTree();
+            for (Map.Entry<String, String> entry : updates.entrySet()) {
+                String path = entry.getKey();
+                if (applied.contains(path) || !path.startsWith(prefix)) {
+                    continue;
+                }
+                String[] segments = path.substring(prefix.length()).split("\\.");
+                if (node.children.contains(segments[0])) {
+                    // 已有的子节点在自己结束时处理
+                    continue;
+                }
+                tree.add(segments, entry.getValue());
+                applied.add(path);
+            }
+            if (tree.children.isEmpty()) {
+                return;
+            }
+
+            int insertAt = node.indent < 0 ? text.length() : node.contentEnd;
+            int childIndent;
+            int step;
+            if (node.indent < 0) {
+                childIndent = 0;
+                step = 2;
+            } else if (node.childIndent >= 0) {
+                childIndent = node.childIndent;
+                step = node.childIndent - node.indent;
+            } else {
+                childIndent = node.indent + 2;
+                step = 2;
+            }
+
+            out.append(text, copied, insertAt);
+            copied = insertAt;
+            if (insertAt > 0 && text.charAt(insertAt - 1) != '\n') {
+                out.append(newline);
+            }
+            tree.write(out, childIndent, step, newline);
+        }
+
+        /**
+         * 从 first 开始查找键后的冒号（冒号后为空白或行尾，且不在引号内）
+         */
+        private int findKeyColon(int first, int contentEnd) {
+            char quote = 0;
+            for (int i = first; i < contentEnd; i++) {
+                char c = text.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (i == first && (c == '\'' || c == '"')) {
+                    quote = c;
+                } else if (c == ':' && (i + 1 == contentEnd || text.charAt(i + 1) == ' ' || text.charAt(i + 1) == '\t')) {
+                    return i;
+                } else if (c == '#' && i > first && text.charAt(i - 1) == ' ') {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 标量值的结束位置（不含行尾注释和尾部空白）
+         */
+        private int findValueEnd(int valueStart, int contentEnd) {
+            if (valueStart >= contentEnd || text.charAt(valueStart) == '#') {
+                return valueStart;
+            }
+            int end = contentEnd;
+            char first = text.charAt(valueStart);
+            if (first == '\'' || first == '"') {
+                int close = findClosingQuote(valueStart, contentEnd, first);
+                if (close >= 0) {
+                    return close + 1;
+                }
+            } else {
+                for (int i = valueStart + 1; i < contentEnd; i++) {
+                    if (text.charAt(i) == '#' && (text.charAt(i - 1) == ' ' || text.charAt(i - 1) == '\t')) {
+                        end = i;
+                        break;
+                    }
+                }
+            }
+            while (end > valueStart && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+                end--;
+            }
+            return end;
+        }
+
+        private int findClosingQuote(int start, int contentEnd, char quote) {
+            for (int i = start + 1; i < contentEnd; i++) {
+                char c = text.charAt(i);
+                if (quote == '"' && c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    if (quote == '\'' && i + 1 < contentEnd && text.charAt(i + 1) == '\'') {
+                        i++;
+                    } else {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 块标量内容的结束位置：from 之后连续的、缩进大于 indent 的最后一个非空行的行尾（不含换行符），
+         * 没有内容行时返回 -1
+         */
+        private int blockScalarEnd(int from, int indent) {
+            int end = -1;
+            int pos = from;
+            int length = text.length();
+            while (pos < length) {
+                int lineEnd = text.indexOf('\n', pos);
+                int contentEnd = lineEnd < 0 ? length : lineEnd;
+                if (contentEnd > pos && text.charAt(contentEnd - 1) == '\r') {
+                    contentEnd--;
+                }
+                int first = pos;
+                while (first < contentEnd && text.charAt(first) == ' ') {
+                    first++;
+                }
+                if (first < contentEnd) {
+                    if (first - pos <= indent) {
+                        break;
+                    }
+                    end = contentEnd;
+                }
+                if (lineEnd < 0) {
+                    break;
+                }
+                pos = lineEnd + 1;
+            }
+            return end;
+        }
+
+        /**
+         * 没有行内值的键是否带有下级内容：下一个内容行缩进更深，或是同缩进的序列项
+         */
+        private boolean hasNestedContent(int from, int indent) {
+            int pos = from;
+            int length = text.length();
+            while (pos < length) {
+                int first = pos;
+                while (first < length && text.charAt(first) == ' ') {
+                    first++;
+                }
+                if (first < length && text.charAt(first) != '\n' && text.charAt(first) != '\r'
+                        && text.charAt(first) != '#') {
+                    int nextIndent = first - pos;
+                    return nextIndent > indent || nextIndent == indent && text.charAt(first) == '-'
+                            && (first + 1 == length || Character.isWhitespace(text.charAt(first + 1)));
+                }
+                int lineEnd = text.indexOf('\n', first);
+                if (lineEnd < 0) {
+                    return false;
+                }
+                pos = lineEnd + 1;
+            }
+            return false;
+        }
+
+        private static String unquote(String key) {
+            if (key.length() >= 2 && (key.charAt(0) == '\'' || key.charAt(0) == '"')
+                    && key.charAt(key.length() - 1) == key.charAt(0)) {
+                return key.substring(1, key.length() - 1);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * 扫描过程中的映射节点
+     */
+    private static final class Node {
+        final int indent;
+        final String path;
+        /** 是否为块映射（没有行内值），只有块映射可以插入子键 */
+        final boolean mapping;
+        final Set<String> children = new HashSet<>();
+        /** 第一个子键的缩进，-1 表示还没有子键 */
+        int childIndent = -1;
+        /** 是否包含序列项 */
+        boolean sequence;
+        /** 节点最后一行之后的位置 */
+        int contentEnd;
+
+        Node(int indent, String path, boolean mapping) {
+            this.indent = indent;
+            this.path = path;
+            this.mapping = mapping;
+        }
+
+        /**
+         * 同缩进的序列项是否属于本节点（没有行内值，且还没有子键或已是序列）
+         */
+        boolean acceptsItemAt(int indent) {
+            return this.indent == indent && mapping && (sequence || childIndent < 0);
+        }
+    }
+
+    /**
+     * 待插入的缺失键（保持提交顺序）
+     */
+    private static final class InsertTree {
+        final Map<String, InsertTree> children = new LinkedHashMap<>();
+        String value;
+
+        void add(String[] segments, String value) {
+            InsertTree node = this;
+            for (String segment : segments) {
+                node = node.children.computeIfAbsent(segment, k -> new InsertTree());
+            }
+            node.value = value;
+        }
+
+        void write(StringBuilder out, int indent, int step, String newline) {
+            for (Map.Entry<String, InsertTree> entry : children.entrySet()) {
+                for (int i = 0; i < indent; i++) {
+                    out.append(' ');
+                }
+                out.append(entry.getKey()).append(':');
+                InsertTree child = entry.getValue();
+                if (child.children.isEmpty()) {
+                    out.append(' ').append(formatScalar(child.value != null ? child.value : "", null));
+                    out.append(newline);
+                } else {
+                    out.append(newline);
+                    child.write(out, indent + step, step, newline);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.configtool.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 数据库连接测试的阶段耗时（使用测试驱动和本地监听端口，不需要真实数据库）
+ */
+public class DatabaseTestServiceTest {
+    private final DatabaseTestService service = new DatabaseTestService();
+    private StubJdbcDriver driver;
+    private ServerSocket listener;
+
+    @Before
+    public void setUp() throws Exception {
+        driver = new StubJdbcDriver();
+        driver.install();
+        listener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        listener.close();
+        driver.uninstall();
+    }
+
+    private Map<String, String> config(int port, String password) {
+        Map<String, String> config = new HashMap<>();
+        config.put("数据库类型", "9");
+        config.put("数据库服务器地址", "127.0.0.1");
+        config.put("数据库端口", String.valueOf(port));
+        config.put("数据库名称", "db");
+        config.put("数据库用户名", "user");
+        config.put("数据库密码", password);
+        return config;
+    }
+
+    private static int closedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void successRecordsAllPhases() {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(listener.getLocalPort(), "success-" + System.nanoTime()));
+
+        assertTrue(result.getMessage(), result.isSuccess());
+        DatabaseTestService.ConnectionTimings timings = result.getTimings();
+        assertNotNull(timings.getDriverLoadMillis());
+        // 成功时不额外建立TCP连接
+        assertNull(timings.getTcpConnectMillis());
+        assertNotNull(timings.getLoginMillis());
+        assertNotNull(timings.getIsValidMillis());
+        assertEquals(5, timings.getQueryRounds());
+        assertEquals(5, driver.queryCount.get());
+        assertTrue(timings.getQueryMinMillis() <= timings.getQueryAvgMillis());
+        assertTrue(timings.getQueryAvgMillis() <= timings.getQueryP95Millis() + 0.01);
+        assertNotNull(timings.getTotalMillis());
+        assertFalse(timings.isPooled());
+        assertNull(timings.getFailedPhase());
+    }
+
+    @Test
+    public void timeoutsArePassedAsDriverPropertiesNotGlobally() {
+        int loginTimeout = DriverManager.getLoginTimeout();
+        service.testDatabaseConnection(config(listener.getLocalPort(), "props-" + System.nanoTime()));
+
+        assertEquals(loginTimeout, DriverManager.getLoginTimeout());
+        assertNotNull(driver.lastProperties.getProperty("connectTimeout"));
+        assertNotNull(driver.lastProperties.getProperty("socketTimeout"));
+    }
+
+    @Test
+    public void repeatedTestReusesWarmConnection() {
+        Map<String, String> config = config(listener.getLocalPort(), "warm-" + System.nanoTime());
+        service.testDatabaseConnection(config);
+        DatabaseTestService.DatabaseTestResult second = service.testDatabaseConnection(config);
+
+        assertTrue(second.isSuccess());
+        assertTrue(second.getTimings().isPooled());
+        assertNull(second.getTimings().getTcpConnectMillis());
+        assertNull(second.getTimings().getLoginMillis());
+        assertEquals(1, driver.connectCount.get());
+    }
+
+    @Test
+    public void refusedTcpConnectFailsInTcpPhase() throws Exception {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(closedPort(), "tcp-" + System.nanoTime()));
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getMessage(), result.getMessage().contains("网络连接失败"));
+        assertEquals("tcp", result.getTimings().getFailedPhase());
+        assertNotNull(result.getTimings().getTcpConnectMillis());
+        assertNotNull(result.getTimings().getLoginMillis());
+        assertEquals(0, driver.connectCount.get());
+    }
+
+    @Test
+    public void rejectedLoginFailsInLoginPhase() {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(listener.getLocalPort(), StubJdbcDriver.PASSWORD_BAD));
+
+        assertFalse(result.isSuccess());
+        assertEquals("login", result.getTimings().getFailedPhase());
+        // 认证失败不是通信失败，不检查端口
+        assertNull(result.getTimings().getTcpConnectMillis());
+        assertNotNull(result.getTimings().getLoginMillis());
+        assertNull(result.getTimings().getIsValidMillis());
+    }
+
+    @Test
+    public void timingsTextSkipsPhasesThatDidNotRun() {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(listener.getLocalPort(), StubJdbcDriver.PASSWORD_BAD));
+        String text = result.getTimings().toString();
+
+        assertFalse(text, text.contains("null"));
+        assertFalse(text, text.contains("isValid="));
+        assertFalse(text, text.contains("验证查询"));
+        assertTrue(text, text.contains("登录="));
+        assertTrue(text, text.endsWith("失败阶段=login"));
+    }
+
+    @Test
+    public void invalidConnectionFailsInIsValidPhase() {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(listener.getLocalPort(), StubJdbcDriver.PASSWORD_INVALID));
+
+        assertFalse(result.isSuccess());
+        assertEquals("isValid", result.getTimings().getFailedPhase());
+        assertNotNull(result.getTimings().getIsValidMillis());
+    }
+
+    @Test
+    public void failingQueryFailsInQueryPhase() {
+        DatabaseTestService.DatabaseTestResult result =
+                service.testDatabaseConnection(config(listener.getLocalPort(), StubJdbcDriver.PASSWORD_QUERY_FAIL));
+
+        assertFalse(result.isSuccess());
+        assertEquals("query", result.getTimings().getFailedPhase());
+        assertEquals(0, result.getTimings().getQueryRounds());
+    }
+
+    @Test
+    public void probeReturnsReachableEndpointWithTimingTable() throws Exception {
+        Map<String, String> config = config(listener.getLocalPort(), "probe-" + System.nanoTime());
+        DatabaseTestService.ProbeResult result = service.probeEndpoints(config,
+                Arrays.asList("127.0.0.1:" + closedPort(), "127.0.0.1"));
+
+        assertTrue(result.getMessage(), result.isSuccess());
+        assertEquals("127.0.0.1", result.getEndpoint());
+        assertEquals(2, result.getEndpoints().size());
+        DatabaseTestService.EndpointResult reachable = result.getEndpoints().get(1);
+        assertTrue(reachable.isSuccess());
+        assertNotNull(reachable.getTimings().getLoginMillis());
+        assertEquals(0, reachable.getTimings().getQueryRounds());
+    }
+}
@@ -0,0 +1,83 @@
+package com.configtool.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * 文件编码检测：大文件只有中间部分含非ASCII内容
+ */
+public class EncodingDetectorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EncodingDetector detector = new EncodingDetector();
+
+    private File largeFile(byte[] middle, int middleOffset) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] ascii = new byte[EncodingDetector.SAMPLE_SIZE * 4];
+        Arrays.fill(ascii, (byte) 'a');
+        content.write(ascii, 0, middleOffset);
+        content.write(middle);
+        content.write(ascii);
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.toByteArray());
+        return file;
+    }
+
+    @Test
+    public void largeAsciiFileIsUtf8() throws Exception {
+        assertEquals(StandardCharsets.UTF_8, detector.detect(largeFile(new byte[0], EncodingDetector.SAMPLE_SIZE * 2)));
+    }
+
+    @Test
+    public void utf8InMiddleIsUtf8() throws Exception {
+        byte[] chinese = "# 数据库地址\nhost=本机\n".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(StandardCharsets.UTF_8, detector.detect(largeFile(chinese, EncodingDetector.SAMPLE_SIZE * 2)));
+        // 多字节字符跨越头部采样边界
+        assertEquals(StandardCharsets.UTF_8, detector.detect(largeFile(chinese, EncodingDetector.SAMPLE_SIZE - 3)));
+    }
+
+    @Test
+    public void gbkInMiddleIsNotUtf8() throws Exception {
+        StringBuilder comment = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            comment.append("# 数据库连接地址，修改后需要重新启动服务\n");
+        }
+        byte[] gbk = comment.toString().getBytes(Charset.forName("GBK"));
+
+        assertNotEquals(StandardCharsets.UTF_8, detector.detect(largeFile(gbk, EncodingDetector.SAMPLE_SIZE * 2)));
+    }
+
+    @Test
+    public void findNonAsciiScansOnlyGivenRange() throws Exception {
+        File file = largeFile(new byte[]{(byte) 0xC4, (byte) 0xE3}, 100);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertEquals(100L, EncodingDetector.findNonAscii(channel, 0, channel.size()));
+            assertEquals(-1L, EncodingDetector.findNonAscii(channel, 102, channel.size()));
+            assertEquals(-1L, EncodingDetector.findNonAscii(channel, 0, 100));
+        }
+    }
+
+    @Test
+    public void incompleteTailLengthCountsTruncatedCharacter() {
+        byte[] utf8 = "a中".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(0, EncodingDetector.incompleteTailLength(utf8));
+        assertEquals(2, EncodingDetector.incompleteTailLength(Arrays.copyOf(utf8, 3)));
+        assertEquals(1, EncodingDetector.incompleteTailLength(Arrays.copyOf(utf8, 2)));
+    }
+}
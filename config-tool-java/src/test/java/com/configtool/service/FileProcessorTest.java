@@ -0,0 +1,59 @@
+package com.configtool.service;
+
+import com.configtool.model.FileTarget;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 批量写入配置更改
+ */
+public class FileProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FileProcessor fileProcessor = new FileProcessor();
+
+    @Test
+    public void changesToSameFileWithDifferentSpellingsAreMerged() throws Exception {
+        File dir = folder.newFolder("dfm");
+        File file = new File(dir, "database.ini");
+        Files.write(file.toPath(), "host=old\nport=1\n".getBytes(StandardCharsets.UTF_8));
+        String path = file.getAbsolutePath();
+        String otherSpelling = new File(new File(dir, "..").getPath(), "dfm" + File.separator + "database.ini").getPath();
+
+        FileProcessor.PendingChange host = new FileProcessor.PendingChange(
+                new FileTarget("t1", path, 1, "host=", ""), "new");
+        FileProcessor.PendingChange port = new FileProcessor.PendingChange(
+                new FileTarget("t2", otherSpelling, 2, "port=", ""), "2");
+        Map<String, List<FileProcessor.PendingChange>> changesByFile = new LinkedHashMap<>();
+        changesByFile.put(path, Collections.singletonList(host));
+        changesByFile.put(otherSpelling, Collections.singletonList(port));
+
+        fileProcessor.applyChanges(changesByFile);
+
+        assertTrue(host.getErrorMessage(), host.isSuccess());
+        assertTrue(port.getErrorMessage(), port.isSuccess());
+        assertEquals(Arrays.asList("host=new", "port=2"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void fileKeyNormalizesDotSegments() {
+        File file = new File(folder.getRoot(), "a" + File.separator + ".." + File.separator + "x.ini");
+
+        assertEquals(FileProcessor.fileKey(new File(folder.getRoot(), "x.ini").getPath()),
+                FileProcessor.fileKey(file.getPath()));
+    }
+}
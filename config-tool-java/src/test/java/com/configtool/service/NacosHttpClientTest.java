@@ -0,0 +1,188 @@
+package com.configtool.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Nacos HTTP传输层（使用本地 HTTP 服务，不需要真实的 Nacos）
+ */
+public class NacosHttpClientTest {
+    private HttpServer server;
+    private NacosHttpClient client;
+    /** 处理过请求的客户端端口，同一端口表示复用了同一个连接 */
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+
+    /** 发布接口的响应及最近一次收到的请求 */
+    private volatile int publishStatus = 200;
+    private volatile String publishResponse = "true";
+    private volatile String publishCasHeader;
+    private volatile String publishForm;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/text", exchange -> respond(exchange, 200, "hello", false));
+        server.createContext("/gzip", exchange -> respond(exchange, 200, "compressed body", true));
+        server.createContext("/error", exchange -> respond(exchange, 500, "internal error detail", false));
+        server.createContext("/nacos/v1/cs/configs", exchange -> {
+            // 只记录发布请求（读取配置和监听请求使用相同前缀）
+            if (!"POST".equals(exchange.getRequestMethod())
+                    || !"/nacos/v1/cs/configs".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404, "", false);
+                return;
+            }
+            publishCasHeader = exchange.getRequestHeaders().getFirst("casMd5");
+            ByteArrayOutputStream form = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = exchange.getRequestBody().read(buffer)) != -1) {
+                form.write(buffer, 0, n);
+            }
+            publishForm = new String(form.toByteArray(), StandardCharsets.UTF_8);
+            respond(exchange, publishStatus, publishResponse, false);
+        });
+        server.start();
+        client = new NacosHttpClient("http://127.0.0.1:" + server.getAddress().getPort(), 2000, 2000);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body, boolean gzip) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        drain(exchange.getRequestBody());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (in.read(buffer) != -1) {
+            // 丢弃
+        }
+    }
+
+    @Test
+    public void sequentialRequestsReuseKeepAliveConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            NacosHttpClient.Response response = client.get("/text", Collections.singletonMap("i", String.valueOf(i)));
+            assertEquals("hello", response.getBody());
+        }
+        client.post("/text", Collections.singletonMap("content", "a=b"));
+
+        assertEquals(clientPorts.toString(), 1, clientPorts.size());
+        assertEquals(6L, client.getStatistics().get("requestCount"));
+    }
+
+    @Test
+    public void gzipResponseIsDecoded() throws Exception {
+        NacosHttpClient.Response response = client.get("/gzip", null);
+
+        assertTrue(response.isOk());
+        assertEquals("compressed body", response.getBody());
+        assertEquals(1L, client.getStatistics().get("gzipResponseCount"));
+    }
+
+    @Test
+    public void errorBodyIsReadAndConnectionReused() throws Exception {
+        NacosHttpClient.Response error = client.get("/error", null);
+        NacosHttpClient.Response ok = client.get("/text", null);
+
+        assertEquals(500, error.getStatusCode());
+        assertEquals("internal error detail", error.getBody());
+        assertEquals("hello", ok.getBody());
+        assertEquals(clientPorts.toString(), 1, clientPorts.size());
+        assertEquals(0L, client.getStatistics().get("failureCount"));
+    }
+
+    @Test
+    public void connectionFailureIsCounted() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        NacosHttpClient unreachable = new NacosHttpClient("http://127.0.0.1:" + closedPort, 1000, 1000);
+        try {
+            unreachable.get("/text", null);
+            fail("应抛出连接异常");
+        } catch (IOException expected) {
+            // 连接被拒绝
+        }
+
+        assertEquals(1L, unreachable.getStatistics().get("requestCount"));
+        assertEquals(1L, unreachable.getStatistics().get("failureCount"));
+    }
+
+    private NacosApiService nacosApiService() {
+        Properties config = new Properties();
+        config.setProperty("nacos.url", "http://127.0.0.1:" + server.getAddress().getPort());
+        config.setProperty("nacos.enabled", "true");
+        // 不登录
+        config.setProperty("nacos.username", "");
+        return new NacosApiService(config);
+    }
+
+    @Test
+    public void casPublishSendsMd5AsHeader() {
+        NacosApiService.PublishOutcome outcome =
+                nacosApiService().publishConfig("a.yml", "DEFAULT_GROUP", "k: v", "0123abcd");
+
+        assertEquals(NacosApiService.PublishOutcome.PUBLISHED, outcome);
+        assertEquals("0123abcd", publishCasHeader);
+        assertFalse(publishForm, publishForm.contains("casMd5"));
+    }
+
+    @Test
+    public void plainPublishSendsNoCasHeader() {
+        assertTrue(nacosApiService().publishConfig("a.yml", "DEFAULT_GROUP", "k: v"));
+        assertNull(publishCasHeader);
+    }
+
+    @Test
+    public void casPublishFailureMapsToConflict() {
+        publishStatus = 500;
+        publishResponse = "Cas publish fail, server md5 may have changed.";
+
+        NacosApiService.PublishOutcome outcome =
+                nacosApiService().publishConfig("a.yml", "DEFAULT_GROUP", "k: v", "0123abcd");
+
+        assertEquals(NacosApiService.PublishOutcome.CONFLICT, outcome);
+        assertEquals("0123abcd", publishCasHeader);
+    }
+}
@@ -0,0 +1,108 @@
+package com.configtool.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * 状态检查线程池：同一文件的检查依次执行
+ */
+public class StatusCheckExecutorTest {
+    private final StatusCheckExecutor executor = new StatusCheckExecutor(4, 16, 1000);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void laterCheckOfSameFileWaitsForRunningOne() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Future<String> first = executor.submit("a.txt", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await();
+            running.decrementAndGet();
+            return "first";
+        });
+        Future<String> second = executor.submit("a.txt", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            running.decrementAndGet();
+            return "second";
+        });
+
+        try {
+            second.get(100, TimeUnit.MILLISECONDS);
+            fail("上一次检查未完成前不应返回");
+        } catch (TimeoutException expected) {
+            // 仍在等待
+        }
+        release.countDown();
+
+        assertEquals("first", first.get(1, TimeUnit.SECONDS));
+        assertEquals("second", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void otherFilesAreNotBlocked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("slow.txt", () -> {
+            release.await();
+            return null;
+        });
+        try {
+            assertEquals("b", executor.submit("b.txt", () -> "b").get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void cancelledWaitingCheckIsSkipped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<Object> first = executor.submit("a.txt", () -> {
+            release.await();
+            return null;
+        });
+        Future<Object> waiting = executor.submit("a.txt", () -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        waiting.cancel(false);
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+
+        assertEquals("third", executor.submit("a.txt", () -> "third").get(1, TimeUnit.SECONDS));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void failureIsReportedToCallerAndReleasesFile() throws Exception {
+        Future<Object> failing = executor.submit("a.txt", () -> {
+            throw new IllegalStateException("读取失败");
+        });
+        try {
+            failing.get(1, TimeUnit.SECONDS);
+            fail("应抛出异常");
+        } catch (ExecutionException e) {
+            assertEquals("读取失败", e.getCause().getMessage());
+        }
+        Future<String> next = executor.submit("a.txt", () -> "ok");
+        assertEquals("ok", next.get(1, TimeUnit.SECONDS));
+        assertFalse(next.isCancelled());
+    }
+}
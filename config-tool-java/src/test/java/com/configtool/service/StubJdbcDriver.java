@@ -0,0 +1,150 @@
+package com.configtool.service;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 测试用JDBC驱动：接管 jdbc:mysql:// 地址，地址端口未监听时按通信失败（SQLState 08S01）处理，
+ * 否则按密码模拟不同的结果
+ * bad        登录失败
+ * invalid    isValid 返回 false
+ * queryfail  验证查询失败
+ * 其他       连接成功
+ */
+public class StubJdbcDriver implements Driver {
+    static final String PASSWORD_BAD = "bad";
+    static final String PASSWORD_INVALID = "invalid";
+    static final String PASSWORD_QUERY_FAIL = "queryfail";
+
+    private static final Pattern ADDRESS = Pattern.compile("^jdbc:mysql://([^:/]+):(\\d+)");
+
+    final AtomicInteger connectCount = new AtomicInteger();
+    final AtomicInteger queryCount = new AtomicInteger();
+    /** 最近一次连接收到的属性 */
+    volatile Properties lastProperties;
+
+    private final List<Driver> replaced = new ArrayList<>();
+
+    /**
+     * 注册为唯一的驱动（先加载真实驱动，避免之后被重新注册）
+     */
+    void install() throws Exception {
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+            DriverManager.deregisterDriver(driver);
+            replaced.add(driver);
+        }
+        DriverManager.registerDriver(this);
+    }
+
+    /**
+     * 恢复原来的驱动
+     */
+    void uninstall() throws SQLException {
+        DriverManager.deregisterDriver(this);
+        for (Driver driver : replaced) {
+            DriverManager.registerDriver(driver);
+        }
+        replaced.clear();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        lastProperties = info;
+        Matcher address = ADDRESS.matcher(url);
+        if (address.find()) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(address.group(1), Integer.parseInt(address.group(2))), 1000);
+            } catch (IOException e) {
+                throw new SQLException("Communications link failure", "08S01", e);
+            }
+        }
+        String password = info.getProperty("password");
+        if (PASSWORD_BAD.equals(password)) {
+            throw new SQLException("Access denied for user");
+        }
+        connectCount.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isValid":
+                            return !PASSWORD_INVALID.equals(password);
+                        case "createStatement":
+                            return statement(password);
+                        case "isClosed":
+                        case "close":
+                            return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                        default:
+                            throw new SQLFeatureNotSupportedException(method.getName());
+                    }
+                });
+    }
+
+    private Statement statement(String password) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeQuery":
+                            if (PASSWORD_QUERY_FAIL.equals(password)) {
+                                throw new SQLException("query failed");
+                            }
+                            queryCount.incrementAndGet();
+                            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                                    (rsProxy, rsMethod, rsArgs) -> "next".equals(rsMethod.getName()) ? Boolean.FALSE : null);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith("jdbc:mysql://");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger(StubJdbcDriver.class.getName());
+    }
+}
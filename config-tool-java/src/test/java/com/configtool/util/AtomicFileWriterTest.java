@@ -0,0 +1,54 @@
+package com.configtool.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 原子文件写入
+ */
+public class AtomicFileWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeReplacesContent() throws Exception {
+        File file = folder.newFile("a.ini");
+        Files.write(file.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+        AtomicFileWriter.write(file, "new".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("new", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void stagingSameFileTwiceIsRejectedAndKeepsFirstContent() throws Exception {
+        File file = folder.newFile("a.ini");
+        File otherSpelling = new File(new File(folder.getRoot(), "sub" + File.separator + ".."), "a.ini");
+        try (AtomicFileWriter.Batch batch = new AtomicFileWriter.Batch()) {
+            batch.stage(file, "first".getBytes(StandardCharsets.UTF_8));
+            try {
+                batch.stage(otherSpelling, "second".getBytes(StandardCharsets.UTF_8));
+                fail("应拒绝重复写入同一文件");
+            } catch (IllegalStateException expected) {
+                // 已准备的内容保持不变
+            }
+            Map<File, IOException> failures = batch.commit();
+            assertTrue(failures.isEmpty());
+        }
+
+        assertEquals("first", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,132 @@
+package com.configtool.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * YAML键值修补
+ */
+public class YamlPatcherTest {
+
+    private static Map<String, String> update(String path, String value) {
+        return Collections.singletonMap(path, value);
+    }
+
+    @Test
+    public void replacesValueAndKeepsCommentsAndOrder() {
+        String yaml = "# 数据源\n"
+                + "spring:\n"
+                + "  datasource:\n"
+                + "    url: jdbc:mysql://old/db   # 旧地址\n"
+                + "    username: \"root\"\n"
+                + "server:\n"
+                + "  port: 8080\n";
+        Map<String, String> updates = new LinkedHashMap<>();
+        updates.put("spring.datasource.url", "jdbc:mysql://new/db");
+        updates.put("spring.datasource.username", "admin");
+
+        assertEquals("# 数据源\n"
+                + "spring:\n"
+                + "  datasource:\n"
+                + "    url: jdbc:mysql://new/db   # 旧地址\n"
+                + "    username: \"admin\"\n"
+                + "server:\n"
+                + "  port: 8080\n", YamlPatcher.patch(yaml, updates));
+    }
+
+    @Test
+    public void insertsMissingKeysUnderNearestParent() {
+        String yaml = "spring:\n"
+                + "  application:\n"
+                + "    name: demo\n";
+
+        assertEquals("spring:\n"
+                + "  application:\n"
+                + "    name: demo\n"
+                + "  datasource:\n"
+                + "    url: jdbc:mysql://h/db\n", YamlPatcher.patch(yaml, update("spring.datasource.url", "jdbc:mysql://h/db")));
+    }
+
+    @Test
+    public void quotesValuesThatYamlWouldReadAsNumbers() {
+        String yaml = "spring:\n  datasource:\n    password: x\n";
+
+        assertEquals("spring:\n  datasource:\n    password: '0123'\n",
+                YamlPatcher.patch(yaml, update("spring.datasource.password", "0123")));
+        assertEquals("spring:\n  datasource:\n    password: '1e3'\n",
+                YamlPatcher.patch(yaml, update("spring.datasource.password", "1e3")));
+        assertEquals("spring:\n  datasource:\n    password: '12:30'\n",
+                YamlPatcher.patch(yaml, update("spring.datasource.password", "12:30")));
+    }
+
+    @Test
+    public void quotesImplicitlyTypedScalars() {
+        String[] typed = {"123456", "-7", "0x1F", "0b101", "1_000", "3.14", ".5", "-.inf", ".NaN",
+                "190:20:30", "2024-01-02", "2024-1-2 10:20:30", "Null", "~", "off"};
+        for (String value : typed) {
+            assertEquals(value, "'" + value + "'", YamlPatcher.formatScalar(value, null));
+        }
+        String[] plain = {"root", "p@ss", "12:30:x", "1.2.3", "0123a", "jdbc:mysql://h:3306/db"};
+        for (String value : plain) {
+            assertEquals(value, value, YamlPatcher.formatScalar(value, null));
+        }
+    }
+
+    @Test
+    public void replacesWholeBlockScalar() {
+        String yaml = "spring:\n"
+                + "  datasource:\n"
+                + "    password: |\n"
+                + "      line1\n"
+                + "\n"
+                + "      line2\n"
+                + "    username: root\n";
+
+        assertEquals("spring:\n"
+                + "  datasource:\n"
+                + "    password: secret\n"
+                + "    username: root\n", YamlPatcher.patch(yaml, update("spring.datasource.password", "secret")));
+    }
+
+    @Test
+    public void blockScalarAtEndOfDocumentIsReplaced() {
+        String yaml = "spring:\r\n  datasource:\r\n    password: >-\r\n      folded\r\n      text";
+
+        assertEquals("spring:\r\n  datasource:\r\n    password: secret",
+                YamlPatcher.patch(yaml, update("spring.datasource.password", "secret")));
+    }
+
+    @Test
+    public void rejectsKeysUnderSequence() {
+        assertRejected("spring:\n"
+                + "  datasource:\n"
+                + "    - url: jdbc:mysql://a/db\n"
+                + "    - url: jdbc:mysql://b/db\n"
+                + "server:\n"
+                + "  port: 8080\n");
+        assertRejected("spring:\n"
+                + "  datasource:\n"
+                + "  - url: jdbc:mysql://a/db\n");
+    }
+
+    @Test
+    public void rejectsKeysUnderScalar() {
+        assertRejected("spring:\n  datasource: none\n");
+    }
+
+    private static void assertRejected(String yaml) {
+        try {
+            YamlPatcher.patch(yaml, update("spring.datasource.username", "admin"));
+            fail("应拒绝写入");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("spring.datasource.username"));
+        }
+    }
+}